@@ -0,0 +1,67 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 计算方式一整帧(采样/拟合 + 建Path)的内存分配测试,在手机上执行。
+ * 开发机上的测试只能数 WavesSampler、WaveCurveFitter 这些纯java的部分,Path是android的,
+ * 这里在手机上跑真正的 DoubleWavesRenderer.calculatePath,用 Debug.getThreadAllocCount() 数当前线程分配的对象个数。
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation")
+public class DoubleWavesRendererAllocationTest {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final long FRAME_NANOS = 16666667;
+    private static final int FRAMES = 600;
+
+    @Test
+    public void pathFrame_allocatesNothing() throws Exception {
+        assertEquals(0, allocationsPerRun(DoubleWavesRenderer.MODE_PATH));
+    }
+
+    @Test
+    public void curveFrame_allocatesNothing() throws Exception {
+        assertEquals(0, allocationsPerRun(DoubleWavesRenderer.MODE_CURVE));
+    }
+
+    @Test
+    public void translateFrame_allocatesNothing() throws Exception {
+        assertEquals(0, allocationsPerRun(DoubleWavesRenderer.MODE_TRANSLATE));
+    }
+
+    /**
+     * 预热 FRAMES 帧(Path内部的数组长到够用),再数 FRAMES 帧里分配了几个对象
+     */
+    private static int allocationsPerRun(int renderMode) {
+        DoubleWavesRenderer renderer = new DoubleWavesRenderer(InstrumentationRegistry.getTargetContext(), null, renderMode);
+        try {
+            renderer.setSize(WIDTH, HEIGHT);
+            long now = 0;
+            for (int i = 0; i < FRAMES; i++) {
+                renderer.calculatePath(now += FRAME_NANOS);
+            }
+
+            Debug.startAllocCounting();
+            try {
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < FRAMES; i++) {
+                    renderer.calculatePath(now += FRAME_NANOS);
+                }
+                return Debug.getThreadAllocCount();
+            } finally {
+                Debug.stopAllocCounting();
+            }
+        } finally {
+            renderer.release();
+        }
+    }
+}
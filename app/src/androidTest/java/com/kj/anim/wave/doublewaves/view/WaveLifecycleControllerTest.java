@@ -0,0 +1,334 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+
+import com.kj.anim.wave.doublewaves.MainActivity;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 生命周期控制的测试,在手机上执行。
+ * 一个和真正的浪一样转发回调的View,动的时候在自己的帧时钟上加监听;时钟用数数的 FrameScheduler,
+ * 每种暂停的情况(INVISIBLE/GONE、detach、滚出屏幕、window不可见、灭屏、省电模式)都数一下还请求了几帧、收到了几帧。
+ */
+@RunWith(AndroidJUnit4.class)
+public class WaveLifecycleControllerTest {
+
+    private static final int WAVE_HEIGHT = 200;
+    private static final int SPACER_HEIGHT = 20000;     //比屏幕高得多,滚下去浪就看不到了
+    private static final int FRAMES = 10;
+
+    @Rule
+    public ActivityTestRule<MainActivity> mActivityRule = new ActivityTestRule<>(MainActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private CountingScheduler mScheduler;
+    private ScrollView mScrollView;
+    private LinearLayout mContent;
+    private TestWaveView mWave;
+
+    @Before
+    public void setUp() throws Exception {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mScheduler = new CountingScheduler();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = mActivityRule.getActivity();
+                mWave = new TestWaveView(context, new WaveFrameClock(mScheduler));
+                View spacer = new View(context);
+                mContent = new LinearLayout(context);
+                mContent.setOrientation(LinearLayout.VERTICAL);
+                mContent.addView(mWave, ViewGroup.LayoutParams.MATCH_PARENT, WAVE_HEIGHT);
+                mContent.addView(spacer, ViewGroup.LayoutParams.MATCH_PARENT, SPACER_HEIGHT);
+                mScrollView = new ScrollView(context);
+                mScrollView.addView(mContent);
+                mActivityRule.getActivity().setContentView(mScrollView);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        assertRunning();
+    }
+
+    @Test
+    public void invisibleOrGone_stopsFrames() throws Exception {
+        for (final int visibility : new int[]{View.INVISIBLE, View.GONE}) {
+            runOnMain(new Runnable() {
+                @Override
+                public void run() {
+                    mWave.setVisibility(visibility);
+                }
+            });
+            assertStopped();
+
+            runOnMain(new Runnable() {
+                @Override
+                public void run() {
+                    mWave.setVisibility(View.VISIBLE);
+                }
+            });
+            mInstrumentation.waitForIdleSync();
+            assertRunning();
+        }
+    }
+
+    @Test
+    public void hiddenParent_stopsFrames() throws Exception {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mContent.setVisibility(View.INVISIBLE);
+            }
+        });
+        assertStopped();
+
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mContent.setVisibility(View.VISIBLE);
+            }
+        });
+        assertRunning();
+    }
+
+    @Test
+    public void detach_stopsFrames() throws Exception {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mContent.removeView(mWave);
+            }
+        });
+        assertStopped();
+
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mContent.addView(mWave, 0, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, WAVE_HEIGHT));
+            }
+        });
+        mInstrumentation.waitForIdleSync();     //还没布局时宽高为0,当作看不到
+        assertRunning();
+    }
+
+    @Test
+    public void scrolledOffscreen_stopsFrames() throws Exception {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mScrollView.scrollTo(0, SPACER_HEIGHT / 2);
+            }
+        });
+        mInstrumentation.waitForIdleSync();     //滚动的回调在下一次绘制前才分发
+        assertStopped();
+
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mScrollView.scrollTo(0, 0);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        assertRunning();
+    }
+
+    @Test
+    public void windowHidden_stopsFrames() throws Exception {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mWave.dispatchWindowVisibilityChanged(View.GONE);
+            }
+        });
+        assertStopped();
+
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mWave.dispatchWindowVisibilityChanged(View.VISIBLE);
+            }
+        });
+        assertRunning();
+    }
+
+    /**
+     * 灭屏和省电模式的广播是系统发的,测试里发不了,直接走 WaveDeviceState 分发时调用的回调
+     */
+    @Test
+    public void screenOffOrPowerSave_stopsFrames() throws Exception {
+        final boolean[][] states = {{false, false}, {true, true}, {false, true}};
+        for (final boolean[] state : states) {
+            runOnMain(new Runnable() {
+                @Override
+                public void run() {
+                    mWave.mLifecycle.onDeviceStateChanged(state[0], state[1]);
+                }
+            });
+            assertStopped();
+
+            runOnMain(new Runnable() {
+                @Override
+                public void run() {
+                    mWave.mLifecycle.onDeviceStateChanged(true, false);
+                }
+            });
+            assertRunning();
+        }
+    }
+
+    @Test
+    public void severalReasons_resumeOnlyWhenAllCleared() throws Exception {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mWave.setVisibility(View.INVISIBLE);
+                mWave.mLifecycle.onDeviceStateChanged(false, false);
+                mWave.setVisibility(View.VISIBLE);      //还灭着屏
+            }
+        });
+        assertStopped();
+
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mWave.mLifecycle.onDeviceStateChanged(true, false);
+            }
+        });
+        assertRunning();
+    }
+
+    /**
+     * 在动: 每个vsync收到一帧,并且请求下一帧
+     */
+    private void assertRunning() {
+        assertTrue(isRunning());
+        int frames = mWave.mFrames;
+        int posted = mScheduler.mPosted;
+        runFrames(FRAMES);
+        assertEquals(frames + FRAMES, mWave.mFrames);
+        assertEquals(posted + FRAMES, mScheduler.mPosted);
+        assertTrue(mScheduler.mPending);
+    }
+
+    /**
+     * 停了: 暂停前已经请求的那一帧跑完以后,不再请求,也不再收到帧
+     */
+    private void assertStopped() {
+        assertFalse(isRunning());
+        int frames = mWave.mFrames;
+        int posted = mScheduler.mPosted;
+        runFrames(FRAMES);
+        assertEquals(frames, mWave.mFrames);
+        assertEquals(posted, mScheduler.mPosted);
+        assertFalse(mScheduler.mPending);
+    }
+
+    private boolean isRunning() {
+        final boolean[] running = new boolean[1];
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                running[0] = mWave.mLifecycle.isRunning();
+            }
+        });
+        return running[0];
+    }
+
+    private void runFrames(final int count) {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.runFrames(count);
+            }
+        });
+    }
+
+    private void runOnMain(Runnable runnable) {
+        mInstrumentation.runOnMainSync(runnable);
+    }
+
+    /**
+     * 和真正的浪一样: 转发可见性回调,动的时候在时钟上加监听,不动时移除
+     */
+    private static final class TestWaveView extends View implements WaveFrameClock.OnFrameListener,
+            WaveRunState.OnRunStateChangedListener {
+
+        private final WaveFrameClock mClock;
+        private final WaveLifecycleController mLifecycle;
+        private int mFrames;
+
+        TestWaveView(Context context, WaveFrameClock clock) {
+            super(context);
+            mClock = clock;
+            mLifecycle = new WaveLifecycleController(this, this);
+        }
+
+        @Override
+        public void onRunStateChanged(boolean running) {
+            if (running) {
+                mClock.addListener(this);
+            } else {
+                mClock.removeListener(this);
+            }
+        }
+
+        @Override
+        public void onFrame(long frameTimeNanos) {
+            mFrames++;
+        }
+
+        @Override
+        protected void onWindowVisibilityChanged(int visibility) {
+            super.onWindowVisibilityChanged(visibility);
+            mLifecycle.onWindowVisibilityChanged(visibility);
+        }
+
+        @Override
+        protected void onVisibilityChanged(View changedView, int visibility) {
+            super.onVisibilityChanged(changedView, visibility);
+            if (mLifecycle != null) {       //构造的时候父类就可能回调
+                mLifecycle.onVisibilityChanged();
+            }
+        }
+    }
+
+    /**
+     * 代替Choreographer,数请求了几次vsync,由测试自己决定什么时候跑一帧
+     */
+    private static final class CountingScheduler implements WaveFrameClock.FrameScheduler {
+
+        private WaveFrameClock mClock;
+        private boolean mPending;
+        private int mPosted;
+        private long mFrameTimeNanos;
+
+        @Override
+        public void postFrame(WaveFrameClock clock) {
+            assertFalse("one callback per vsync", mPending);
+            mClock = clock;
+            mPending = true;
+            mPosted++;
+        }
+
+        void runFrames(int count) {
+            for (int i = 0; i < count && mPending; i++) {
+                mPending = false;
+                mFrameTimeNanos += 16666667;
+                mClock.doFrame(mFrameTimeNanos);
+            }
+        }
+    }
+}
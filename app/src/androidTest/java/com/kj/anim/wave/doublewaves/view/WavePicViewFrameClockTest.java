@@ -0,0 +1,134 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.kj.anim.wave.doublewaves.MainActivity;
+import com.kj.anim.wave.doublewaves.R;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 图片动画方式的浪在真机上的帧监听测试,在手机上执行。
+ * 和 WaveFrameClockTest 不同,这里inflate真正的 wavepicview_bg 布局,让 WavePicView 自己走attach、布局、可见性的回调,
+ * 确认不管重新布局多少次,共用的 WaveFrameClock 上只有它一个监听,detach或者看不见的时候一个都没有。
+ */
+@RunWith(AndroidJUnit4.class)
+public class WavePicViewFrameClockTest {
+
+    private static final int LAYOUTS = 1000;
+
+    @Rule
+    public ActivityTestRule<MainActivity> mActivityRule = new ActivityTestRule<>(MainActivity.class);
+
+    private Instrumentation mInstrumentation;
+    private WavePicView mView;
+
+    @Before
+    public void setUp() throws Exception {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                //换掉原来的内容,原来的浪detach后不再占着时钟
+                mActivityRule.getActivity().setContentView(R.layout.wavepicview_bg);
+                mView = (WavePicView) mActivityRule.getActivity().findViewById(R.id.wave_pic_view);
+            }
+        });
+        mInstrumentation.waitForIdleSync();     //布局完才知道在不在屏幕上
+    }
+
+    @Test
+    public void layoutPasses_keepOneListener() throws Exception {
+        assertEquals(1, listenerCount());
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                int width = View.MeasureSpec.makeMeasureSpec(mView.getWidth(), View.MeasureSpec.EXACTLY);
+                int height = View.MeasureSpec.makeMeasureSpec(mView.getHeight(), View.MeasureSpec.EXACTLY);
+                for (int i = 0; i < LAYOUTS; i++) {
+                    mView.requestLayout();
+                    mView.measure(width, height);
+                    mView.layout(mView.getLeft(), mView.getTop(), mView.getRight(), mView.getBottom());
+                }
+            }
+        });
+        assertEquals(1, listenerCount());
+
+        mInstrumentation.waitForIdleSync();     //再跑几帧,真正的布局和回调都走过一遍
+        assertEquals(1, listenerCount());
+    }
+
+    @Test
+    public void invisibleOrGone_removesListener() throws Exception {
+        setVisibility(View.INVISIBLE);
+        assertEquals(0, listenerCount());
+
+        setVisibility(View.VISIBLE);
+        assertEquals(1, listenerCount());
+
+        setVisibility(View.GONE);
+        assertEquals(0, listenerCount());
+
+        setVisibility(View.VISIBLE);
+        mInstrumentation.waitForIdleSync();     //GONE的时候宽高没了,重新布局后才算回到屏幕上
+        assertEquals(1, listenerCount());
+    }
+
+    @Test
+    public void detach_removesListener() throws Exception {
+        final ViewGroup[] parent = new ViewGroup[1];
+        for (int i = 0; i < 10; i++) {
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    parent[0] = (ViewGroup) mView.getParent();
+                    parent[0].removeView(mView);
+                }
+            });
+            assertEquals(0, listenerCount());
+
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    parent[0].addView(mView);
+                }
+            });
+            mInstrumentation.waitForIdleSync();
+            assertEquals(1, listenerCount());
+        }
+    }
+
+    private void setVisibility(final int visibility) {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView.setVisibility(visibility);
+            }
+        });
+    }
+
+    /**
+     * WaveFrameClock 只能在主线程访问
+     */
+    private int listenerCount() {
+        final int[] count = new int[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = WaveFrameClock.getInstance().getListenerCount();
+            }
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,50 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.os.Debug;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title DebugAllocationCounter
+ * @description 用 Debug.getThreadAllocCount() 统计当前线程分配的对象个数,只有设置了统计监听才会开始计数,
+ *              最后一个监听去掉时停止计数
+ *              图片内存从共用的 {@link WaveBitmapCache} 取
+ * @created 2017/4/14 15:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+@SuppressWarnings("deprecation")
+final class DebugAllocationCounter implements WaveFrameMetrics.AllocationCounter {
+
+    private static int sUsers;      //还在统计的View个数,第一个开始计数,最后一个停掉
+
+    /**
+     * 换掉View原来的统计,listener为null时返回null,View里判空就行。
+     * 所有View的统计都关掉以后停止分配计数,没有任何额外开销
+     *
+     * @param source   统计的来源
+     * @param previous View原来的统计,没有时为null
+     * @param listener 回调
+     * @return 统计对象或者null
+     */
+    static WaveFrameMetrics createMetrics(String source, WaveFrameMetrics previous,
+                                          WaveFrameMetrics.OnFrameMetricsListener listener) {
+        synchronized (DebugAllocationCounter.class) {
+            if (listener != null && sUsers++ == 0) {   //先加再减,换监听时不会停了又开
+                Debug.startAllocCounting();
+            }
+            if (previous != null && --sUsers == 0) {
+                Debug.stopAllocCounting();
+            }
+        }
+        if (listener == null) {
+            return null;
+        }
+        return new WaveFrameMetrics(source, listener, new DebugAllocationCounter(), WaveBitmapCache.getInstance());
+    }
+
+    @Override
+    public long getAllocationCount() {
+        return Debug.getThreadAllocCount();
+    }
+}
@@ -1,18 +1,19 @@
 package com.kj.anim.wave.doublewaves.view;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Shader;
+import android.graphics.Rect;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 
-import com.kj.anim.wave.doublewaves.R;
+import com.kj.anim.wave.core.WaveComputeThread;
+import com.kj.anim.wave.core.WaveFrameRing;
+import com.kj.anim.wave.core.WaveGeometryCache;
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WaveQualityGovernor;
+import com.kj.anim.wave.core.WaveWorkerPool;
+
+import java.util.List;
 
 /**
  * @author kangjian
@@ -27,75 +28,40 @@ import com.kj.anim.wave.doublewaves.R;
  *              wave_front_alpha:        上层浪画笔的alpha值 [默认值255,既不透明]
  *              wave_back_alpha:         下层浪画笔的alpha值 [默认值255,既不透明]
  *              wave_weight:             两个浪在屏幕的位置,越小位置越高 0.0-1.0 [默认值0.5 , 即在屏幕中央]
+ *              wave_evaluator:          求sin的方式 table(查正弦表)/math(Math.sin) [默认值table]
+ *              wave_layers:             多层浪,引用一个style数组,每个style是一层 {@link WaveLayer} [默认不设置,就是上面的两层]
+ *              wave_frame_cache_budget: 一个周期的帧缓存最多用多少KB,见 {@link WaveFrameRing} [默认值0,即实时计算]
+ *              wave_frame_cache_fps:    帧缓存量化的帧率 [默认值60]
+ *              wave_quality_budget:     自动画质的每帧预算(毫秒,按60fps算),0表示固定画质,见 {@link WaveQualityGovernor} [默认值8]
+ *              wave_render_mode:        translate(平移一个周期宽的Path)/path(每帧重建Path)/curve(每帧拟合贝塞尔曲线) [默认值translate]
+ *              wave_curve_max_error:    curve 模式曲线和浪之间的最大误差 [默认值0.5px]
+ *              wave_share_geometry:     同样参数的浪共用时钟和采样结果,见 {@link WaveGeometryCache} [默认值false,拼墙时true]
+ *              wave_wall_offset:        拼成一面墙时这个View左边在墙里的x坐标 [默认值0]
+ *              wave_wall_width:         墙的宽度,波长按它的倍数算 [默认值0,即不拼墙]
+ *              wave_parallel_sampling:  点数*层数很多时多线程采样,见 {@link WaveWorkerPool} [默认值false]
+ *              wave_compute_thread:     path 模式在后台线程采样,UI线程不等采样,见 {@link WaveComputeThread} [默认值false]
+ *              具体的计算和绘制在 {@link DoubleWavesRenderer} 里,需要在渲染线程里画的用 {@link DoubleWavesTextureView}
+ *              什么时候动由 {@link WaveLifecycleController} 决定: detach、不可见、滚出屏幕、灭屏、省电模式时都停下
+ *              每帧只 invalidate 浪尖到浪谷的横条,见 {@link DoubleWavesRenderer#getDirtyRect}
  * @created 2017/3/27 17:53
  * @changeRecord [修改记录] <br/>
  */
 
-public class DoubleWavesCalculateView extends View {
+public class DoubleWavesCalculateView extends View implements WaveFrameClock.OnFrameListener,
+        WaveRunState.OnRunStateChangedListener {
 
     private static final String TAG = "DoubleWavesCal";
 
-    private static final int LARGE = 0;
-    private static final int MIDDLE = 1;
-    private static final int LITTLE = 2;
-
-    private final float DEFAULT_WAVE_ALPHA = 1f; // 透明度
-    private final float DEFAULT_WAVE_AMPLITUDE = 0.5f; // 振幅
-
-    private final int WAVE_HEIGHT_LARGE = 52;
-    private final int WAVE_HEIGHT_MIDDLE = 8;
-    private final int WAVE_HEIGHT_LITTLE = 5;
-
-    private final float WAVE_LENGTH_MULTIPLE_LARGE = 1.5f;
-    private final float WAVE_LENGTH_MULTIPLE_MIDDLE = 1f;
-    private final float WAVE_LENGTH_MULTIPLE_LITTLE = 0.5f;
-
-    private final float WAVE_HZ_FAST = 0.12f;
-    private final float WAVE_HZ_NORMAL = 0.09f;
-    private final float WAVE_HZ_SLOW = 0.02f;
-
     public final int DEFAULT_ABOVE_WAVE_ALPHA = 255;
     public final int DEFAULT_BLOW_WAVE_ALPHA = 255;
 
-    private final float X_SPACE = 20;
-    private final double PI2 = 2 * Math.PI;
-
-    private Path mAboveWavePath_front = new Path();
-    private Path mAboveWavePath_back = new Path();
-
-    private Paint mAboveWavePaint_front = new Paint();
-    private Paint mAboveWavePaint_back = new Paint();
-    private Paint mBlowWavePaint = new Paint();
-
-    //颜色
-    private int mAboveWaveColor_front;
-    private int mAboveWaveColor_back;
-    private int mAboveWaveColor_afront;
-    private int mAboveWaveColor_aback;
-    private int mAboveWaveColor_afront_after;
-    private int mAboveWaveColor_aback_after;
-    private int mBlowWaveColor;
+    private final DoubleWavesRenderer mRenderer;
 
-    //透明度
-    private int mWave_front_alpha;
-    private int mWave_back_alpha;
+    private final Rect mDirty = new Rect();
 
-    private float mWaveWeight;
+    private final WaveLifecycleController mLifecycle;
 
-    private float mWaveMultiple;
-    private float mWaveLength;
-    private int mWaveHeight;
-    private float mMaxRight;
-    private float mWaveHz;
-
-    private float mAboveOffset = 0.0f;
-    private float mBlowOffset;
-
-    private RefreshProgressRunnable mRefreshProgressRunnable;
-
-    private int left, right, bottom;
-
-    private double omega;
+    private WaveFrameMetrics mMetrics;    //没设置监听时为null
 
     public DoubleWavesCalculateView(Context context) {
         this(context, null);
@@ -107,157 +73,106 @@ public class DoubleWavesCalculateView extends View {
 
     public DoubleWavesCalculateView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs);
-        TypedArray attributes = context.obtainStyledAttributes(attrs, R.styleable.DoubleWavesView);
-        mAboveWaveColor_afront = attributes.getColor(R.styleable.DoubleWavesView_wave_front_acolor, 0x4d7743fb);       //上层浪从浪尖起始的颜色
-        mAboveWaveColor_aback = attributes.getColor(R.styleable.DoubleWavesView_wave_back_acolor, 0x666837f4);         //下层狼从浪尖起始的颜色
-        mAboveWaveColor_afront_after = attributes.getColor(R.styleable.DoubleWavesView_wave_front_acolor_after, 0x007743fb);   //上层浪到屏幕底部的颜色
-        mAboveWaveColor_aback_after = attributes.getColor(R.styleable.DoubleWavesView_wave_back_acolor_after, 0x006837f4);     //下层浪到屏幕底部的颜色
-
-        mWave_front_alpha = attributes.getInt(R.styleable.DoubleWavesView_wave_front_alpha, DEFAULT_ABOVE_WAVE_ALPHA);  //上层浪的透明度
-        mWave_back_alpha = attributes.getInt(R.styleable.DoubleWavesView_wave_back_alpha, DEFAULT_ABOVE_WAVE_ALPHA);    //下层浪的透明度
-
-        mBlowWaveColor = attributes.getColor(R.styleable.DoubleWavesView_background_color, Color.TRANSPARENT);
-        mWaveWeight = attributes.getFloat(R.styleable.DoubleWavesView_wave_weight, 0.5f);                          //控制浪在界面的位置,越大越低(默认在屏幕中间)
-        attributes.recycle();
-
-        init();
-    }
-
-    private void init() {
-        mAboveWavePaint_front.setAlpha(mWave_front_alpha);
-        mAboveWavePaint_front.setStyle(Paint.Style.FILL);
-//        mAboveWavePaint_front.setAntiAlias(true); //去掉抗锯齿,略微提高效率.
-
-        mAboveWavePaint_back.setAlpha(mWave_back_alpha);
-        mAboveWavePaint_back.setStyle(Paint.Style.FILL);
-//        mAboveWavePaint_back.setAntiAlias(true);
-
-        mBlowWavePaint.setColor(mBlowWaveColor);
-        mBlowWavePaint.setAlpha(0);
-        mBlowWavePaint.setStyle(Paint.Style.FILL);
-//        mBlowWavePaint.setAntiAlias(true);
+        mRenderer = new DoubleWavesRenderer(context, attrs);
+        mLifecycle = new WaveLifecycleController(this, this);
     }
 
+    /**
+     * 尺寸变化时才重新计算采样参数和渐变,避免每帧创建对象
+     */
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        mWaveMultiple = getWaveMultiple(LARGE);     //浪的长度倍数
-        mWaveHeight = getWaveHeight(LARGE);         //浪的高度
-        mWaveHz = getWaveHz(LITTLE);                //赫兹
-        mBlowOffset = mWaveHeight * 0.4f;           //目前没用到的值
-
-        mWaveLength = getWidth() * mWaveMultiple;
-        left = getLeft();
-        right = getRight();
-        bottom = getBottom() + 2;
-        mMaxRight = right + X_SPACE;
-        omega = PI2 / mWaveLength;
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mRenderer.setSize(w, h);
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        long timeStart = System.currentTimeMillis();
-        super.onDraw(canvas);
+    /**
+     * 设置两层浪的渐变颜色,只在这里和尺寸变化时重建渐变
+     *
+     * @param frontColor      上层浪浪尖的颜色
+     * @param frontColorAfter 上层浪在view底部的颜色
+     * @param backColor       下层浪浪尖的颜色
+     * @param backColorAfter  下层浪在view底部的颜色
+     */
+    public void setWaveColors(int frontColor, int frontColorAfter, int backColor, int backColorAfter) {
+        mRenderer.setWaveColors(frontColor, frontColorAfter, backColor, backColorAfter);
+        invalidate();
+    }
 
-//        Bitmap bitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-//        Canvas drawCanvas = new Canvas(bitmap);     //本画布转换为一张位图
-//        drawCanvas.drawCircle(getWidth() / 2, getHeight() / 2, getWidth() / 2, mBlowWavePaint);[这里不要用这个画布了,否则效率降低,50毫秒左右执行一次,现在0毫秒]
-//        drawCanvas.drawRect(getLeft(),getTop(),getRight(),getBottom(), mBlowWavePaint);     //底图背景
-        canvas.drawRect(getLeft(), getTop(), getRight(), getBottom(), mBlowWavePaint);     //底图背景
-//        mAboveWavePaint_back.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_ATOP));
-//        mAboveWavePaint_front.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_ATOP));
-//        drawCanvas.drawPath(mAboveWavePath_back, mAboveWavePaint_back);
-//        drawCanvas.drawPath(mAboveWavePath_front, mAboveWavePaint_front);
+    /**
+     * 设置任意多层浪,代替xml里的 wave_layers
+     *
+     * @param layers 前面的先画
+     */
+    public void setWaveLayers(List<WaveLayer> layers) {
+        mRenderer.setWaveLayers(layers);
+        invalidate();
+    }
 
-        mAboveWavePaint_front.setShader(lg_front);
-        mAboveWavePaint_back.setShader(lg_back);
-        canvas.drawPath(mAboveWavePath_back, mAboveWavePaint_back);
-        canvas.drawPath(mAboveWavePath_front, mAboveWavePaint_front);
-//        mAboveWavePaint_back.setXfermode(null);
-//        mAboveWavePaint_front.setXfermode(null);
-//        canvas.drawBitmap(bitmap, 0.0f, 0.0f, new Paint());     //把之前那张图画到本view上
-//        bitmap.recycle();
-        long timeEnd = System.currentTimeMillis();
-        Log.i("KJ", "onDraw()时间间隔:-->>" + (timeEnd - timeStart));
+    /**
+     * 打开或者关闭一个周期的帧缓存,代替xml里的 wave_frame_cache_budget / wave_frame_cache_fps。
+     * 浪是周期性的,第一圈边算边存,之后直接用缓存的列高度,不再求sin
+     *
+     * @param framesPerSecond 一个周期按多少帧每秒量化
+     * @param budgetBytes     最多用多少字节,小于等于0关闭
+     * @return 是否真的用上了缓存,所有层没有公共周期或者预算不够时返回false,继续实时计算
+     */
+    public boolean setFrameCache(float framesPerSecond, long budgetBytes) {
+        return mRenderer.setFrameCache(framesPerSecond, budgetBytes);
     }
 
     /**
-     * 获取浪的长度倍数
+     * 拼成一面墙,代替xml里的 wave_wall_offset / wave_wall_width。
+     * 几个View用同样的参数、同一个墙宽,按各自在墙里的位置设偏移量,画出来是一条连续的浪
      *
-     * @param size
-     * @return
+     * @param offset    这个View左边在墙里的x坐标(px)
+     * @param wallWidth 墙的宽度(px),小于等于0表示不拼墙
      */
-    private float getWaveMultiple(int size) {
-        switch (size) {
-            case DoubleWavesCalculateView.LARGE:
-                return WAVE_LENGTH_MULTIPLE_LARGE;
-            case DoubleWavesCalculateView.MIDDLE:
-                return WAVE_LENGTH_MULTIPLE_MIDDLE;
-            case DoubleWavesCalculateView.LITTLE:
-                return WAVE_LENGTH_MULTIPLE_LITTLE;
-        }
-        return 0;
+    public void setWallPosition(float offset, float wallWidth) {
+        mRenderer.setWall(offset, wallWidth);
+        invalidate();
     }
 
     /**
-     * 获取浪的高度
+     * 设置自动画质的每帧预算,代替xml里的 wave_quality_budget。
+     * 每帧计算+绘制超出预算就降低采样密度、关抗锯齿、少画几层、不用渐变、降帧率,一直很宽裕再升回来
      *
-     * @param size
-     * @return
+     * @param budgetMillis 按60fps算的每帧预算(毫秒),小于等于0关闭自动调节,固定用默认画质
      */
-    private int getWaveHeight(int size) {
-        switch (size) {
-            case DoubleWavesCalculateView.LARGE:
-                return WAVE_HEIGHT_LARGE;
-            case DoubleWavesCalculateView.MIDDLE:
-                return WAVE_HEIGHT_MIDDLE;
-            case DoubleWavesCalculateView.LITTLE:
-                return WAVE_HEIGHT_LITTLE;
-        }
-        return 0;
+    public void setQualityBudget(float budgetMillis) {
+        mRenderer.setQualityBudget((long) (budgetMillis * 1000000));
+        invalidate();
     }
 
     /**
-     * 获取波浪的赫兹
+     * 设置帧耗时统计的监听,传null关闭统计(关闭后没有任何额外开销)
      *
-     * @param size
-     * @return
+     * @param listener 回调
      */
-    private float getWaveHz(int size) {
-        switch (size) {
-            case DoubleWavesCalculateView.LARGE:
-                return WAVE_HZ_FAST;
-            case DoubleWavesCalculateView.MIDDLE:
-                return WAVE_HZ_NORMAL;
-            case DoubleWavesCalculateView.LITTLE:
-                return WAVE_HZ_SLOW;
-        }
-        return 0;
+    public void setOnFrameMetricsListener(WaveFrameMetrics.OnFrameMetricsListener listener) {
+        mMetrics = DebugAllocationCounter.createMetrics(TAG, mMetrics, listener);
     }
 
-    LinearGradient lg_front;
-    LinearGradient lg_back;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginDraw();
+        }
+        super.onDraw(canvas);
+        mRenderer.draw(canvas);
+        if (metrics != null) {
+            metrics.endDraw();
+        }
+    }
 
     /**
-     * calculate wave track
+     * 不再占着共用的采样结果,重新attach后第一次计算时再取
      */
-    private void calculatePath() {
-        mAboveWavePath_front.reset();
-        mAboveWavePath_back.reset();
-        getWaveOffset();    //获取偏移量
-        float y_front, y_back;
-        mAboveWavePath_front.moveTo(0, bottom);
-        mAboveWavePath_back.moveTo(0, bottom);
-        for (float x = 0; x <= mMaxRight; x += X_SPACE) {
-            y_front = (float) (mWaveHeight * Math.sin(omega * x + mAboveOffset) + Math.max(mWaveHeight, getHeight() * mWaveWeight));
-            y_back = (float) (mWaveHeight * Math.sin(omega * 1.5 * x - mAboveOffset + 5 * Math.PI / 4) + Math.max(mWaveHeight, getHeight() * mWaveWeight));
-            mAboveWavePath_front.lineTo(x, y_front);
-            mAboveWavePath_back.lineTo(x, y_back);
-            lg_front = new LinearGradient(0, y_front, 0, getHeight(), mAboveWaveColor_afront, mAboveWaveColor_afront_after, Shader.TileMode.CLAMP);
-            lg_back = new LinearGradient(0, y_back, 0, getHeight(), mAboveWaveColor_aback, mAboveWaveColor_aback_after, Shader.TileMode.CLAMP);
-        }
-        mAboveWavePath_front.lineTo(right, bottom);
-        mAboveWavePath_back.lineTo(right, bottom);
+    @Override
+    protected void onDetachedFromWindow() {
+        mRenderer.release();
+        super.onDetachedFromWindow();
     }
 
     /**
@@ -268,52 +183,47 @@ public class DoubleWavesCalculateView extends View {
     @Override
     protected void onWindowVisibilityChanged(int visibility) {
         super.onWindowVisibilityChanged(visibility);
-        if (View.GONE == visibility) {
-            removeCallbacks(mRefreshProgressRunnable);
-        } else {
-            removeCallbacks(mRefreshProgressRunnable);
-            mRefreshProgressRunnable = new RefreshProgressRunnable();
-            post(mRefreshProgressRunnable);
-        }
+        mLifecycle.onWindowVisibilityChanged(visibility);
     }
 
     @Override
-    protected void onDetachedFromWindow() {
-        super.onDetachedFromWindow();
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mLifecycle != null) {       //构造的时候父类就可能回调,这时候还没创建
+            mLifecycle.onVisibilityChanged();
+        }
     }
 
     /**
-     * mVaveHz决定每次移动的距离,直观看到就是快慢
+     * 停下时保存相位,恢复后接着原来的位置走
      */
-    private void getWaveOffset() {
-        if (mBlowOffset > Float.MAX_VALUE - 100) {
-            mBlowOffset = 0;
-        } else {
-            mBlowOffset += mWaveHz;
-        }
-
-        if (mAboveOffset > Float.MAX_VALUE - 100) {
-            mAboveOffset = 0;
+    @Override
+    public void onRunStateChanged(boolean running) {
+        if (running) {
+            WaveFrameClock.getInstance().addListener(this);
         } else {
-            mAboveOffset += mWaveHz;
+            WaveFrameClock.getInstance().removeListener(this);
+            mRenderer.pause();
         }
     }
 
     /**
-     * 刷新界面的Runnable
+     * 每个vsync由共用的帧时钟回调,根据帧时间算出这一帧的浪
      */
-    private class RefreshProgressRunnable implements Runnable {
-        public void run() {
-            synchronized (DoubleWavesCalculateView.this) {
-                long start = System.currentTimeMillis();
-
-                calculatePath();
-
-                invalidate();
-
-                long gap = 16 - (System.currentTimeMillis() - start);
-                postDelayed(this, gap < 0 ? 0 : gap);
-            }
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        if (!mRenderer.shouldRender(frameTimeNanos)) {     //自动画质降了帧率,这一帧不算也不画
+            return;
+        }
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginCompute();
+        }
+        mRenderer.calculatePath(frameTimeNanos);
+        if (metrics != null) {
+            metrics.endCompute();
         }
+        mRenderer.getDirtyRect(mDirty);
+        invalidate(mDirty);     //硬件加速时系统会自己算刷新的区域,软件绘制和4.x上只重画这一条
     }
 }
@@ -0,0 +1,810 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.util.AttributeSet;
+
+import com.kj.anim.wave.core.WaveComputeThread;
+import com.kj.anim.wave.core.WaveCurveFitter;
+import com.kj.anim.wave.core.WaveFrameRing;
+import com.kj.anim.wave.core.WaveGeometryCache;
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WavePeriodTile;
+import com.kj.anim.wave.core.WavePhase;
+import com.kj.anim.wave.core.WaveQualityGovernor;
+import com.kj.anim.wave.core.WaveWorkerPool;
+import com.kj.anim.wave.core.WavesSampler;
+import com.kj.anim.wave.doublewaves.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title DoubleWavesRenderer
+ * @description 计算方式多层浪的绘制逻辑,和具体的View无关。
+ *              {@link DoubleWavesCalculateView} 在UI线程里用它, {@link DoubleWavesTextureView} 在自己的渲染线程里用它。
+ *              属性和 {@link DoubleWavesCalculateView} 一样,都是 DoubleWavesView 里的属性。
+ *              没有设置 wave_layers 时就是原来的前后两层浪,颜色和透明度用原来的属性;
+ *              设置了 wave_layers 时按数组里的每个style建一层 {@link WaveLayer},前面的先画。
+ *              采样间隔、抗锯齿、层数、渐变和帧率由 {@link WaveQualityGovernor} 自动调节,预算是 wave_quality_budget:
+ *              硬件加速的画布上按丢没丢vsync调,软件画布(TextureView)上按计算+绘制的耗时调。
+ *              每帧只有浪尖到浪谷之间的横条会变({@link #getDirtyRect}),View只刷新这一条;
+ *              浪谷以下的背景和渐变每列都一样,所有层都是普通混合时缓存在 {@link WaveStaticColumn} 里,Path只画到横条底部。
+ *              wave_render_mode 是 translate(默认)时每层只在尺寸/参数/画质变化时建一块一个周期宽的Path({@link WavePeriodTile}),
+ *              每帧只平移画布,Path不变,硬件加速时缓存的Path纹理也不用重建;path 是原来每帧重新采样、重建Path的方式;
+ *              curve 每帧用 {@link WaveCurveFitter} 拟合几段三次贝塞尔曲线建Path,点少而且平滑,误差不超过 wave_curve_max_error。
+ *              wave_share_geometry 打开时同样参数的浪共用 {@link WaveGeometryCache} 里的时钟和采样结果,每帧只算一次;
+ *              wave_wall_offset/wave_wall_width 让几个View拼成一面墙,波长按墙的宽度算,每个View画墙里自己那一段。
+ *              wave_parallel_sampling 打开时点数很多的采样分给进程共用的 {@link WaveWorkerPool} 并行算,点数少时自动单线程。
+ *              wave_compute_thread 打开时(只对不共用采样结果的 path 模式有效)采样在 {@link WaveComputeThread} 里算,
+ *              调用线程只请求、拿最新算好的一帧建Path,不等采样,画的内容晚一帧。
+ *              注意点: 本类不是线程安全的,同一时间只能有一个线程调用。
+ * @created 2017/4/10 15:36
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class DoubleWavesRenderer {
+
+    private static final int LARGE = 0;
+    private static final int MIDDLE = 1;
+    private static final int LITTLE = 2;
+
+    private static final int WAVE_HEIGHT_LARGE = 52;
+    private static final int WAVE_HEIGHT_MIDDLE = 8;
+    private static final int WAVE_HEIGHT_LITTLE = 5;
+
+    private static final float WAVE_LENGTH_MULTIPLE_LARGE = 1.5f;
+    private static final float WAVE_LENGTH_MULTIPLE_MIDDLE = 1f;
+    private static final float WAVE_LENGTH_MULTIPLE_LITTLE = 0.5f;
+
+    private static final float WAVE_HZ_FAST = 0.12f;
+    private static final float WAVE_HZ_NORMAL = 0.09f;
+    private static final float WAVE_HZ_SLOW = 0.02f;
+
+    private static final int DEFAULT_ABOVE_WAVE_ALPHA = 255;
+
+    private static final float FRAMES_PER_SECOND = 60;  //原来的赫兹是按每16ms走一次定的,换算成每秒的速度
+
+    private static final float BACK_PHASE = (float) (5 * Math.PI / 4);   //下层浪的初始相位
+    private static final float BACK_OMEGA_MULTIPLE = 1.5f;               //下层浪的角频率是上层浪的几倍
+
+    private static final int FRONT = 1;     //默认两层时上层浪的下标,后画
+    private static final int BACK = 0;      //默认两层时下层浪的下标,先画
+
+    private static final float DEFAULT_FRAME_CACHE_FPS = 60;
+    private static final int BYTES_PER_KB = 1024;
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long NO_FRAME = -1;
+
+    static final int MODE_PATH = 0;         //和属性 wave_render_mode 的值一样
+    static final int MODE_TRANSLATE = 1;
+    static final int MODE_CURVE = 2;
+
+    private final WavesSampler mSampler;    //每帧的采样结果,数组复用
+
+    private final ArrayList<WaveLayer> mLayers = new ArrayList<>();
+    private final WaveQualityGovernor mGovernor = new WaveQualityGovernor();
+    private WaveQualityGovernor.Level mQuality;
+    private int mFirstLayer;                //画质限制了层数时,从这一层开始画,前面的(最靠后的)不画
+    private long mComputeNanos;             //这一帧计算用的时间,画完一起报给mGovernor
+    private long mPendingFrameNanos = NO_FRAME;     //算好了还没画的那一帧的vsync时间,不是浪动了引起的重画不报给mGovernor
+    private Path[] mLayerPaths = new Path[0];
+    private Paint[] mLayerPaints = new Paint[0];
+
+    private final int mRenderMode;
+    private final WavesSampler mTileSampler;    //平移模式建Path时一层一层地采样
+    private final ArrayList<WaveLayer> mTileLayer = new ArrayList<>(1);
+    private WavePeriodTile[] mTiles = new WavePeriodTile[0];
+    private int[] mTileOffsets = new int[0];    //每层第一块的左边,每帧更新
+    private final WaveCurveFitter mCurveFitter = new WaveCurveFitter();     //曲线模式每帧的控制点,数组复用
+
+    private final int mEvaluatorType;
+    private final WaveWorkerPool mWorkerPool;   //没打开并行采样时为null
+    private boolean mShareGeometry;
+    private float mWallOffset;                  //这个View左边在墙里的x坐标
+    private float mWallWidth;                   //墙的宽度,0表示不拼墙,波长按自己的宽度算
+    private WaveGeometryCache.Handle mGeometry; //共用的时钟和采样结果,第一次计算时才取
+
+    private final boolean mUseComputeThread;
+    private WaveComputeThread mCompute;         //后台采样的线程,第一次计算时才建
+    private int mComputeGeneration;             //最后一次交给后台线程的参数的版本号
+
+    private Paint mBlowWavePaint = new Paint();
+    private int mBlowWaveColor;
+
+    private final WaveDirtyBand mBand = new WaveDirtyBand();
+    private final WaveStaticColumn mStaticColumn = new WaveStaticColumn();
+    private boolean mUseStatic;             //所有层都是普通混合时才能把浪谷以下的部分叠在一起缓存
+    private boolean mFullRedraw = true;     //尺寸、颜色、画质变了,下一帧要整个重画
+    private int mPathBottom;                //Path闭合的位置,用缓存时只到横条底部
+
+    private float mWaveWeight;
+    private float mMaxRight;
+
+    private WavePhase mClock = new WavePhase(1);   //浪走过的秒数,暂停时不走;所有层有公共周期时按这个周期绕回
+
+    private int width, height, right, bottom;
+
+    DoubleWavesRenderer(Context context, AttributeSet attrs) {
+        this(context, attrs, MODE_TRANSLATE);
+    }
+
+    /**
+     * @param defaultRenderMode 属性里没写 wave_render_mode 时用的模式
+     */
+    DoubleWavesRenderer(Context context, AttributeSet attrs, int defaultRenderMode) {
+        TypedArray attributes = context.obtainStyledAttributes(attrs, R.styleable.DoubleWavesView);
+        int frontColor = attributes.getColor(R.styleable.DoubleWavesView_wave_front_acolor, 0x4d7743fb);           //上层浪从浪尖起始的颜色
+        int backColor = attributes.getColor(R.styleable.DoubleWavesView_wave_back_acolor, 0x666837f4);             //下层狼从浪尖起始的颜色
+        int frontColorAfter = attributes.getColor(R.styleable.DoubleWavesView_wave_front_acolor_after, 0x007743fb);   //上层浪到屏幕底部的颜色
+        int backColorAfter = attributes.getColor(R.styleable.DoubleWavesView_wave_back_acolor_after, 0x006837f4);     //下层浪到屏幕底部的颜色
+
+        int frontAlpha = attributes.getInt(R.styleable.DoubleWavesView_wave_front_alpha, DEFAULT_ABOVE_WAVE_ALPHA);  //上层浪的透明度
+        int backAlpha = attributes.getInt(R.styleable.DoubleWavesView_wave_back_alpha, DEFAULT_ABOVE_WAVE_ALPHA);    //下层浪的透明度
+
+        mBlowWaveColor = attributes.getColor(R.styleable.DoubleWavesView_background_color, Color.TRANSPARENT);
+        mWaveWeight = attributes.getFloat(R.styleable.DoubleWavesView_wave_weight, 0.5f);                          //控制浪在界面的位置,越大越低(默认在屏幕中间)
+        int evaluatorType = attributes.getInt(R.styleable.DoubleWavesView_wave_evaluator, WavesSampler.EVALUATOR_TABLE);
+        int layersRes = attributes.getResourceId(R.styleable.DoubleWavesView_wave_layers, 0);
+        int frameCacheKb = attributes.getInt(R.styleable.DoubleWavesView_wave_frame_cache_budget, 0);
+        float frameCacheFps = attributes.getFloat(R.styleable.DoubleWavesView_wave_frame_cache_fps, DEFAULT_FRAME_CACHE_FPS);
+        float budgetMillis = attributes.getFloat(R.styleable.DoubleWavesView_wave_quality_budget,
+                (float) WaveQualityGovernor.DEFAULT_FRAME_BUDGET_NANOS / NANOS_PER_MILLI);
+        mRenderMode = attributes.getInt(R.styleable.DoubleWavesView_wave_render_mode, defaultRenderMode);
+        mWallOffset = attributes.getDimension(R.styleable.DoubleWavesView_wave_wall_offset, 0);
+        mWallWidth = attributes.getDimension(R.styleable.DoubleWavesView_wave_wall_width, 0);
+        mShareGeometry = attributes.getBoolean(R.styleable.DoubleWavesView_wave_share_geometry, mWallWidth > 0);    //拼墙时默认共用,否则各走各的
+        boolean parallel = attributes.getBoolean(R.styleable.DoubleWavesView_wave_parallel_sampling, false);
+        mUseComputeThread = attributes.getBoolean(R.styleable.DoubleWavesView_wave_compute_thread, false);
+        mCurveFitter.setMaxError(attributes.getDimension(R.styleable.DoubleWavesView_wave_curve_max_error, WaveCurveFitter.DEFAULT_MAX_ERROR));
+        attributes.recycle();
+
+        mEvaluatorType = evaluatorType;
+        mWorkerPool = parallel ? WaveWorkerPool.getDefault() : null;
+        mSampler = new WavesSampler(evaluatorType);
+        mSampler.setWorkerPool(mWorkerPool);
+        mTileSampler = new WavesSampler(evaluatorType);
+        if (mRenderMode == MODE_PATH && !mShareGeometry && !mUseComputeThread) {     //平移模式每帧不采样、共用时每帧只算一次、后台线程采样时,用不上
+            mSampler.setFrameCache(frameCacheFps, (long) frameCacheKb * BYTES_PER_KB);
+        }
+        mGovernor.setFrameBudgetNanos((long) (budgetMillis * NANOS_PER_MILLI));
+        mQuality = mGovernor.getLevel();
+
+        mBlowWavePaint.setColor(mBlowWaveColor);
+        mBlowWavePaint.setAlpha(0);
+        mBlowWavePaint.setStyle(Paint.Style.FILL);
+//        mBlowWavePaint.setAntiAlias(true);
+
+        List<WaveLayer> layers = layersRes != 0 ? readLayers(context, layersRes) : null;
+        if (layers == null || layers.isEmpty()) {
+            layers = createDefaultLayers(frontColor, frontColorAfter, frontAlpha, backColor, backColorAfter, backAlpha);
+        }
+        setWaveLayers(layers);
+    }
+
+    /**
+     * 原来的两层浪: 下层浪波长短一些、往反方向走
+     */
+    private List<WaveLayer> createDefaultLayers(int frontColor, int frontColorAfter, int frontAlpha,
+                                                int backColor, int backColorAfter, int backAlpha) {
+        float amplitude = getWaveHeight(LARGE);                 //浪的高度
+        float multiple = getWaveMultiple(LARGE);                //浪的长度倍数
+        float speed = getWaveHz(LITTLE) * FRAMES_PER_SECOND;    //每秒走多少弧度
+
+        WaveLayer back = new WaveLayer(amplitude, multiple / BACK_OMEGA_MULTIPLE, -speed, BACK_PHASE, backColor, backColorAfter);
+        back.setAlpha(backAlpha);
+        WaveLayer front = new WaveLayer(amplitude, multiple, speed, 0, frontColor, frontColorAfter);
+        front.setAlpha(frontAlpha);
+
+        List<WaveLayer> layers = new ArrayList<>(2);
+        layers.add(BACK, back);
+        layers.add(FRONT, front);
+        return layers;
+    }
+
+    /**
+     * 读 wave_layers 引用的数组,数组里每一项是一个style
+     */
+    private static List<WaveLayer> readLayers(Context context, int arrayRes) {
+        Resources res = context.getResources();
+        TypedArray styles = res.obtainTypedArray(arrayRes);
+        List<WaveLayer> layers = new ArrayList<>(styles.length());
+        for (int i = 0; i < styles.length(); i++) {
+            int styleRes = styles.getResourceId(i, 0);
+            if (styleRes == 0) {
+                continue;
+            }
+            TypedArray a = context.obtainStyledAttributes(styleRes, R.styleable.WaveLayer);
+            WaveLayer layer = new WaveLayer();
+            layer.setAmplitude(a.getDimension(R.styleable.WaveLayer_layer_amplitude, WaveLayer.DEFAULT_AMPLITUDE));
+            layer.setWavelength(a.getFloat(R.styleable.WaveLayer_layer_wavelength, WaveLayer.DEFAULT_WAVELENGTH));
+            layer.setSpeed(a.getFloat(R.styleable.WaveLayer_layer_speed, WaveLayer.DEFAULT_SPEED));
+            layer.setPhase(a.getFloat(R.styleable.WaveLayer_layer_phase, 0));
+            layer.setColor(a.getColor(R.styleable.WaveLayer_layer_color, WaveLayer.DEFAULT_COLOR));
+            layer.setColorAfter(a.getColor(R.styleable.WaveLayer_layer_color_after, WaveLayer.DEFAULT_COLOR_AFTER));
+            layer.setAlpha(a.getInt(R.styleable.WaveLayer_layer_alpha, DEFAULT_ABOVE_WAVE_ALPHA));
+            layer.setBlendMode(a.getInt(R.styleable.WaveLayer_layer_blend_mode, WaveLayer.BLEND_NORMAL));
+            a.recycle();
+            layers.add(layer);
+        }
+        styles.recycle();
+        return layers;
+    }
+
+    /**
+     * 替换所有层,Path和Paint只在层数变多时才新建
+     *
+     * @param layers 前面的先画
+     */
+    void setWaveLayers(List<WaveLayer> layers) {
+        mLayers.clear();
+        mLayers.addAll(layers);
+        int count = mLayers.size();
+        if (mLayerPaths.length != count) {
+            Path[] paths = new Path[count];
+            Paint[] paints = new Paint[count];
+            for (int l = 0; l < count; l++) {
+                paths[l] = l < mLayerPaths.length ? mLayerPaths[l] : new Path();
+                paints[l] = l < mLayerPaints.length ? mLayerPaints[l] : new Paint();
+            }
+            mLayerPaths = paths;
+            mLayerPaints = paints;
+            WavePeriodTile[] tiles = new WavePeriodTile[count];
+            for (int l = 0; l < count; l++) {
+                tiles[l] = l < mTiles.length ? mTiles[l] : new WavePeriodTile();
+            }
+            mTiles = tiles;
+            mTileOffsets = new int[count];
+        }
+        for (int l = 0; l < count; l++) {
+            WaveLayer layer = mLayers.get(l);
+            Paint paint = mLayerPaints[l];
+            paint.setStyle(Paint.Style.FILL);
+            paint.setXfermode(toXfermode(layer.getBlendMode()));
+        }
+        applyQuality();
+    }
+
+    /**
+     * 按当前画质重新设置采样的层、抗锯齿和尺寸。只在层变化和换档时调用
+     */
+    private void applyQuality() {
+        int count = mLayers.size();
+        mFirstLayer = Math.max(0, count - mQuality.maxLayers);
+        for (int l = 0; l < count; l++) {
+            mLayerPaints[l].setAntiAlias(mQuality.antiAlias);   //低档去掉抗锯齿,略微提高效率.
+            mLayerPaints[l].setDither(mQuality.gradient == WaveQualityGovernor.GRADIENT_DITHER);
+        }
+        mSampler.setLayers(mFirstLayer == 0 ? mLayers : mLayers.subList(mFirstLayer, count));
+        mCurveFitter.setLayers(mFirstLayer == 0 ? mLayers : mLayers.subList(mFirstLayer, count));
+        mClock.setPeriod(mSampler.getCommonPeriod());     //周期没变时不动,变了也不丢帧,换画质时浪不会顿一下
+        if (width > 0) {
+            setSize(width, height);
+        }
+    }
+
+    /**
+     * 设置自动画质的预算,见 {@link WaveQualityGovernor}
+     *
+     * @param budgetNanos 按60fps算的每帧预算(计算+绘制),小于等于0关闭自动调节,固定在默认档
+     */
+    void setQualityBudget(long budgetNanos) {
+        mGovernor.setFrameBudgetNanos(budgetNanos);
+        if (mQuality != mGovernor.getLevel()) {
+            mQuality = mGovernor.getLevel();
+            applyQuality();
+        }
+    }
+
+    /**
+     * 降帧率之后有的vsync不用算也不用画
+     *
+     * @param frameTimeNanos 帧时间
+     * @return false表示这一帧跳过,上一帧画的内容不变
+     */
+    boolean shouldRender(long frameTimeNanos) {
+        return mGovernor.shouldRender(frameTimeNanos);
+    }
+
+    /**
+     * 打开或者关闭一个周期的帧缓存,见 {@link WaveFrameRing}
+     *
+     * @param framesPerSecond 量化的帧率
+     * @param budgetBytes     最多用多少字节,小于等于0关闭
+     * @return 是否真的用上了缓存,false表示退回实时计算;平移模式每帧不采样、共用采样结果、后台线程采样时,总是false
+     */
+    boolean setFrameCache(float framesPerSecond, long budgetBytes) {
+        if (mRenderMode != MODE_PATH || mShareGeometry || mUseComputeThread) {
+            return false;
+        }
+        mSampler.setFrameCache(framesPerSecond, budgetBytes);
+        return mSampler.isFrameCacheActive();
+    }
+
+    private static PorterDuffXfermode toXfermode(int blendMode) {
+        switch (blendMode) {
+            case WaveLayer.BLEND_SCREEN:
+                return new PorterDuffXfermode(PorterDuff.Mode.SCREEN);
+            case WaveLayer.BLEND_ADD:
+                return new PorterDuffXfermode(PorterDuff.Mode.ADD);
+            case WaveLayer.BLEND_MULTIPLY:
+                return new PorterDuffXfermode(PorterDuff.Mode.MULTIPLY);
+            case WaveLayer.BLEND_OVERLAY:
+                return new PorterDuffXfermode(PorterDuff.Mode.OVERLAY);
+        }
+        return null;
+    }
+
+    /**
+     * 尺寸变化时才重新计算采样参数和渐变,避免每帧创建对象
+     *
+     * @param w 宽
+     * @param h 高
+     */
+    void setSize(int w, int h) {
+        width = w;
+        height = h;
+        right = w;
+        bottom = h + 2;
+        float xSpace = mQuality.xSpace;
+        mMaxRight = right + xSpace;
+        mSampler.resize(mMaxRight, xSpace, getUnitWidth(), getBaseLine());
+        mClock.setPeriod(mSampler.getCommonPeriod());     //绕回时会不会跳要按波长的像素数判断,宽度变了再看一次
+        mCurveFitter.resize(right, getUnitWidth(), getBaseLine());
+        if (mGeometry != null) {    //先按新的参数取再放掉旧的,只是换了画质时还是同一组,相位接着走
+            WaveGeometryCache.Handle old = mGeometry;
+            acquireGeometry();
+            old.release();
+        }
+        if (mCompute != null) {
+            configureCompute();
+        }
+        updateGradients();
+        if (mRenderMode == MODE_TRANSLATE) {
+            buildTiles();
+        }
+    }
+
+    /**
+     * 平移模式: 每层按 {@link WavePeriodTile} 取整后的波长采样 t=0 时的一块,首尾接上,闭合到 mPathBottom。
+     * 要在 {@link #updateGradients()} 之后调用
+     */
+    private void buildTiles() {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        float xSpace = mQuality.xSpace;
+        float unitWidth = getUnitWidth();
+        float baseLine = getBaseLine();
+        for (int l = mFirstLayer; l < mLayers.size(); l++) {
+            WavePeriodTile tile = mTiles[l];
+            tile.layout(width, unitWidth, mLayers.get(l));
+            int tileWidth = tile.getWidth();
+            WaveLayer layer = new WaveLayer(mLayers.get(l));
+            layer.setWavelength(tile.getWavelength());
+            mTileLayer.clear();
+            mTileLayer.add(layer);
+            mTileSampler.setLayers(mTileLayer);
+            mTileSampler.resize(tileWidth, xSpace, unitWidth, baseLine);
+            mTileSampler.sample(0);
+
+            Path path = mLayerPaths[l];
+            path.rewind();
+            path.moveTo(0, mPathBottom);
+            for (int i = 0, count = mTileSampler.getCount(); i < count; i++) {
+                path.lineTo(mTileSampler.getX(i), mTileSampler.getY(0, i));
+            }
+            path.lineTo(tileWidth, mTileSampler.getY(0, 0));     //下一块的起点,接缝处高度一样
+            path.lineTo(tileWidth, mPathBottom);
+            path.close();
+        }
+    }
+
+    /**
+     * @return 波长按这个宽度的倍数算
+     */
+    private float getUnitWidth() {
+        return mWallWidth > 0 ? mWallWidth : width;
+    }
+
+    private float getBaseLine() {
+        return Math.max(getMaxAmplitude(), height * mWaveWeight);
+    }
+
+    /**
+     * 设置在墙里的位置,见属性 wave_wall_offset/wave_wall_width。拼墙时一定共用时钟
+     *
+     * @param offset    这个View左边在墙里的x坐标
+     * @param wallWidth 墙的宽度,小于等于0表示不拼墙
+     */
+    void setWall(float offset, float wallWidth) {
+        mWallOffset = offset;
+        mWallWidth = Math.max(0, wallWidth);
+        mShareGeometry |= mWallWidth > 0;
+        if (width > 0) {
+            setSize(width, height);
+        }
+    }
+
+    private void acquireGeometry() {
+        mGeometry = WaveGeometryCache.getInstance().acquire(mLayers, mFirstLayer, mEvaluatorType,
+                getUnitWidth(), getBaseLine(), mQuality.xSpace, mWallOffset, width);
+        if (mWorkerPool != null) {
+            mGeometry.getSampler().setWorkerPool(mWorkerPool);    //同一组里有一个View要并行,整组都并行算
+        }
+    }
+
+    private void releaseGeometry() {
+        if (mGeometry != null) {
+            mGeometry.release();
+            mGeometry = null;
+        }
+    }
+
+    private boolean usesComputeThread() {
+        return mUseComputeThread && mRenderMode == MODE_PATH && !mShareGeometry;
+    }
+
+    /**
+     * 把现在的采样参数交给后台线程,线程还没有时先建
+     */
+    private void configureCompute() {
+        if (mCompute == null) {
+            mCompute = new WaveComputeThread(mEvaluatorType, mWorkerPool);
+            mCompute.start();
+        }
+        int count = mLayers.size();
+        mComputeGeneration = mCompute.configure(mFirstLayer == 0 ? mLayers : mLayers.subList(mFirstLayer, count),
+                mMaxRight, mQuality.xSpace, getUnitWidth(), getBaseLine());
+    }
+
+    /**
+     * 放掉共用的采样结果、停掉后台采样线程,View detach、渲染线程退出时调用。之后再计算时重新取
+     */
+    void release() {
+        releaseGeometry();
+        if (mCompute != null) {
+            mCompute.quit();
+            mCompute = null;
+        }
+    }
+
+    private float getMaxAmplitude() {
+        float max = 0;
+        for (int l = 0; l < mLayers.size(); l++) {
+            max = Math.max(max, mLayers.get(l).getAmplitude());
+        }
+        return max;
+    }
+
+    /**
+     * 设置默认两层浪的渐变颜色,只在这里和尺寸变化时重建渐变。自定义了 wave_layers 时改的是第0层和第1层
+     */
+    void setWaveColors(int frontColor, int frontColorAfter, int backColor, int backColorAfter) {
+        if (mLayers.size() > FRONT) {
+            mLayers.get(FRONT).setColor(frontColor);
+            mLayers.get(FRONT).setColorAfter(frontColorAfter);
+        }
+        if (mLayers.size() > BACK) {
+            mLayers.get(BACK).setColor(backColor);
+            mLayers.get(BACK).setColorAfter(backColorAfter);
+        }
+        updateGradients();
+    }
+
+    /**
+     * 渐变从每层浪尖能到达的最高处开始到view底部,和浪的位置无关,所以不用每帧重建。
+     * 最低档不用渐变,用两个颜色的中间色填充
+     */
+    private void updateGradients() {
+        if (height <= 0) {
+            return;
+        }
+        updateStatic();
+        for (int l = mFirstLayer; l < mLayers.size(); l++) {
+            WaveLayer layer = mLayers.get(l);
+            Paint paint = mLayerPaints[l];
+            if (mQuality.gradient == WaveQualityGovernor.GRADIENT_SOLID) {
+                paint.setShader(null);
+                paint.setColor(mixColor(layer.getColor(), layer.getColorAfter()));
+                paint.setAlpha(Color.alpha(paint.getColor()) * layer.getAlpha() / 255);
+            } else {
+                float crestTop = mSampler.getCrestTop(l - mFirstLayer);
+                paint.setShader(new LinearGradient(0, crestTop, 0, height, layer.getColor(), layer.getColorAfter(), Shader.TileMode.CLAMP));
+                paint.setAlpha(layer.getAlpha());
+            }
+        }
+    }
+
+    /**
+     * 重新算会变的横条,浪谷以下的缓存等下一次draw时重建
+     */
+    private void updateStatic() {
+        mBand.setFromSampler(mSampler, height);
+        if (mRenderMode == MODE_CURVE && !mBand.isEmpty()) {     //曲线在浪尖浪谷处最多多出去最大误差那么多
+            int slack = (int) Math.ceil(mCurveFitter.getMaxError());
+            mBand.union(mBand.getTop() - slack, mBand.getBottom() + slack);
+            mBand.clamp(height);
+        }
+        mUseStatic = !mBand.isEmpty();
+        for (int l = mFirstLayer; l < mLayers.size(); l++) {
+            if (mLayers.get(l).getBlendMode() != WaveLayer.BLEND_NORMAL) {
+                mUseStatic = false;
+            }
+        }
+        mPathBottom = mUseStatic ? mBand.getBottom() : bottom;
+        mStaticColumn.invalidate();
+        mFullRedraw = true;
+    }
+
+    private void drawStatic(Canvas canvas) {
+        if (!mStaticColumn.isValid()) {
+            Canvas column = mStaticColumn.begin(mBand.getBottom(), height);
+            if (column != null) {
+                drawBackground(column, mBand.getBottom(), height);
+                for (int l = mFirstLayer; l < mLayerPaints.length; l++) {
+                    column.drawRect(0, mBand.getBottom(), 1, height, mLayerPaints[l]);
+                }
+                mStaticColumn.end();
+            }
+        }
+        mStaticColumn.draw(canvas, width);
+    }
+
+    private void drawBackground(Canvas canvas, int top, int bottom) {
+        if (mBlowWavePaint.getAlpha() != 0) {   //透明的背景不用填
+            canvas.drawRect(0, top, width, bottom, mBlowWavePaint);     //底图背景
+        }
+    }
+
+    /**
+     * 下一帧需要刷新的区域,尺寸、颜色、画质变化之后的第一帧是整个View
+     *
+     * @param out 结果
+     */
+    void getDirtyRect(Rect out) {
+        if (mFullRedraw || mBand.isEmpty()) {
+            out.set(0, 0, width, height);
+        } else {
+            out.set(0, mBand.getTop(), width, mBand.getBottom());
+        }
+    }
+
+    private static int mixColor(int color, int colorAfter) {
+        return Color.argb((Color.alpha(color) + Color.alpha(colorAfter)) / 2,
+                (Color.red(color) + Color.red(colorAfter)) / 2,
+                (Color.green(color) + Color.green(colorAfter)) / 2,
+                (Color.blue(color) + Color.blue(colorAfter)) / 2);
+    }
+
+    void draw(Canvas canvas) {
+        long start = System.nanoTime();
+//        Bitmap bitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+//        Canvas drawCanvas = new Canvas(bitmap);     //本画布转换为一张位图
+//        drawCanvas.drawCircle(getWidth() / 2, getHeight() / 2, getWidth() / 2, mBlowWavePaint);[这里不要用这个画布了,否则效率降低,50毫秒左右执行一次,现在0毫秒]
+//        drawCanvas.drawRect(getLeft(),getTop(),getRight(),getBottom(), mBlowWavePaint);     //底图背景
+        drawBackground(canvas, 0, mUseStatic ? mBand.getBottom() : height);
+        for (int l = mFirstLayer; l < mLayerPaths.length; l++) {
+            if (mRenderMode == MODE_TRANSLATE) {
+                drawTiles(canvas, l);
+            } else {
+                canvas.drawPath(mLayerPaths[l], mLayerPaints[l]);
+            }
+        }
+        if (mUseStatic) {
+            drawStatic(canvas);
+        }
+        mFullRedraw = false;
+        long cost = mComputeNanos + System.nanoTime() - start;
+        mComputeNanos = 0;
+        long frameNanos = mPendingFrameNanos;
+        mPendingFrameNanos = NO_FRAME;
+        if (frameNanos == NO_FRAME) {
+            return;     //别的原因引起的重画,浪没有动
+        }
+        boolean changed = canvas.isHardwareAccelerated()
+                ? mGovernor.onFramePresented(frameNanos)    //这里只是录display list,真正的开销看有没有丢vsync
+                : mGovernor.onFrameRendered(cost);
+        if (changed) {     //下一帧开始用新的画质
+            mQuality = mGovernor.getLevel();
+            applyQuality();
+        }
+    }
+
+    /**
+     * 同一个Path平移整数像素画几次铺满一行,渐变是竖直的,平移不影响颜色
+     */
+    private void drawTiles(Canvas canvas, int layer) {
+        Path path = mLayerPaths[layer];
+        Paint paint = mLayerPaints[layer];
+        int step = mTiles[layer].getWidth();
+        for (int x = mTileOffsets[layer]; x < width; x += step) {
+            canvas.save();
+            canvas.translate(x, 0);
+            canvas.drawPath(path, paint);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * 获取浪的长度倍数
+     *
+     * @param size
+     * @return
+     */
+    private float getWaveMultiple(int size) {
+        switch (size) {
+            case LARGE:
+                return WAVE_LENGTH_MULTIPLE_LARGE;
+            case MIDDLE:
+                return WAVE_LENGTH_MULTIPLE_MIDDLE;
+            case LITTLE:
+                return WAVE_LENGTH_MULTIPLE_LITTLE;
+        }
+        return 0;
+    }
+
+    /**
+     * 获取浪的高度
+     *
+     * @param size
+     * @return
+     */
+    private int getWaveHeight(int size) {
+        switch (size) {
+            case LARGE:
+                return WAVE_HEIGHT_LARGE;
+            case MIDDLE:
+                return WAVE_HEIGHT_MIDDLE;
+            case LITTLE:
+                return WAVE_HEIGHT_LITTLE;
+        }
+        return 0;
+    }
+
+    /**
+     * 获取波浪的赫兹
+     *
+     * @param size
+     * @return
+     */
+    private float getWaveHz(int size) {
+        switch (size) {
+            case LARGE:
+                return WAVE_HZ_FAST;
+            case MIDDLE:
+                return WAVE_HZ_NORMAL;
+            case LITTLE:
+                return WAVE_HZ_SLOW;
+        }
+        return 0;
+    }
+
+    /**
+     * calculate wave track
+     * 用rewind()代替reset(),保留Path内部的数据结构复用;所有层在一次采样里算完,每帧不创建对象。
+     * 平移模式只算每层的偏移量,Path不动
+     *
+     * @param frameTimeNanos 帧时间,偏移量根据时间算
+     */
+    void calculatePath(long frameTimeNanos) {
+        long start = System.nanoTime();
+        mPendingFrameNanos = frameTimeNanos;
+        if (mShareGeometry && mGeometry == null && width > 0) {
+            acquireGeometry();
+        }
+        final WaveGeometryCache.Handle geometry = mGeometry;
+        if (mRenderMode == MODE_TRANSLATE) {
+            double seconds = geometry != null ? geometry.update(frameTimeNanos) : mClock.update(frameTimeNanos);
+            for (int l = mFirstLayer; l < mTileOffsets.length; l++) {
+                mTileOffsets[l] = mTiles[l].offsetAt(seconds, mWallOffset);
+            }
+            mComputeNanos += System.nanoTime() - start;
+            return;
+        }
+        if (mRenderMode == MODE_CURVE) {
+            double seconds = geometry != null ? geometry.update(frameTimeNanos) : mClock.update(frameTimeNanos);
+            mCurveFitter.fit(seconds, mWallOffset);
+            buildCurves();
+            mComputeNanos += System.nanoTime() - start;
+            return;
+        }
+        if (usesComputeThread()) {
+            if (mCompute == null && width > 0) {
+                configureCompute();
+            }
+            if (mCompute != null) {
+                mCompute.request(mClock.update(frameTimeNanos));     //下一帧画这次请求的结果
+                WaveComputeThread.Frame frame = mCompute.getLatest();
+                if (frame.generation == mComputeGeneration) {      //参数变了以后,旧参数算的帧不用,保留上一次的Path
+                    buildPaths(frame.samples, frame.layerCount, 0, frame.count, frame.xSpace, 0);
+                }
+            }
+        } else if (geometry != null) {
+            geometry.sample(frameTimeNanos);    //同一帧里别的View已经算过就直接用
+            WavesSampler sampler = geometry.getSampler();
+            buildPaths(sampler.getSamples(), sampler.getLayerCount(), geometry.getFirstIndex(), geometry.getEndIndex(),
+                    sampler.getX(1), geometry.getOffset());
+        } else {
+            mSampler.sample(mClock.update(frameTimeNanos));
+            buildPaths(mSampler.getSamples(), mSampler.getLayerCount(), 0, mSampler.getCount(), mQuality.xSpace, 0);
+        }
+        mComputeNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * 曲线模式: 每层一串三次贝塞尔曲线,两头闭合到 mPathBottom
+     */
+    private void buildCurves() {
+        final int first = mFirstLayer;
+        final Path[] paths = mLayerPaths;
+        final int pathBottom = mPathBottom;
+        for (int l = 0, layerCount = mCurveFitter.getLayerCount(); l < layerCount; l++) {
+            Path path = paths[first + l];
+            float[] points = mCurveFitter.getPoints(l);
+            path.rewind();
+            path.moveTo(0, pathBottom);
+            path.lineTo(points[0], points[1]);
+            for (int s = 0, p = 2, count = mCurveFitter.getSegmentCount(l); s < count; s++, p += 6) {
+                path.cubicTo(points[p], points[p + 1], points[p + 2], points[p + 3], points[p + 4], points[p + 5]);
+            }
+            path.lineTo(right, pathBottom);
+        }
+    }
+
+    /**
+     * 按列交错的采样结果建每一层的Path
+     *
+     * @param begin   用到的第一个点
+     * @param end     用到的最后一个点的下一个
+     * @param xSpace  采样间隔,第i个点的x是 i * xSpace
+     * @param originX 采样点的x减去它是View里的x
+     */
+    private void buildPaths(float[] samples, int layerCount, int begin, int end, float xSpace, float originX) {
+        final int first = mFirstLayer;
+        final Path[] paths = mLayerPaths;
+        final int pathBottom = mPathBottom;
+        final float left = Math.min(0, begin * xSpace - originX);
+        for (int l = 0; l < layerCount; l++) {
+            paths[first + l].rewind();
+            paths[first + l].moveTo(left, pathBottom);
+        }
+        for (int i = begin; i < end; i++) {
+            float x = i * xSpace - originX;
+            int column = i * layerCount;
+            for (int l = 0; l < layerCount; l++) {
+                paths[first + l].lineTo(x, samples[column + l]);
+            }
+        }
+        for (int l = 0; l < layerCount; l++) {
+            paths[first + l].lineTo(right, pathBottom);
+        }
+    }
+
+    /**
+     * 停止刷新时调用,恢复后从当前位置接着走
+     */
+    void pause() {
+        mClock.pause();
+        if (mGeometry != null) {
+            mGeometry.pause();
+        }
+        mGovernor.pause();
+        mComputeNanos = 0;
+        mPendingFrameNanos = NO_FRAME;
+        mStaticColumn.release();    //停着的时候不占内存,恢复后第一次画时重建
+        mFullRedraw = true;
+    }
+}
@@ -1,25 +1,23 @@
 package com.kj.anim.wave.doublewaves.view;
 
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.LightingColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.Shader;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.animation.LinearInterpolator;
 
+import com.kj.anim.wave.core.WavePhase;
 import com.kj.anim.wave.doublewaves.R;
 
-import java.lang.ref.WeakReference;
-
 /**
  * @author kangjian
  * @version 1.0
@@ -27,22 +25,55 @@ import java.lang.ref.WeakReference;
  * @description 实现背景图双层浪的UI效果。   【利用: BitmapShader 】实现
  * 技术点+注意点:
  *      1.记着把资源文件放在:drawable-nodpi文件下,放drawable下Android系统会根据各个设备伸缩,造成最终很乱。
- *      2.本类是根据 1920*1080 分辨率的屏幕写的,所以里面一些起始单位位置也是根据1920*1080去写。
+ *      2.图片 pic_wave_tt 是按 1920*1080 的屏幕画的(上下两条,每条1920*240),现在按View的实际宽度解码缩放,
+ *        宽高同比例缩放,横向用 BitmapShader 的 REPEAT 平铺,任何宽度都是无缝的,内存只和View的宽度有关。
  *      3.FRONT_ANIM_DURATION 控制前层浪的速率; BACK_ANIM_DURATION 控制后层浪的速率。需要的话,可以把这两个写在属性控制里。
- *      4.运用动画实现波浪的平移
+ *        层数和图片里横向的条数一样(BAND_COUNT),要加层就在图片里加一条,再在 LAYER_DURATIONS 里加一个时间。
+ *      4.运用动画实现波浪的平移,由共用的 {@link WaveFrameClock} 驱动,平移的距离按帧时间算
+ *      5.图片从共用的 {@link WaveBitmapCache} 里取,后台解码,同样宽度的浪只解码一次;解码好之前先画一块平的水面占位。
+ *      6.什么时候动由 {@link WaveLifecycleController} 决定: detach、不可见、滚出屏幕、灭屏、省电模式时都停下
+ *      7.图片解码好以后找出每一条里左右不一样的行({@link WaveDirtyBand}),每帧只 invalidate 这些行;
+ *        再往下的行左右都一样(CLAMP还会把最后一行一直拉到底),几层叠好以后缓存成 {@link WaveStaticColumn},不再每层填一遍。
+ *      8.图片默认按 ALPHA_8 解码(属性 wave_bitmap_config),每一条都是单色的,只存透明度,颜色设给画笔,
+ *        着色还是原来的 LightingColorFilter,画出来和ARGB_8888一样。
+ *      9.默认用构建时按 app/wavestrips.properties 预渲染的图(属性 wave_strip_source="generated"): 每层一张,每个密度一套,
+ *        宽度正好一个波长,高度只有浪尖到浪谷那一段,画的时候往下挪到 wave_strip_tops 的位置,上下靠CLAMP拉满;
+ *        不按View宽度缩放。wave_strip_source="picture" 还是用原来手画的 pic_wave_tt,按View宽度缩放。
  * @created 2017/3/25 11:33
  * @changeRecord [修改记录] <br/>
  */
 
-public class DoubleWavesShaderView extends View {
+public class DoubleWavesShaderView extends View implements WaveFrameClock.OnFrameListener,
+        WaveRunState.OnRunStateChangedListener {
 
     private static final String TAG = "DoubleWavesShader";
 
     private static final int FRONT_ANIM_DURATION = 40000;
     private static final int BACK_ANIM_DURATION = 20000;
 
-    private Wave mBackWave;
-    private Wave mFrontWave;
+    private static final int BAND_COUNT = 2;                //pic_wave_tt 上下两条: 上面后层浪,下面前层浪
+    private static final int[] LAYER_DURATIONS = {BACK_ANIM_DURATION, FRONT_ANIM_DURATION};    //每一条走一圈的时间,和图片从上到下的顺序一样
+
+    private Wave[] mWaves;      //先画前面的,层数由图片里有几条决定
+    private static final float STRIP_ASPECT = 240f / 1920;  //每一条的高宽比,解码好之前用来画占位
+
+    private static final int SOURCE_PICTURE = 0;        //和属性 wave_strip_source 的值一样
+    private static final int SOURCE_GENERATED = 1;
+
+    private int mStripSource = SOURCE_GENERATED;
+    private int[] mStripRes;    //预渲染的图,每层一张
+    private int mStripWidth;    //当前图片解码的宽度,宽度变了才重新取(只有 pic_wave_tt 按宽度缩放)
+    private Bitmap.Config mStripConfig = Bitmap.Config.ALPHA_8;
+    private WaveBitmapCache.Handle[] mStripHandles;
+
+    private WaveFrameMetrics mMetrics;    //没设置监听时为null
+
+    private WaveLifecycleController mLifecycle;
+
+    private final WaveDirtyBand mBand = new WaveDirtyBand();             //所有层合起来会变的行
+    private final WaveStaticColumn mStaticColumn = new WaveStaticColumn();
+    private boolean mUseStatic;         //所有层的图片都好了才用缓存
+    private final Rect mDirty = new Rect();
 
     public DoubleWavesShaderView(Context context) {
         super(context);
@@ -71,18 +102,146 @@ public class DoubleWavesShaderView extends View {
 
         int colorFront = attributes.getColor(R.styleable.DoubleWavesView_wave_front_acolor, 0);
         int colorBack = attributes.getColor(R.styleable.DoubleWavesView_wave_back_acolor, 0);
+        mStripConfig = WaveBitmapDecoder.toConfig(attributes.getInt(R.styleable.DoubleWavesView_wave_bitmap_config,
+                WaveBitmapDecoder.CONFIG_ALPHA_8));
+        mStripSource = attributes.getInt(R.styleable.DoubleWavesView_wave_strip_source, SOURCE_GENERATED);
 
         attributes.recycle();
 
-        Bitmap wave = BitmapFactory.decodeResource(getResources(), R.drawable.pic_wave_tt);
+        if (mStripSource == SOURCE_GENERATED) {
+            initGeneratedWaves(colorBack, colorFront);
+        } else {
+            int[] colors = {colorBack, colorFront};
+            mWaves = new Wave[BAND_COUNT];
+            for (int i = 0; i < BAND_COUNT; i++) {
+                mWaves[i] = new Wave(LAYER_DURATIONS[i], colors[i], 0);
+            }
+        }
+        mLifecycle = new WaveLifecycleController(this, this);
+    }
+
+    /**
+     * 预渲染的图: 每层一张,最下面一层用后层浪的颜色,最上面一层用前层浪的颜色
+     */
+    private void initGeneratedWaves(int colorBack, int colorFront) {
+        Resources res = getResources();
+        TypedArray strips = res.obtainTypedArray(R.array.wave_strips);
+        int[] durations = res.getIntArray(R.array.wave_strip_durations);
+        int[] tops = res.getIntArray(R.array.wave_strip_tops);
+        int count = strips.length();
+        mStripRes = new int[count];
+        mWaves = new Wave[count];
+        for (int i = 0; i < count; i++) {
+            mStripRes[i] = strips.getResourceId(i, 0);
+            int color = i == count - 1 ? colorFront : (i == 0 ? colorBack : 0);
+            mWaves[i] = new Wave(durations[i], color, tops[i]);
+        }
+        strips.recycle();
+    }
+
+    /**
+     * 宽度确定以后再按宽度取图片
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (isInEditMode())
+            return;
+        acquireStrips(w);
+        updateBand();
+    }
+
+    private void acquireStrips(int width) {
+        if (mStripSource == SOURCE_GENERATED) {
+            acquireGeneratedStrips();
+            return;
+        }
+        if (width <= 0 || (width == mStripWidth && mStripHandles != null))
+            return;
+        releaseStrips();
+        mStripWidth = width;
+        mStripHandles = new WaveBitmapCache.Handle[1];
+        mStripHandles[0] = WaveBitmapCache.getInstance().acquire(getResources(), R.drawable.pic_wave_tt, width,
+                mStripConfig, BAND_COUNT, new WaveBitmapCache.OnBitmapReadyListener() {
+                    @Override
+                    public void onBitmapReady(Bitmap[] bands, int[] colors) {
+                        if (bands == null)
+                            return;
+                        for (int i = 0; i < mWaves.length && i < bands.length; i++) {
+                            mWaves[i].setBitmap(bands[i], colors[i]);
+                        }
+                        updateBand();
+                        invalidate();
+                    }
+                });
+    }
 
-        Bitmap backWaveBitmap = Bitmap.createBitmap(wave, 0, 0, 1920, 240);
-        mBackWave = new Wave(this, backWaveBitmap, BACK_ANIM_DURATION, colorBack);
+    /**
+     * 预渲染的图已经是这个密度的大小,和View宽度无关,只取一次
+     */
+    private void acquireGeneratedStrips() {
+        if (mStripHandles != null)
+            return;
+        mStripHandles = new WaveBitmapCache.Handle[mStripRes.length];
+        for (int i = 0; i < mStripRes.length; i++) {
+            final Wave wave = mWaves[i];
+            mStripHandles[i] = WaveBitmapCache.getInstance().acquire(getResources(), mStripRes[i], 0,
+                    mStripConfig, 1, new WaveBitmapCache.OnBitmapReadyListener() {
+                        @Override
+                        public void onBitmapReady(Bitmap[] bands, int[] colors) {
+                            if (bands == null)
+                                return;
+                            wave.setBitmap(bands[0], colors[0]);
+                            updateBand();
+                            invalidate();
+                        }
+                    });
+        }
+    }
 
-        Bitmap frontWaveBitmap = Bitmap.createBitmap(wave, 0, 240, 1920, 240);
-        mFrontWave = new Wave(this, frontWaveBitmap, FRONT_ANIM_DURATION, colorFront);
+    private void releaseStrips() {
+        if (mStripHandles != null) {
+            for (WaveBitmapCache.Handle handle : mStripHandles) {
+                handle.release();
+            }
+            mStripHandles = null;
+        }
+        for (Wave wave : mWaves) {
+            wave.setBitmap(null, 0);
+        }
+        updateBand();
+    }
 
-        wave.recycle();
+    /**
+     * 合并每一层会变的行;有一层还没有图片时整个View都要画,不用缓存
+     */
+    private void updateBand() {
+        mBand.setEmpty();
+        mUseStatic = true;
+        for (Wave wave : mWaves) {
+            if (wave.bitmap == null) {
+                mUseStatic = false;
+            }
+            mBand.union(wave.band.getTop(), wave.band.getBottom());
+        }
+        mBand.clamp(getHeight());
+        if (mBand.isEmpty()) {
+            mUseStatic = false;
+        }
+        mStaticColumn.release();
+    }
+
+    private void drawStatic(Canvas canvas, int width, int height) {
+        if (!mStaticColumn.isValid()) {
+            Canvas column = mStaticColumn.begin(mBand.getBottom(), height);
+            if (column == null)
+                return;
+            for (Wave wave : mWaves) {
+                wave.drawRows(column, 1, mBand.getBottom(), height);
+            }
+            mStaticColumn.end();
+        }
+        mStaticColumn.draw(canvas, width);
     }
 
     @Override
@@ -90,93 +249,209 @@ public class DoubleWavesShaderView extends View {
         super.onAttachedToWindow();
         if(isInEditMode())              //就是为了解决可视化编辑器无法识别自定义控件报错加的
             return;
-        mBackWave.startWaveAnim();
-        mFrontWave.startWaveAnim();
+        acquireStrips(getWidth());      //从window上拿下来又放回去时,重新取图片
     }
 
     @Override
     protected void onDetachedFromWindow() {
-        mFrontWave.stopWaveAnim();
-        mBackWave.stopWaveAnim();
+        if(!isInEditMode()) {
+            releaseStrips();
+        }
         super.onDetachedFromWindow();
     }
 
     @Override
     protected void onWindowVisibilityChanged(int visibility) {
         super.onWindowVisibilityChanged(visibility);
-        if(isInEditMode())
+        if (mLifecycle != null)
+            mLifecycle.onWindowVisibilityChanged(visibility);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mLifecycle != null)         //构造的时候父类就可能回调;编辑模式下不创建
+            mLifecycle.onVisibilityChanged();
+    }
+
+    /**
+     * 设置帧耗时统计的监听,传null关闭统计(关闭后没有任何额外开销)
+     *
+     * @param listener 回调
+     */
+    public void setOnFrameMetricsListener(WaveFrameMetrics.OnFrameMetricsListener listener) {
+        mMetrics = DebugAllocationCounter.createMetrics(TAG, mMetrics, listener);
+    }
+
+    /**
+     * 停下时保存相位,恢复后接着原来的位置走
+     */
+    @Override
+    public void onRunStateChanged(boolean running) {
+        if (running) {
+            WaveFrameClock.getInstance().addListener(this);
+            return;
+        }
+        WaveFrameClock.getInstance().removeListener(this);
+        for (Wave wave : mWaves) {
+            wave.pause();
+        }
+        mStaticColumn.release();    //停着的时候不占内存,下次画时重建
+    }
+
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginCompute();
+        }
+        boolean changed = false;
+        for (Wave wave : mWaves) {
+            changed |= wave.onFrame(frameTimeNanos);
+        }
+        if (metrics != null) {
+            metrics.endCompute();
+        }
+        if (!changed)
             return;
-        if (View.VISIBLE == visibility) {
-            mBackWave.startWaveAnim();
-            mFrontWave.startWaveAnim();
+        if (mUseStatic) {
+            mDirty.set(0, mBand.getTop(), getWidth(), mBand.getBottom());
+            invalidate(mDirty);     //硬件加速时系统会自己算刷新的区域,软件绘制和4.x上只重画这一条
         } else {
-            mBackWave.stopWaveAnim();
-            mBackWave.stopWaveAnim();
+            invalidate();
         }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginDraw();
+        }
         if(!isInEditMode()) {
-            mBackWave.onDraw(canvas);
-            mFrontWave.onDraw(canvas);
+            int bottom = mUseStatic ? mBand.getBottom() : getHeight();
+            for (Wave wave : mWaves) {
+                wave.onDraw(canvas, getWidth(), bottom);
+            }
+            if (mUseStatic) {
+                drawStatic(canvas, getWidth(), getHeight());
+            }
         }
         super.onDraw(canvas);
+        if (metrics != null) {
+            metrics.endDraw();
+        }
     }
 
     private static class Wave {
+        private static final int PLACEHOLDER_COLOR = 0x33FFFFFF;
+
         private Bitmap bitmap;
         private Paint paint;
+        private Paint placeholderPaint;
         private BitmapShader shader;
         private Matrix matrix;
-        private ObjectAnimator animator;
-        private int durMillis;
+        private WavePhase phase;    //单位是图片宽度,每个durationMillis走1,在 [0, 1) 里绕回
         private int offset;
-        private WeakReference<View> viewRef;
+        private final int top;      //图片第一行画在View的哪一行
+        private final WaveStripPlacement placement;
+        private final WaveDirtyBand band = new WaveDirtyBand();    //图片里左右不一样的行,View的坐标
 
-        public Wave(View v, Bitmap b, int durationMillis, int color) {
-            bitmap = b;
-            shader = new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
+        /**
+         * @param durationMillis 走过一张图的宽度要多久,负数往左走,0不动
+         * @param top            图片第一行画在View的哪一行,上面的部分由CLAMP拉第一行
+         */
+        public Wave(int durationMillis, int color, int top) {
+            this.top = top;
+            placement = new WaveStripPlacement(top);
             paint = new Paint();
-            paint.setShader(shader);
             paint.setAntiAlias(true);
             matrix = new Matrix();
-            durMillis = durationMillis;
-            viewRef = new WeakReference<>(v);
+            phase = new WavePhase(durationMillis == 0 ? 0 : 1000.0 / durationMillis, 1);
             if (color != 0) {
                 paint.setColorFilter(new LightingColorFilter(0X02FFFFFF, color));
             }
+            placeholderPaint = new Paint();
+            placeholderPaint.setStyle(Paint.Style.FILL);
+            placeholderPaint.setColor(color != 0 ? color : PLACEHOLDER_COLOR);
         }
 
-        public void startWaveAnim() {
-            if (animator != null)
-                animator.end();
-            animator = ObjectAnimator.ofInt(this, "wavePos", 0, 1920);
-            animator.setInterpolator(new LinearInterpolator());
-            animator.setDuration(durMillis);
-            animator.setRepeatMode(ValueAnimator.RESTART);
-            animator.setRepeatCount(ValueAnimator.INFINITE);
-            animator.start();
+        /**
+         * 图片是缓存里共用的,这里不能recycle
+         *
+         * @param color ALPHA_8的图片画的颜色,其他为0
+         */
+        public void setBitmap(Bitmap b, int color) {
+            bitmap = b;
+            paint.setColor(color != 0 ? color : Color.BLACK);     //ARGB的图只用画笔的不透明度
+            shader = b == null ? null : new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
+            paint.setShader(shader);
+            findVaryingRows();
         }
 
-        public void stopWaveAnim() {
-            if (animator != null)
-                animator.end();
-            animator = null;
+        /**
+         * 一行一行地比,图片只在解码好时扫一遍。第一行、最后一行左右不一样的话,CLAMP拉上去、拉下去的部分也都会变
+         */
+        private void findVaryingRows() {
+            band.setEmpty();
+            if (bitmap == null)
+                return;
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            placement.setRows(height);
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                bitmap.getPixels(row, 0, width, 0, y, width, 1);
+                if (!WaveDirtyBand.isUniformRow(row, width)) {
+                    placement.includeVaryingRow(band, y);
+                }
+            }
         }
 
-        public void onDraw(Canvas canvas) {
-            matrix.setTranslate(offset, 0);
+        /**
+         * @return 位置有没有变,变了要重画
+         */
+        public boolean onFrame(long frameTimeNanos) {
+            double position = phase.update(frameTimeNanos);
+            return bitmap != null && setWavePos((int) (position * bitmap.getWidth()));
+        }
+
+        public void pause() {
+            phase.pause();
+        }
+
+        /**
+         * @param height 画到哪一行,下面的部分在缓存里
+         */
+        public void onDraw(Canvas canvas, int width, int height) {
+            if (shader == null) {
+                drawPlaceholder(canvas, width, height);
+                return;
+            }
+            drawRows(canvas, width, 0, height);
+        }
+
+        /**
+         * 画View的 [fromRow, toRow) 这几行,图片的原点总是在 top 行,见 {@link WaveStripPlacement}
+         */
+        void drawRows(Canvas canvas, int width, int fromRow, int toRow) {
+            matrix.setTranslate(offset, placement.getShaderY());
             shader.setLocalMatrix(matrix);
-            canvas.drawRect(0, 0, 1920, canvas.getHeight(), paint);
+            canvas.drawRect(0, fromRow, width, toRow, paint);
+        }
+
+        /**
+         * 图片还没解码好时,在浪的中线以下画一块平的水面
+         */
+        private void drawPlaceholder(Canvas canvas, int width, int height) {
+            float waterLine = top > 0 ? top : width * STRIP_ASPECT / 2;
+            canvas.drawRect(0, waterLine, width, height, placeholderPaint);
         }
 
-        public void setWavePos(int pos) {
+        public boolean setWavePos(int pos) {
             boolean changed = (offset != pos);
             offset = pos;
-            View v = viewRef.get();
-            if (v != null && changed)
-                v.invalidate();
+            return changed;
         }
     }
 }
@@ -0,0 +1,327 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.View;
+
+import com.kj.anim.wave.core.WaveLayer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title DoubleWavesTextureView
+ * @description 计算方式的双层浪,计算和绘制都放在单独的渲染线程里,不占用UI线程。
+ *              属性和 {@link DoubleWavesCalculateView} 完全一样(DoubleWavesView)。
+ * 技术点+注意点:
+ *      1.用TextureView而不是SurfaceView,这样浪可以是半透明的,也能和其他View正常叠加、做动画。TextureView需要开启硬件加速。
+ *      2.渲染线程是一个HandlerThread,在这个线程里拿Choreographer,跟着vsync画,不用自己算postDelayed的间隔。
+ *        这里故意不用主线程的 {@link WaveFrameClock},否则UI线程一卡浪也跟着卡;浪的位置同样按帧时间算。
+ *      3.surface可用时启动渲染线程,surface销毁时停掉;什么时候暂停由 {@link WaveLifecycleController} 决定,
+ *        恢复时从原来的相位接着画。
+ *      4.{@link DoubleWavesRenderer} 只在渲染线程里访问,UI线程要改参数就post过去。
+ *      5.帧耗时统计在渲染线程里记录,监听也在渲染线程里回调。
+ *      6.lockCanvas只锁浪尖到浪谷的横条,横条以外保留上一帧的内容;系统没法保留时会把区域扩大,整个重画。
+ * @created 2017/4/10 16:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public class DoubleWavesTextureView extends TextureView implements TextureView.SurfaceTextureListener,
+        WaveRunState.OnRunStateChangedListener {
+
+    private static final String TAG = "DoubleWavesTexture";
+
+    private final DoubleWavesRenderer mRenderer;
+
+    private RenderThread mRenderThread;
+
+    private final WaveLifecycleController mLifecycle;
+
+    private volatile WaveFrameMetrics mMetrics;    //渲染线程读,没设置监听时为null
+
+    public DoubleWavesTextureView(Context context) {
+        this(context, null);
+    }
+
+    public DoubleWavesTextureView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DoubleWavesTextureView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mRenderer = new DoubleWavesRenderer(context, attrs);
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+        mLifecycle = new WaveLifecycleController(this, this);
+    }
+
+    /**
+     * 设置两层浪的渐变颜色,渲染线程在跑的话交给渲染线程去改
+     *
+     * @param frontColor      上层浪浪尖的颜色
+     * @param frontColorAfter 上层浪在view底部的颜色
+     * @param backColor       下层浪浪尖的颜色
+     * @param backColorAfter  下层浪在view底部的颜色
+     */
+    public void setWaveColors(final int frontColor, final int frontColorAfter, final int backColor, final int backColorAfter) {
+        if (mRenderThread == null) {
+            mRenderer.setWaveColors(frontColor, frontColorAfter, backColor, backColorAfter);
+            return;
+        }
+        mRenderThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setWaveColors(frontColor, frontColorAfter, backColor, backColorAfter);
+            }
+        });
+    }
+
+    /**
+     * 设置任意多层浪,代替xml里的 wave_layers。复制一份交给渲染线程,调用之后再改传进来的对象不会生效
+     *
+     * @param layers 前面的先画
+     */
+    public void setWaveLayers(List<WaveLayer> layers) {
+        final List<WaveLayer> copy = new ArrayList<>(layers.size());
+        for (WaveLayer layer : layers) {
+            copy.add(new WaveLayer(layer));
+        }
+        if (mRenderThread == null) {
+            mRenderer.setWaveLayers(copy);
+            return;
+        }
+        mRenderThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setWaveLayers(copy);
+            }
+        });
+    }
+
+    /**
+     * 设置自动画质的每帧预算,见 {@link DoubleWavesCalculateView#setQualityBudget(float)}
+     *
+     * @param budgetMillis 按60fps算的每帧预算(毫秒),小于等于0关闭自动调节,固定用默认画质
+     */
+    public void setQualityBudget(float budgetMillis) {
+        final long budgetNanos = (long) (budgetMillis * 1000000);
+        if (mRenderThread == null) {
+            mRenderer.setQualityBudget(budgetNanos);
+            return;
+        }
+        mRenderThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setQualityBudget(budgetNanos);
+            }
+        });
+    }
+
+    /**
+     * 设置帧耗时统计的监听,传null关闭统计(关闭后没有任何额外开销)
+     *
+     * @param listener 回调
+     */
+    public void setOnFrameMetricsListener(WaveFrameMetrics.OnFrameMetricsListener listener) {
+        mMetrics = DebugAllocationCounter.createMetrics(TAG, mMetrics, listener);
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        mRenderThread = new RenderThread(this, surface);
+        mRenderThread.start();
+        mRenderThread.prepare(width, height);
+        mRenderThread.setPaused(!mLifecycle.isRunning());
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        if (mRenderThread != null) {
+            mRenderThread.setSize(width, height);
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        if (mRenderThread != null) {
+            mRenderThread.shutdown();
+            mRenderThread = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    @Override
+    public void onRunStateChanged(boolean running) {
+        if (mRenderThread != null) {
+            mRenderThread.setPaused(!running);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mLifecycle.onWindowVisibilityChanged(visibility);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mLifecycle != null) {       //构造的时候父类就可能回调,这时候还没创建
+            mLifecycle.onVisibilityChanged();
+        }
+    }
+
+    /**
+     * 渲染线程,跟着本线程的Choreographer每个vsync算一次、画一次
+     */
+    private static class RenderThread extends HandlerThread implements Choreographer.FrameCallback {
+
+        private final DoubleWavesTextureView mView;
+        private final DoubleWavesRenderer mRenderer;
+        private final SurfaceTexture mSurfaceTexture;
+
+        private Handler mHandler;
+        private Choreographer mChoreographer;
+        private Surface mSurface;
+        private boolean mPaused = true;
+        private final Rect mDirty = new Rect();
+
+        RenderThread(DoubleWavesTextureView view, SurfaceTexture surfaceTexture) {
+            super(TAG, Process.THREAD_PRIORITY_DISPLAY);
+            mView = view;
+            mRenderer = view.mRenderer;
+            mSurfaceTexture = surfaceTexture;
+        }
+
+        Handler getHandler() {
+            if (mHandler == null) {
+                mHandler = new Handler(getLooper());    //getLooper()会等到线程的Looper准备好
+            }
+            return mHandler;
+        }
+
+        void prepare(final int width, final int height) {
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    mChoreographer = Choreographer.getInstance();   //拿到的是渲染线程自己的Choreographer
+                    mSurface = new Surface(mSurfaceTexture);
+                    mRenderer.setSize(width, height);
+                }
+            });
+        }
+
+        void setSize(final int width, final int height) {
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    mRenderer.setSize(width, height);
+                }
+            });
+        }
+
+        /**
+         * 暂停只是不再请求下一帧,相位保存在renderer里,恢复后接着原来的位置画
+         */
+        void setPaused(final boolean paused) {
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    mPaused = paused;
+                    mChoreographer.removeFrameCallback(RenderThread.this);
+                    if (paused) {
+                        mRenderer.pause();
+                    } else {
+                        mChoreographer.postFrameCallback(RenderThread.this);
+                    }
+                }
+            });
+        }
+
+        /**
+         * 在UI线程调用,等渲染线程真正退出再返回,保证surface销毁之后不会再画
+         */
+        void shutdown() {
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    mPaused = true;
+                    mChoreographer.removeFrameCallback(RenderThread.this);
+                    mRenderer.pause();
+                    mRenderer.release();    //共用的采样结果是按线程分的,要在渲染线程里放掉
+                    if (mSurface != null) {
+                        mSurface.release();
+                        mSurface = null;
+                    }
+                    quit();
+                }
+            });
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mPaused || mSurface == null) {
+                return;
+            }
+            if (!mRenderer.shouldRender(frameTimeNanos)) {     //自动画质降了帧率,这一帧不画,等下一个vsync
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+            final WaveFrameMetrics metrics = mView.mMetrics;
+            if (metrics != null) {
+                metrics.beginCompute();
+            }
+            mRenderer.calculatePath(frameTimeNanos);
+            if (metrics != null) {
+                metrics.endCompute();
+            }
+            drawFrame(metrics);
+            mChoreographer.postFrameCallback(this);
+        }
+
+        private void drawFrame(WaveFrameMetrics metrics) {
+            Canvas canvas;
+            mRenderer.getDirtyRect(mDirty);
+            try {
+                canvas = mSurface.lockCanvas(mDirty);      //返回时mDirty可能被扩大,画布也只裁剪到这个区域
+            } catch (IllegalArgumentException | Surface.OutOfResourcesException e) {
+                Log.w(TAG, "lockCanvas failed, skip this frame", e);
+                return;
+            }
+            if (metrics != null) {
+                metrics.beginDraw();
+            }
+            try {
+                canvas.drawColor(0, PorterDuff.Mode.CLEAR);      //只清掉锁住的区域
+                mRenderer.draw(canvas);
+            } finally {
+                mSurface.unlockCanvasAndPost(canvas);
+            }
+            if (metrics != null) {
+                metrics.endDraw();
+            }
+        }
+    }
+}
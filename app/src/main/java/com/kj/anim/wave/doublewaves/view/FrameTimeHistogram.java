@@ -0,0 +1,124 @@
+package com.kj.anim.wave.doublewaves.view;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title FrameTimeHistogram
+ * @description 流式的耗时直方图(纳秒),记录时不创建对象,可以放在每帧的路径上。
+ * 技术点+注意点:
+ *      1.对数分桶: 每个2的n次方区间再平分成16个桶,相对误差不超过1/16(约6%),0-15ns是精确值。
+ *      2.最大只区分到2^41ns(约36分钟),再大的都算在最后一个桶里,最大值 {@link #getMax()} 是精确的。
+ *      3.百分位取的是所在桶的上界(不超过最大值),宁可报大一点也不报小。
+ * @created 2017/4/14 11:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class FrameTimeHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mSum;
+    private long mMax;
+
+    /**
+     * 记录一个值
+     *
+     * @param valueNanos 耗时,负数按0算
+     */
+    public void record(long valueNanos) {
+        if (valueNanos < 0) {
+            valueNanos = 0;
+        }
+        mCounts[bucketIndex(valueNanos)]++;
+        mTotalCount++;
+        mSum += valueNanos;
+        if (valueNanos > mMax) {
+            mMax = valueNanos;
+        }
+    }
+
+    /**
+     * @param percentile 0-100,比如50、95、99
+     * @return 对应的耗时(纳秒),没有数据时返回0
+     */
+    public long getPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile / 100 * mTotalCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    public long getP95() {
+        return getPercentile(95);
+    }
+
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    public long getMean() {
+        return mTotalCount == 0 ? 0 : mSum / mTotalCount;
+    }
+
+    public long getCount() {
+        return mTotalCount;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mTotalCount = 0;
+        mSum = 0;
+        mMax = 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,293 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveBitmapCache
+ * @description 整个进程共用的浪图片缓存,多个界面、多个浪View用同一张图时只解码一次。
+ * 技术点+注意点:
+ *      1.按 资源id + 目标宽度 + Bitmap.Config + 横向切成几条 作为key,一次解码把所有条都切好。
+ *      2.{@link #acquire} 返回一个引用计数的 {@link Handle},View在 onDetachedFromWindow 里调 {@link Handle#release()}。
+ *      3.引用计数为0的图片不会马上丢掉,放进按字节数限制大小的LRU里,超过 {@link #setMaxBytes 上限} 就从最久没用的开始丢。
+ *        还有人在用的图片不会被丢,所以也不会被recycle。
+ *        解码完之前就没人要了的图片没有交给过任何人,解码完马上recycle。
+ *      4.解码在后台线程做,解码完在主线程回调 {@link OnBitmapReadyListener},在这之前View自己画占位。
+ *      5.除了后台解码,所有方法都只能在主线程调用。
+ *      6.解码见 {@link WaveBitmapDecoder#decodeStrips}: 一条一条地解,单色的条可以只存透明度(ALPHA_8)。
+ *      7.记录所有缓存的图片现在占多少字节、最多的时候(包括解码过程中的临时图片)占多少字节,
+ *        作为 {@link WaveFrameMetrics.MemoryCounter} 报到帧统计里。
+ * @created 2017/4/19 10:15
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveBitmapCache implements WaveFrameMetrics.MemoryCounter {
+
+    /**
+     * 图片解码完成的回调,在主线程
+     */
+    interface OnBitmapReadyListener {
+        /**
+         * @param bands  从上到下切好的每一条,解码失败时为null
+         * @param colors 每一条画的时候用的颜色: ALPHA_8的条只有透明度,要把这个颜色设给画笔;其他条为0
+         */
+        void onBitmapReady(Bitmap[] bands, int[] colors);
+    }
+
+    private static WaveBitmapCache sInstance;
+
+    private final HashMap<Key, Entry> mEntries = new HashMap<>();
+    private final LinkedHashMap<Key, Entry> mUnused = new LinkedHashMap<>(16, 0.75f, true);  //引用计数为0的,按访问顺序
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mDecodeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "WaveBitmapDecoder");
+        }
+    });
+
+    private long mMaxBytes = Runtime.getRuntime().maxMemory() / 8;
+    private long mUnusedBytes;
+    private volatile long mBytes;       //所有解码好的图片,渲染线程也会读
+    private volatile long mPeakBytes;
+
+    private WaveBitmapCache() {
+    }
+
+    static WaveBitmapCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new WaveBitmapCache();
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param maxBytes 没人用的图片最多保留多少字节
+     */
+    void setMaxBytes(long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize();
+    }
+
+    /**
+     * 获取图片,已经有的话马上回调,否则放到后台解码
+     *
+     * @param res         资源
+     * @param resId       图片id
+     * @param targetWidth 目标宽度,小于等于0表示原始宽度
+     * @param config      Bitmap.Config
+     * @param bandCount   横向平均切成几条
+     * @param listener    图片好了以后回调
+     * @return 引用,不用了一定要release
+     */
+    Handle acquire(Resources res, int resId, int targetWidth, Bitmap.Config config, int bandCount, OnBitmapReadyListener listener) {
+        Key key = new Key(resId, targetWidth, config, bandCount);
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            mEntries.put(key, entry);
+            decode(res, entry);
+        } else if (entry.refCount == 0) {
+            mUnused.remove(key);
+            mUnusedBytes -= entry.byteCount;
+        }
+        entry.refCount++;
+        Handle handle = new Handle(entry, listener);
+        if (entry.ready) {
+            listener.onBitmapReady(entry.bands, entry.colors);
+        } else {
+            entry.waiting.add(handle);
+        }
+        return handle;
+    }
+
+    private void decode(final Resources res, final Entry entry) {
+        final Key key = entry.key;
+        mDecodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final WaveBitmapDecoder.Strips strips = WaveBitmapDecoder.decodeStrips(res, key.resId, key.width,
+                        key.config, Math.max(1, key.bandCount));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDecoded(entry, strips);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onDecoded(Entry entry, WaveBitmapDecoder.Strips strips) {
+        if (strips != null) {
+            mPeakBytes = Math.max(mPeakBytes, mBytes + strips.peakBytes);   //解码时已经缓存的 + 解码过程中最多的
+        }
+        if (mEntries.get(entry.key) != entry) {
+            if (strips != null) {
+                WaveBitmapDecoder.recycle(strips.bands);    //解码过程中被丢掉了,还没交给过任何人,直接recycle不等GC
+            }
+            return;
+        }
+        Bitmap[] bands = strips == null ? null : strips.bands;
+        entry.ready = true;
+        entry.bands = bands;
+        if (strips != null) {
+            entry.colors = strips.colors;
+            entry.byteCount = strips.getByteCount();
+            mBytes += entry.byteCount;
+        }
+        if (entry.refCount == 0) {
+            markUnused(entry);
+        }
+        ArrayList<Handle> waiting = entry.waiting;
+        entry.waiting = new ArrayList<>(0);
+        for (Handle handle : waiting) {
+            if (!handle.released) {
+                handle.listener.onBitmapReady(bands, entry.colors);
+            }
+        }
+        if (bands == null) {
+            mEntries.remove(entry.key);     //解码失败的不缓存,下次再试
+            mUnused.remove(entry.key);
+        }
+    }
+
+    private void release(Handle handle) {
+        Entry entry = handle.entry;
+        entry.waiting.remove(handle);
+        if (--entry.refCount == 0 && mEntries.get(entry.key) == entry) {
+            if (entry.ready) {
+                markUnused(entry);
+            } else {
+                mEntries.remove(entry.key);     //还没解码完就没人要了,解码完直接丢掉
+            }
+        }
+    }
+
+    private void markUnused(Entry entry) {
+        mUnused.put(entry.key, entry);
+        mUnusedBytes += entry.byteCount;
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<Key, Entry>> iterator = mUnused.entrySet().iterator();
+        while (mUnusedBytes > mMaxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            mEntries.remove(eldest.key);
+            mUnusedBytes -= eldest.byteCount;
+            mBytes -= eldest.byteCount;
+        }
+    }
+
+    /**
+     * @return 所有缓存的图片现在占的字节数,包括没人用但还没丢掉的
+     */
+    @Override
+    public long getBitmapBytes() {
+        return mBytes;
+    }
+
+    /**
+     * @return 缓存的图片最多的时候占的字节数,包括解码过程中的临时图片
+     */
+    @Override
+    public long getPeakBitmapBytes() {
+        return mPeakBytes;
+    }
+
+    /**
+     * 图片的引用,不用了调 {@link #release()}
+     */
+    static final class Handle {
+        private final Entry entry;
+        private final OnBitmapReadyListener listener;
+        private boolean released;
+
+        private Handle(Entry entry, OnBitmapReadyListener listener) {
+            this.entry = entry;
+            this.listener = listener;
+        }
+
+        /**
+         * @return 从上到下切好的每一条,还没解码好时为null
+         */
+        Bitmap[] getBands() {
+            return entry.bands;
+        }
+
+        void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            getInstance().release(this);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        int refCount;
+        boolean ready;
+        Bitmap[] bands;
+        int[] colors;
+        long byteCount;
+        ArrayList<Handle> waiting = new ArrayList<>(2);
+
+        Entry(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+        final int resId;
+        final int width;
+        final Bitmap.Config config;
+        final int bandCount;
+
+        Key(int resId, int width, Bitmap.Config config, int bandCount) {
+            this.resId = resId;
+            this.width = width;
+            this.config = config;
+            this.bandCount = bandCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return resId == key.resId && width == key.width && bandCount == key.bandCount && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + width;
+            result = 31 * result + (config != null ? config.hashCode() : 0);
+            result = 31 * result + bandCount;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveBitmapDecoder
+ * @description 按View的实际宽度解码浪的图片,而不是按1920的设计稿原样解码。
+ * 技术点+注意点:
+ *      1.先只解码尺寸(inJustDecodeBounds),算出不小于目标宽度的最大 inSampleSize,解码时就缩小,省内存也省时间。
+ *      2.整张解码({@link #decodeToWidth})时,剩下的缩放交给 inScaled + inDensity/inTargetDensity 在解码时一起做;
+ *        区域解码不认 inDensity,剩下的缩放用 Canvas.drawBitmap(带过滤)直接画进最终那一条,只缩放一次,不用 createScaledBitmap。
+ *      3.宽高按同一个比例缩放,保持图片原来的比例,这样横向平铺还是无缝的。
+ *      4.上下切成几条的图用 {@link #decodeStrips} 一条一条地解码(BitmapRegionDecoder),不再先解出整张图再复制出每一条,
+ *        解码用的ARGB缓冲用 inBitmap 给每一条复用(要不要缩放都一样);任何时候最多只多出这一条的临时内存。
+ *      5.要求 ALPHA_8 时,单色的条({@link WaveSingleColor})只存透明度,内存是ARGB_8888的1/4,颜色另外给出,画的时候设给画笔;
+ *        直接画进ALPHA_8的图,不再先出一张ARGB的再 extractAlpha;
+ *        不是单色的条还是ARGB_8888。
+ * @created 2017/4/17 10:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveBitmapDecoder {
+
+    private static final String TAG = "WaveBitmapDecoder";
+
+    static final int CONFIG_ARGB_8888 = 0;      //和属性 wave_bitmap_config 的值一样
+    static final int CONFIG_ALPHA_8 = 1;
+
+    /**
+     * 切好的几条
+     */
+    static final class Strips {
+        /**
+         * 从上到下的每一条
+         */
+        final Bitmap[] bands;
+        /**
+         * ALPHA_8的条画的时候用的颜色(不透明),其他条为 {@link WaveSingleColor#NONE}
+         */
+        final int[] colors;
+        /**
+         * 解码过程中同时存在的图片最多占多少字节,包括临时的
+         */
+        long peakBytes;
+
+        Strips(int bandCount) {
+            bands = new Bitmap[bandCount];
+            colors = new int[bandCount];
+        }
+
+        long getByteCount() {
+            long bytes = 0;
+            for (Bitmap band : bands) {
+                if (band != null) {
+                    bytes += band.getAllocationByteCount();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private WaveBitmapDecoder() {
+    }
+
+    /**
+     * @param value 属性 wave_bitmap_config 的值
+     * @return 对应的Bitmap.Config
+     */
+    static Bitmap.Config toConfig(int value) {
+        return value == CONFIG_ALPHA_8 ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * 解码资源图片,缩放到指定宽度,再上下平均切成几条
+     *
+     * @param res         资源
+     * @param resId       图片id(放在drawable-nodpi下)
+     * @param targetWidth 目标宽度,小于等于0表示原始宽度
+     * @param config      ARGB_8888,或者 ALPHA_8(单色的条只存透明度)
+     * @param bandCount   切成几条
+     * @return 切好的几条,解码失败返回null
+     */
+    static Strips decodeStrips(Resources res, int resId, int targetWidth, Bitmap.Config config, int bandCount) {
+        BitmapRegionDecoder decoder = openRegionDecoder(res, resId);
+        if (decoder == null) {
+            return decodeSheet(res, resId, targetWidth, config, bandCount);
+        }
+        try {
+            return decodeRegions(decoder, targetWidth, config, bandCount);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private static BitmapRegionDecoder openRegionDecoder(Resources res, int resId) {
+        InputStream in = null;
+        try {
+            in = res.openRawResource(resId);
+            return BitmapRegionDecoder.newInstance(in, false);
+        } catch (IOException | Resources.NotFoundException e) {
+            Log.w(TAG, "region decoder unavailable, decoding the whole image", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static Strips decodeRegions(BitmapRegionDecoder decoder, int targetWidth, Bitmap.Config config, int bandCount) {
+        int sourceWidth = decoder.getWidth();
+        int bandHeight = decoder.getHeight() / bandCount;
+        if (sourceWidth <= 0 || bandHeight <= 0) {
+            return null;
+        }
+        if (targetWidth <= 0) {
+            targetWidth = sourceWidth;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;    //ALPHA_8也先按ARGB解码,确认是单色以后再取透明度
+        options.inSampleSize = calculateInSampleSize(sourceWidth, targetWidth);
+        options.inMutable = true;                               //inBitmap要求可变
+
+        Strips strips = new Strips(bandCount);
+        WaveSingleColor singleColor = new WaveSingleColor();
+        Rect region = new Rect();
+        Rect target = new Rect();
+        Canvas canvas = new Canvas();
+        Paint filterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        Bitmap buffer = null;       //解码出来的一条(ARGB),每一条都复用它,不管要不要缩放
+        long doneBytes = 0;
+        for (int i = 0; i < bandCount; i++) {
+            region.set(0, i * bandHeight, sourceWidth, (i + 1) * bandHeight);
+            Bitmap decoded = decodeRegion(decoder, region, options, buffer);
+            if (decoded == null) {
+                recycle(strips.bands);
+                if (buffer != null) {
+                    buffer.recycle();
+                }
+                return null;
+            }
+            if (buffer != null && decoded != buffer) {
+                buffer.recycle();
+            }
+            buffer = decoded;
+
+            int color = config == Bitmap.Config.ALPHA_8 ? findSingleColor(buffer, singleColor) : WaveSingleColor.NONE;
+            int height = Math.max(1, Math.round(buffer.getHeight() * (float) targetWidth / buffer.getWidth()));
+            Bitmap band = Bitmap.createBitmap(targetWidth, height,
+                    color != WaveSingleColor.NONE ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888);
+            target.set(0, 0, targetWidth, height);
+            canvas.setBitmap(band);
+            canvas.drawBitmap(buffer, null, target, filterPaint);   //缩放只做这一次;单色的条画进ALPHA_8只留透明度
+            canvas.setBitmap(null);
+
+            strips.bands[i] = band;
+            strips.colors[i] = color;
+            doneBytes += band.getAllocationByteCount();
+            strips.peakBytes = Math.max(strips.peakBytes, doneBytes + buffer.getAllocationByteCount());
+        }
+        buffer.recycle();
+        return strips;
+    }
+
+    /**
+     * inBitmap 复用不了时(比如尺寸不够)会抛异常,这时候不复用再解一次
+     */
+    private static Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect region, BitmapFactory.Options options, Bitmap buffer) {
+        options.inBitmap = buffer;
+        try {
+            return decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            return decoder.decodeRegion(region, options);
+        } finally {
+            options.inBitmap = null;
+        }
+    }
+
+    private static int findSingleColor(Bitmap band, WaveSingleColor singleColor) {
+        singleColor.reset();
+        int width = band.getWidth();
+        int[] row = new int[width];
+        for (int y = 0, height = band.getHeight(); y < height; y++) {
+            band.getPixels(row, 0, width, 0, y, width, 1);
+            if (!singleColor.addRow(row, width)) {
+                return WaveSingleColor.NONE;
+            }
+        }
+        return singleColor.getColor();
+    }
+
+    /**
+     * 区域解码用不了时的退路: 解出整张再切,都是ARGB_8888
+     */
+    private static Strips decodeSheet(Resources res, int resId, int targetWidth, Bitmap.Config config, int bandCount) {
+        Bitmap sheet = decodeToWidth(res, resId, targetWidth,
+                config == Bitmap.Config.ALPHA_8 ? Bitmap.Config.ARGB_8888 : config);
+        if (sheet == null) {
+            return null;
+        }
+        Strips strips = new Strips(bandCount);
+        if (bandCount <= 1) {
+            strips.bands[0] = sheet;
+            strips.peakBytes = sheet.getAllocationByteCount();
+            return strips;
+        }
+        int bandHeight = sheet.getHeight() / bandCount;
+        for (int i = 0; i < bandCount; i++) {
+            strips.bands[i] = Bitmap.createBitmap(sheet, 0, i * bandHeight, sheet.getWidth(), bandHeight);
+        }
+        strips.peakBytes = sheet.getAllocationByteCount() + strips.getByteCount();
+        sheet.recycle();
+        return strips;
+    }
+
+    static void recycle(Bitmap[] bitmaps) {
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    /**
+     * 解码资源图片,缩放到指定宽度
+     *
+     * @param res         资源
+     * @param resId       图片id(放在drawable-nodpi下)
+     * @param targetWidth 目标宽度,一般是View的宽度,小于等于0表示原始宽度
+     * @param config      解码的Bitmap.Config
+     * @return 宽度为targetWidth的图片,解码失败返回null
+     */
+    static Bitmap decodeToWidth(Resources res, int resId, int targetWidth, Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+        int sourceWidth = options.outWidth;
+        if (sourceWidth <= 0) {
+            return null;
+        }
+        if (targetWidth <= 0) {
+            targetWidth = sourceWidth;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = config;
+        options.inSampleSize = calculateInSampleSize(sourceWidth, targetWidth);
+        options.inScaled = true;
+        options.inDensity = sourceWidth;                                 //解码后宽度 = sourceWidth / inSampleSize,
+        options.inTargetDensity = targetWidth * options.inSampleSize;    //再乘 inTargetDensity / inDensity 正好等于 targetWidth
+        return BitmapFactory.decodeResource(res, resId, options);
+    }
+
+    /**
+     * @return 2的n次方,保证 sourceWidth / inSampleSize 不小于 targetWidth
+     */
+    static int calculateInSampleSize(int sourceWidth, int targetWidth) {
+        int inSampleSize = 1;
+        while (sourceWidth / (inSampleSize * 2) >= targetWidth) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.view.Choreographer;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveChoreographerScheduler
+ * @description {@link WaveFrameClock} 在手机上用的vsync来源: 向主线程的Choreographer注册FrameCallback,
+ *              整个进程只有这一个FrameCallback,同一时刻最多注册一次(由 {@link WaveFrameClock} 保证)。
+ * @created 2017/5/4 14:10
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveChoreographerScheduler implements WaveFrameClock.FrameScheduler, Choreographer.FrameCallback {
+
+    private WaveFrameClock mClock;
+
+    @Override
+    public void postFrame(WaveFrameClock clock) {
+        mClock = clock;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mClock.doFrame(frameTimeNanos);
+    }
+}
@@ -0,0 +1,129 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import java.util.ArrayList;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveDeviceState
+ * @description 整个进程共用的屏幕和省电模式状态,所有浪共用一个广播接收器。
+ * 技术点+注意点:
+ *      1.有监听时才注册广播,最后一个监听移除时注销,用的是ApplicationContext,不会泄漏Activity。
+ *      2.灭屏/亮屏: ACTION_SCREEN_OFF / ACTION_SCREEN_ON,只能动态注册。
+ *      3.省电模式: ACTION_POWER_SAVE_MODE_CHANGED,5.0以上才有,以下的系统一直当作没开省电模式。
+ *      4.只能在主线程调用,回调也在主线程。
+ * @created 2017/4/27 11:05
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveDeviceState {
+
+    /**
+     * 屏幕或者省电模式变化的回调
+     */
+    interface OnDeviceStateChangedListener {
+        void onDeviceStateChanged(boolean screenOn, boolean powerSave);
+    }
+
+    private static WaveDeviceState sInstance;
+
+    private final Context mContext;
+    private final PowerManager mPowerManager;
+    private final ArrayList<OnDeviceStateChangedListener> mListeners = new ArrayList<>();
+
+    private boolean mScreenOn = true;
+    private boolean mPowerSave;
+    private boolean mRegistered;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                mScreenOn = false;
+            } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                mScreenOn = true;
+            } else {
+                mPowerSave = readPowerSave();
+            }
+            dispatch();
+        }
+    };
+
+    private WaveDeviceState(Context context) {
+        mContext = context.getApplicationContext();
+        mPowerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+    }
+
+    static WaveDeviceState getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WaveDeviceState(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * 加监听,加完以后马上用当前的状态回调一次
+     */
+    void addListener(OnDeviceStateChangedListener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        if (!mRegistered) {
+            register();
+        }
+        mListeners.add(listener);
+        listener.onDeviceStateChanged(mScreenOn, mPowerSave);
+    }
+
+    void removeListener(OnDeviceStateChangedListener listener) {
+        mListeners.remove(listener);
+        if (mListeners.isEmpty() && mRegistered) {
+            mContext.unregisterReceiver(mReceiver);
+            mRegistered = false;
+        }
+    }
+
+    private void register() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        }
+        mContext.registerReceiver(mReceiver, filter);
+        mRegistered = true;
+        mScreenOn = readScreenOn();     //没注册的这段时间收不到广播,重新读一次
+        mPowerSave = readPowerSave();
+    }
+
+    @SuppressWarnings("deprecation")
+    private boolean readScreenOn() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+            return mPowerManager.isInteractive();
+        }
+        return mPowerManager.isScreenOn();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private boolean readPowerSave() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && mPowerManager.isPowerSaveMode();
+    }
+
+    private void dispatch() {
+        //回调里可能会移除监听,倒着遍历
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            if (i < mListeners.size()) {
+                mListeners.get(i).onDeviceStateChanged(mScreenOn, mPowerSave);
+            }
+        }
+    }
+}
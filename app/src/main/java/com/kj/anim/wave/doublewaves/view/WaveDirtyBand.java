@@ -0,0 +1,97 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WavesSampler;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveDirtyBand
+ * @description 每帧真正会变的横条 [top, bottom),横条以外的像素每帧都一样。
+ *              浪只是左右走,所以一行像素如果从左到右都一样,平移以后还是一样,这一行就不用重画;
+ *              计算方式是浪尖最高处到浪谷最低处,图片方式是图片里左右不一样的那些行。
+ *              View只 invalidate 这一条,横条下面的部分交给 {@link WaveStaticColumn} 缓存。
+ * @created 2017/5/2 10:10
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveDirtyBand {
+
+    private static final int EDGE = 1;      //抗锯齿会往外多画半个像素,上下各留一行
+
+    private int mTop;
+    private int mBottom;
+
+    int getTop() {
+        return mTop;
+    }
+
+    int getBottom() {
+        return mBottom;
+    }
+
+    boolean isEmpty() {
+        return mBottom <= mTop;
+    }
+
+    void setEmpty() {
+        mTop = 0;
+        mBottom = 0;
+    }
+
+    /**
+     * 把 [top, bottom) 合并进来
+     */
+    void union(int top, int bottom) {
+        if (bottom <= top) {
+            return;
+        }
+        if (isEmpty()) {
+            mTop = top;
+            mBottom = bottom;
+            return;
+        }
+        mTop = Math.min(mTop, top);
+        mBottom = Math.max(mBottom, bottom);
+    }
+
+    /**
+     * 计算方式: 所有层浪尖的最高处到浪谷的最低处,限制在 [0, height) 里
+     */
+    void setFromSampler(WavesSampler sampler, int height) {
+        setEmpty();
+        for (int l = 0; l < sampler.getLayerCount(); l++) {
+            union((int) Math.floor(sampler.getCrestTop(l)) - EDGE, (int) Math.ceil(sampler.getTroughBottom(l)) + EDGE);
+        }
+        clamp(height);
+    }
+
+    /**
+     * 图片方式: 把第y行(左右不一样的一行)合并进来
+     */
+    void includeRow(int y) {
+        union(y, y + 1);
+    }
+
+    void clamp(int height) {
+        mTop = Math.max(mTop, 0);
+        mBottom = Math.min(mBottom, height);
+        if (mBottom <= mTop) {
+            setEmpty();
+        }
+    }
+
+    /**
+     * @param row    一行像素
+     * @param length 有效长度
+     * @return 这一行从左到右是不是同一个颜色,是的话左右平移以后还是一样
+     */
+    static boolean isUniformRow(int[] row, int length) {
+        int first = row[0];
+        for (int x = 1; x < length; x++) {
+            if (row[x] != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
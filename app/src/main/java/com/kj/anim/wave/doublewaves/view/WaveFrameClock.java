@@ -0,0 +1,134 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WavePhase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveFrameClock
+ * @description 所有浪共用的帧时钟,由主线程的Choreographer驱动。
+ * 技术点+注意点:
+ *      1.不管屏幕上有多少个浪,整个进程只向Choreographer注册一个FrameCallback,每个vsync把帧时间分发给所有监听者。
+ *      2.分发的是Choreographer给的帧时间(纳秒),浪的位置要根据时间算(见 {@link WavePhase}),
+ *        不要按回调次数累加,否则在60Hz/90Hz/120Hz的屏幕上速度不一样。
+ *      3.只能在主线程调用。没有监听者时自动停止,不会空转。
+ *      4.向Choreographer注册这件事交给 {@link FrameScheduler}(见 {@link WaveChoreographerScheduler}),
+ *        这个类本身不依赖android类,可以在JVM上数一下到底注册了多少个监听、每个vsync请求了几次回调。
+ * @created 2017/4/12 10:05
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveFrameClock {
+
+    /**
+     * 帧回调
+     */
+    interface OnFrameListener {
+        /**
+         * @param frameTimeNanos 本帧的vsync时间,和 System.nanoTime() 同一个时间基准
+         */
+        void onFrame(long frameTimeNanos);
+    }
+
+    /**
+     * 请求下一个vsync的回调,到时候调用 {@link #doFrame(long)}
+     */
+    interface FrameScheduler {
+        void postFrame(WaveFrameClock clock);
+    }
+
+    private static WaveFrameClock sInstance;
+
+    private final FrameScheduler mScheduler;
+    private final List<OnFrameListener> mListeners = new ArrayList<>();
+    private boolean mDispatching;
+    private boolean mHasRemoved;    //分发过程中有监听者被移除,分发完再清理
+    private boolean mPosted;
+
+    WaveFrameClock(FrameScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    static WaveFrameClock getInstance() {
+        if (sInstance == null) {
+            sInstance = new WaveFrameClock(new WaveChoreographerScheduler());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 添加监听,已经添加过的不会重复添加
+     */
+    void addListener(OnFrameListener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (!mPosted) {
+            mPosted = true;
+            mScheduler.postFrame(this);
+        }
+    }
+
+    void removeListener(OnFrameListener listener) {
+        int index = mListeners.indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        if (mDispatching) {
+            mListeners.set(index, null);
+            mHasRemoved = true;
+        } else {
+            mListeners.remove(index);
+        }
+    }
+
+    boolean hasListener(OnFrameListener listener) {
+        return mListeners.contains(listener);
+    }
+
+    /**
+     * @return 现在收帧的监听者个数,分发过程中被移除的不算
+     */
+    int getListenerCount() {
+        int count = 0;
+        for (int i = 0, size = mListeners.size(); i < size; i++) {
+            if (mListeners.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 一个vsync,由 {@link FrameScheduler} 调用
+     *
+     * @param frameTimeNanos 本帧的vsync时间
+     */
+    void doFrame(long frameTimeNanos) {
+        mDispatching = true;
+        for (int i = 0, size = mListeners.size(); i < size; i++) {   //分发过程中新加的监听下一帧才开始收到
+            OnFrameListener listener = mListeners.get(i);
+            if (listener != null) {
+                listener.onFrame(frameTimeNanos);
+            }
+        }
+        mDispatching = false;
+        if (mHasRemoved) {
+            mHasRemoved = false;
+            for (int i = mListeners.size() - 1; i >= 0; i--) {
+                if (mListeners.get(i) == null) {
+                    mListeners.remove(i);
+                }
+            }
+        }
+        if (mListeners.isEmpty()) {
+            mPosted = false;
+        } else {
+            mScheduler.postFrame(this);
+        }
+    }
+}
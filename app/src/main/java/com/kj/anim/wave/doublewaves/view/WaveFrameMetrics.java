@@ -0,0 +1,238 @@
+package com.kj.anim.wave.doublewaves.view;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveFrameMetrics
+ * @description 浪的帧耗时统计,四种实现方式都往这里报,方便直接对比。
+ *              每帧分两段: 计算(compute)和绘制(draw),total = compute + draw。
+ * 技术点+注意点:
+ *      1.用 System.nanoTime() 计时,不再用 currentTimeMillis 打log(大部分帧都是0毫秒,而且打log本身比画还慢)。
+ *      2.没有设置监听时View里不会创建本类,每帧只多一次判空,没有任何开销。
+ *      3.计算+绘制超过帧预算(默认16.67ms)的算一次掉帧(jank)。
+ *      4.每 {@link #setReportInterval 若干帧} 回调一次监听,回调在记录数据的线程里
+ *        (DoubleWavesTextureView 是渲染线程,其他都是主线程),回调之后数据不清零,需要的话自己调 {@link #reset()}。
+ *      5.浪图片占的内存(现在的和最多时的)由 {@link MemoryCounter} 给出,Android上是进程共用的 WaveBitmapCache。
+ * @created 2017/4/14 14:05
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveFrameMetrics {
+
+    /**
+     * 统计回调
+     */
+    public interface OnFrameMetricsListener {
+        void onFrameMetrics(WaveFrameMetrics metrics);
+    }
+
+    /**
+     * 当前线程分配对象的计数器,Android上用 Debug.getThreadAllocCount()
+     */
+    interface AllocationCounter {
+        long getAllocationCount();
+    }
+
+    /**
+     * 浪图片占用的内存
+     */
+    interface MemoryCounter {
+        /**
+         * @return 现在占的字节数
+         */
+        long getBitmapBytes();
+
+        /**
+         * @return 最多的时候占的字节数,包括解码过程中的临时图片
+         */
+        long getPeakBitmapBytes();
+    }
+
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 1000000000L / 60;
+    public static final int DEFAULT_REPORT_INTERVAL = 120;
+
+    private final String mSource;
+    private final OnFrameMetricsListener mListener;
+    private final AllocationCounter mAllocationCounter;
+    private final MemoryCounter mMemoryCounter;
+
+    private final FrameTimeHistogram mCompute = new FrameTimeHistogram();
+    private final FrameTimeHistogram mDraw = new FrameTimeHistogram();
+    private final FrameTimeHistogram mTotal = new FrameTimeHistogram();
+
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private int mReportInterval = DEFAULT_REPORT_INTERVAL;
+
+    private long mFrameCount;
+    private long mJankFrameCount;
+    private long mAllocationCount;
+
+    //当前帧
+    private long mPhaseStart;
+    private long mAllocationStart;
+    private long mFrameCompute;
+    private long mFrameAllocations;
+    private int mFramesSinceReport;
+
+    /**
+     * @param source            统计的来源,一般是View的类名
+     * @param listener          回调
+     * @param allocationCounter 分配计数器,可以为null(不统计分配)
+     */
+    WaveFrameMetrics(String source, OnFrameMetricsListener listener, AllocationCounter allocationCounter) {
+        this(source, listener, allocationCounter, null);
+    }
+
+    /**
+     * @param memoryCounter 图片内存,可以为null(不统计内存)
+     */
+    WaveFrameMetrics(String source, OnFrameMetricsListener listener, AllocationCounter allocationCounter,
+                     MemoryCounter memoryCounter) {
+        mSource = source;
+        mListener = listener;
+        mAllocationCounter = allocationCounter;
+        mMemoryCounter = memoryCounter;
+    }
+
+    /**
+     * 计算开始
+     */
+    void beginCompute() {
+        begin();
+    }
+
+    /**
+     * 计算结束。一帧里如果计算了多次(中间没有draw),时间累加
+     */
+    void endCompute() {
+        mFrameCompute += System.nanoTime() - mPhaseStart;
+        end();
+    }
+
+    /**
+     * 绘制开始
+     */
+    void beginDraw() {
+        begin();
+    }
+
+    /**
+     * 绘制结束,同时结束这一帧
+     */
+    void endDraw() {
+        long draw = System.nanoTime() - mPhaseStart;
+        end();
+        long total = mFrameCompute + draw;
+        mCompute.record(mFrameCompute);
+        mDraw.record(draw);
+        mTotal.record(total);
+        mFrameCount++;
+        if (total > mFrameBudgetNanos) {
+            mJankFrameCount++;
+        }
+        mAllocationCount += mFrameAllocations;
+        mFrameCompute = 0;
+        mFrameAllocations = 0;
+        if (++mFramesSinceReport >= mReportInterval) {
+            mFramesSinceReport = 0;
+            mListener.onFrameMetrics(this);
+        }
+    }
+
+    private void begin() {
+        if (mAllocationCounter != null) {
+            mAllocationStart = mAllocationCounter.getAllocationCount();
+        }
+        mPhaseStart = System.nanoTime();
+    }
+
+    private void end() {
+        if (mAllocationCounter != null) {
+            mFrameAllocations += mAllocationCounter.getAllocationCount() - mAllocationStart;
+        }
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset() {
+        mCompute.reset();
+        mDraw.reset();
+        mTotal.reset();
+        mFrameCount = 0;
+        mJankFrameCount = 0;
+        mAllocationCount = 0;
+        mFramesSinceReport = 0;
+    }
+
+    /**
+     * @param frameBudgetNanos 每帧的预算,超过算掉帧
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * @param frames 每多少帧回调一次
+     */
+    public void setReportInterval(int frames) {
+        mReportInterval = frames < 1 ? 1 : frames;
+    }
+
+    public String getSource() {
+        return mSource;
+    }
+
+    public FrameTimeHistogram getComputeHistogram() {
+        return mCompute;
+    }
+
+    public FrameTimeHistogram getDrawHistogram() {
+        return mDraw;
+    }
+
+    public FrameTimeHistogram getTotalHistogram() {
+        return mTotal;
+    }
+
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getJankFrameCount() {
+        return mJankFrameCount;
+    }
+
+    /**
+     * @return 计算和绘制过程中分配的对象个数,没有计数器时为0
+     */
+    public long getAllocationCount() {
+        return mAllocationCount;
+    }
+
+    /**
+     * @return 浪图片现在占的字节数,没有计数器时为0
+     */
+    public long getBitmapBytes() {
+        return mMemoryCounter != null ? mMemoryCounter.getBitmapBytes() : 0;
+    }
+
+    /**
+     * @return 浪图片最多的时候占的字节数,没有计数器时为0
+     */
+    public long getPeakBitmapBytes() {
+        return mMemoryCounter != null ? mMemoryCounter.getPeakBitmapBytes() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return mSource + " frames=" + mFrameCount + " jank=" + mJankFrameCount + " allocations=" + mAllocationCount
+                + " bitmap=" + getBitmapBytes() / 1024 + "KB peak=" + getPeakBitmapBytes() / 1024 + "KB"
+                + " compute[" + format(mCompute) + "] draw[" + format(mDraw) + "] total[" + format(mTotal) + "]";
+    }
+
+    private static String format(FrameTimeHistogram histogram) {
+        return "p50=" + histogram.getP50() / 1000 + "us p95=" + histogram.getP95() / 1000
+                + "us p99=" + histogram.getP99() / 1000 + "us max=" + histogram.getMax() / 1000 + "us";
+    }
+}
@@ -0,0 +1,132 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveLifecycleController
+ * @description 所有浪共用的生命周期控制: 看不见的时候不动,看得见了从停下的相位接着动。
+ *              以下任何一种情况都暂停,全部解除才恢复(规则见 {@link WaveRunState}):
+ *                  1.View不在window上 (OnAttachStateChangeListener,View不用自己重写onDetachedFromWindow)
+ *                  2.window不可见,比如被别的Activity完全盖住 (View转发 onWindowVisibilityChanged)
+ *                  3.自己或者父View是INVISIBLE/GONE (View转发 onVisibilityChanged)
+ *                  4.被滚出屏幕或者被父View裁掉 (滚动和布局变化时用 getGlobalVisibleRect 判断)
+ *                  5.灭屏、省电模式 ({@link WaveDeviceState})
+ *                  6.View自己还没准备好 ({@link #setIdle})
+ *              不管的情况: 同一个window里被兄弟View(比如盖在上面的不透明布局)完全挡住。getGlobalVisibleRect 只看父View的裁剪,
+ *              不看兄弟View,要判断得在每次布局后把上面的View一个个和自己比,代价比省下的帧大;这种情况由用这个浪的页面自己设成INVISIBLE。
+ *              用法: View里new一个,传进 动/不动 的回调;不动时回调里要暂停相位(WavePhase.pause),恢复后就能接着原来的位置走。
+ *              注意点: 只能在主线程使用。
+ * @created 2017/4/27 11:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveLifecycleController implements View.OnAttachStateChangeListener,
+        ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener,
+        WaveDeviceState.OnDeviceStateChangedListener {
+
+    private final View mView;
+    private final WaveRunState mState;
+    private final Rect mVisibleRect = new Rect();
+
+    private ViewTreeObserver mObserver;     //attach时的那个,detach时从它上面移除
+
+    /**
+     * @param view     要控制的浪
+     * @param listener 动/不动 切换的回调
+     */
+    WaveLifecycleController(View view, WaveRunState.OnRunStateChangedListener listener) {
+        mView = view;
+        mState = new WaveRunState(listener);
+        view.addOnAttachStateChangeListener(this);
+        if (view.isAttachedToWindow()) {
+            onViewAttachedToWindow(view);
+        }
+    }
+
+    /**
+     * @return 现在是不是在动
+     */
+    boolean isRunning() {
+        return mState.isRunning();
+    }
+
+    /**
+     * View自己还没有可以动的东西时设为true,比如图片方式还没开始过动画
+     */
+    void setIdle(boolean idle) {
+        mState.setPaused(WaveRunState.REASON_IDLE, idle);
+    }
+
+    /**
+     * 在View的 onWindowVisibilityChanged 里调用
+     */
+    void onWindowVisibilityChanged(int visibility) {
+        mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, visibility != View.VISIBLE);
+    }
+
+    /**
+     * 在View的 onVisibilityChanged 里调用,自己和任何一个父View的可见性变化都会走到这里
+     */
+    void onVisibilityChanged() {
+        updateVisibility();
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        mObserver = v.getViewTreeObserver();
+        mObserver.addOnScrollChangedListener(this);
+        mObserver.addOnGlobalLayoutListener(this);
+        mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, v.getWindowVisibility() != View.VISIBLE);
+        updateVisibility();
+        if (!v.isInEditMode()) {        //可视化编辑器里不能注册广播
+            WaveDeviceState.getInstance(v.getContext()).addListener(this);
+        }
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        mState.setPaused(WaveRunState.REASON_DETACHED, true);
+        if (mObserver != null && mObserver.isAlive()) {
+            mObserver.removeOnScrollChangedListener(this);
+            mObserver.removeOnGlobalLayoutListener(this);
+        }
+        mObserver = null;
+        if (!v.isInEditMode()) {
+            WaveDeviceState.getInstance(v.getContext()).removeListener(this);
+        }
+    }
+
+    @Override
+    public void onScrollChanged() {
+        updateOnScreen();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        updateVisibility();
+    }
+
+    @Override
+    public void onDeviceStateChanged(boolean screenOn, boolean powerSave) {
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, !screenOn);
+        mState.setPaused(WaveRunState.REASON_POWER_SAVE, powerSave);
+    }
+
+    private void updateVisibility() {
+        mState.setPaused(WaveRunState.REASON_VIEW_HIDDEN, !mView.isShown());
+        updateOnScreen();
+    }
+
+    /**
+     * getGlobalVisibleRect 在一个像素都看不到时返回false,还没布局时宽高为0也当作看不到
+     */
+    private void updateOnScreen() {
+        boolean onScreen = mView.getWidth() > 0 && mView.getHeight() > 0 && mView.getGlobalVisibleRect(mVisibleRect);
+        mState.setPaused(WaveRunState.REASON_OFFSCREEN, !onScreen);
+    }
+}
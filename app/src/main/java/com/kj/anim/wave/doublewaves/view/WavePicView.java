@@ -1,37 +1,60 @@
 package com.kj.anim.wave.doublewaves.view;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.util.AttributeSet;
-import android.view.animation.Animation;
-import android.view.animation.LinearInterpolator;
+import android.view.View;
 import android.widget.FrameLayout;
 
+import com.kj.anim.wave.core.WavePhase;
 import com.kj.anim.wave.doublewaves.R;
 
 /**
  * @author kangjian
  * @version 1.0
- * @title WaveViewDraw
+ * @title WavePicView
  * @description 实现图片浪的滚动动画操作
- * 通过动画的方式实现
+ * 通过动画的方式实现,由共用的 {@link WaveFrameClock} 驱动,平移的距离按帧时间算
+ * 什么时候动由 {@link WaveLifecycleController} 决定,找不到两组浪图时不动
+ * 原来每次onLayout都new一个AnimatorSet(两个无限循环的ObjectAnimator)且不取消旧的,重新布局几次就有几组动画在跑;
+ * 现在整个View只有一个帧监听,只在 attach/可见性 变化时加上或移除,布局多少次都不会多
+ * 默认每组浪图放进自己的硬件层({@link #COMPOSITING_HARDWARE_LAYER}),每帧只改translationX,
+ * 子View不重新录制也不重画,java层没有onDraw的工作;窗口没有硬件加速时退回原来每帧重画的方式
  * @created 2017/3/24 22:21
  * @changeRecord [修改记录] <br/>
  */
 
-public class WavePicView extends FrameLayout {
+public class WavePicView extends FrameLayout implements WaveFrameClock.OnFrameListener,
+        WaveRunState.OnRunStateChangedListener {
 
     private static final String TAG = WavePicView.class.getSimpleName();
 
+    /**
+     * 合成方式: 子View不缓存,每帧重画(原来的做法)
+     */
+    public static final int COMPOSITING_SOFTWARE = 0;
+    /**
+     * 合成方式: 每组浪图一个硬件层,只光栅化一次,每帧只在GPU上平移;窗口没有硬件加速时按 {@link #COMPOSITING_SOFTWARE} 画
+     */
+    public static final int COMPOSITING_HARDWARE_LAYER = 1;
+
+    private static final int ANIM_DURATION = 16000;
+    private static final int WAVE_WIDTH = 1920;
+
+    private final WavePhase mTranslation = new WavePhase(WAVE_WIDTH * 1000.0 / ANIM_DURATION, WAVE_WIDTH);  //ANIM_DURATION走完一个屏宽
+
     private String mLeftTag;
     private String mCenterTag;
+    private int mCompositing = COMPOSITING_HARDWARE_LAYER;
 
     private FrameLayout left_WaveView;
     private FrameLayout center_WaveView;
 
+    private WaveFrameMetrics mMetrics;    //没设置监听时为null
+
+    private WaveLifecycleController mLifecycle;
+
     public WavePicView(Context context) {
         super(context);
         initWavePicView();
@@ -53,31 +76,19 @@ public class WavePicView extends FrameLayout {
         this.setClickable(false);
         this.setFocusable(false);
         this.setAnimationCacheEnabled(false);
+        mLifecycle = new WaveLifecycleController(this, this);
+        mLifecycle.setIdle(true);     //找到两组浪图以后才动
     }
 
     protected void init(AttributeSet attrs) {
         TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.WavePicView);
         mLeftTag = typedArray.getString(R.styleable.WavePicView_left_image);
         mCenterTag = typedArray.getString(R.styleable.WavePicView_center_image);
+        mCompositing = typedArray.getInt(R.styleable.WavePicView_wave_compositing, COMPOSITING_HARDWARE_LAYER);
 
         typedArray.recycle();
     }
 
-    /**
-     * 在这里执行动画
-     *
-     * @param changed
-     * @param left
-     * @param top
-     * @param right
-     * @param bottom
-     */
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
-        animateDisplayWave();
-    }
-
     /**
      * 这里找内部控件
      */
@@ -90,26 +101,100 @@ public class WavePicView extends FrameLayout {
         if (mCenterTag != null) {
             center_WaveView = (FrameLayout) findViewWithTag(mCenterTag);
         }
+        if (left_WaveView != null && center_WaveView != null) {
+            left_WaveView.setAnimationCacheEnabled(false);
+            center_WaveView.setAnimationCacheEnabled(false);
+            mLifecycle.setIdle(false);
+        }
     }
 
     /**
-     * 动画
+     * 动画,停下时保存平移的位置,恢复后接着原来的位置走
      */
-    private void animateDisplayWave() {
-        if (left_WaveView != null && center_WaveView != null) {
-            left_WaveView.setAnimationCacheEnabled(false);
-            center_WaveView.setAnimationCacheEnabled(false);
-            ObjectAnimator transX_waveLeft = ObjectAnimator.ofFloat(left_WaveView, "translationX", 0, 1920);
-            ObjectAnimator transX_waveCenter = ObjectAnimator.ofFloat(center_WaveView, "translationX", 0, 1920);
-            transX_waveLeft.setRepeatMode(ValueAnimator.RESTART);
-            transX_waveLeft.setRepeatCount(Animation.INFINITE);
-            transX_waveCenter.setRepeatMode(ValueAnimator.RESTART);
-            transX_waveCenter.setRepeatCount(Animation.INFINITE);
-            AnimatorSet animatorSet = new AnimatorSet();
-            animatorSet.setDuration(16000);
-            animatorSet.setInterpolator(new LinearInterpolator());
-            animatorSet.playTogether(transX_waveLeft, transX_waveCenter);
-            animatorSet.start();
+    @Override
+    public void onRunStateChanged(boolean running) {
+        updateLayers(running);
+        if (running) {
+            WaveFrameClock.getInstance().addListener(this);
+        } else {
+            WaveFrameClock.getInstance().removeListener(this);
+            mTranslation.pause();
+        }
+    }
+
+    /**
+     * 设置合成方式
+     *
+     * @param compositing {@link #COMPOSITING_HARDWARE_LAYER} 或 {@link #COMPOSITING_SOFTWARE}
+     */
+    public void setCompositing(int compositing) {
+        mCompositing = compositing;
+        updateLayers(mLifecycle.isRunning());
+    }
+
+    /**
+     * 动的时候两组浪图各一个硬件层,停下时去掉,释放显存;
+     * 是否硬件加速要attach以后才知道,动的时候一定已经attach了
+     */
+    private void updateLayers(boolean running) {
+        if (left_WaveView == null || center_WaveView == null) {
+            return;
+        }
+        int layerType = running && mCompositing == COMPOSITING_HARDWARE_LAYER && isHardwareAccelerated()
+                ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE;
+        left_WaveView.setLayerType(layerType, null);
+        center_WaveView.setLayerType(layerType, null);
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mLifecycle.onWindowVisibilityChanged(visibility);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mLifecycle != null) {       //构造的时候父类就可能回调,这时候还没创建
+            mLifecycle.onVisibilityChanged();
+        }
+    }
+
+    /**
+     * 设置帧耗时统计的监听,传null关闭统计(关闭后没有任何额外开销)
+     *
+     * @param listener 回调
+     */
+    public void setOnFrameMetricsListener(WaveFrameMetrics.OnFrameMetricsListener listener) {
+        mMetrics = DebugAllocationCounter.createMetrics(TAG, mMetrics, listener);
+    }
+
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginCompute();
+        }
+        float translationX = (float) mTranslation.update(frameTimeNanos);
+        left_WaveView.setTranslationX(translationX);
+        center_WaveView.setTranslationX(translationX);
+        if (metrics != null) {
+            metrics.endCompute();
+        }
+    }
+
+    /**
+     * 子View(两张浪图)的绘制时间算作这一帧的绘制时间
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginDraw();
+        }
+        super.dispatchDraw(canvas);
+        if (metrics != null) {
+            metrics.endDraw();
         }
     }
 }
@@ -0,0 +1,75 @@
+package com.kj.anim.wave.doublewaves.view;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveRunState
+ * @description 浪要不要动,由一组暂停原因决定: 只要还有一个原因在,就不动;所有原因都没了才动。
+ *              {@link WaveLifecycleController} 把View和设备的状态换算成这里的原因,各种方式的浪都用同一套规则。
+ *              只有真正在 动/不动 之间切换时才回调,同一个状态重复设置不会重复回调。
+ * @created 2017/4/27 10:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveRunState {
+
+    /**
+     * 动/不动 切换的回调
+     */
+    interface OnRunStateChangedListener {
+        /**
+         * @param running true开始动,false停下(相位要保存,下次接着走)
+         */
+        void onRunStateChanged(boolean running);
+    }
+
+    static final int REASON_DETACHED = 1;               //不在window上
+    static final int REASON_WINDOW_HIDDEN = 1 << 1;     //window不可见,比如被别的Activity完全盖住、按了home
+    static final int REASON_VIEW_HIDDEN = 1 << 2;       //自己或者某个父View是INVISIBLE/GONE
+    static final int REASON_OFFSCREEN = 1 << 3;         //被滚出屏幕、被父View裁掉,一个像素都看不到
+    static final int REASON_SCREEN_OFF = 1 << 4;        //灭屏
+    static final int REASON_POWER_SAVE = 1 << 5;        //省电模式
+    static final int REASON_IDLE = 1 << 6;              //View自己还没准备好,比如还没开始过动画
+
+    private final OnRunStateChangedListener mListener;
+    private int mPauseReasons = REASON_DETACHED;        //刚创建时还没attach
+    private boolean mRunning;
+
+    WaveRunState(OnRunStateChangedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 加上或者去掉一个暂停原因
+     *
+     * @param reason 一个或多个 REASON_*
+     * @param paused true加上,false去掉
+     */
+    void setPaused(int reason, boolean paused) {
+        int reasons = paused ? (mPauseReasons | reason) : (mPauseReasons & ~reason);
+        if (reasons == mPauseReasons) {
+            return;
+        }
+        mPauseReasons = reasons;
+        boolean running = reasons == 0;
+        if (running != mRunning) {
+            mRunning = running;
+            mListener.onRunStateChanged(running);
+        }
+    }
+
+    boolean isPaused(int reason) {
+        return (mPauseReasons & reason) != 0;
+    }
+
+    /**
+     * @return 现在所有的暂停原因,0表示在动
+     */
+    int getPauseReasons() {
+        return mPauseReasons;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+}
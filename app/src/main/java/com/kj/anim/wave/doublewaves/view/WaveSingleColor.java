@@ -0,0 +1,75 @@
+package com.kj.anim.wave.doublewaves.view;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveSingleColor
+ * @description 判断一条浪图是不是单色(所有不透明的像素RGB都一样),是的话只存透明度(ALPHA_8),画的时候用画笔的颜色。
+ *              一行一行地喂 getPixels 的结果;解码时是预乘的,getPixels 反预乘回来会有舍入误差,越透明误差越大,
+ *              所以用到目前为止最不透明的像素作为颜色,两个像素每个通道允许差 255/alpha1 + 255/alpha2 以内。
+ * @created 2017/5/5 10:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveSingleColor {
+
+    /**
+     * 不是单色,或者全透明
+     */
+    static final int NONE = 0;
+
+    private int mColor = NONE;      //到目前为止最不透明的像素的颜色(不透明),还没遇到时为NONE
+    private int mAlpha;             //这个像素的透明度
+    private boolean mMixed;
+
+    void reset() {
+        mColor = NONE;
+        mAlpha = 0;
+        mMixed = false;
+    }
+
+    /**
+     * @param row    一行像素(非预乘的ARGB)
+     * @param length 有效长度
+     * @return 到目前为止还是单色
+     */
+    boolean addRow(int[] row, int length) {
+        if (mMixed) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int pixel = row[i];
+            int alpha = pixel >>> 24;
+            if (alpha == 0) {
+                continue;
+            }
+            if (mColor != NONE && !isSameColor(mColor, mAlpha, pixel, alpha)) {
+                mMixed = true;
+                return false;
+            }
+            if (alpha > mAlpha) {
+                mColor = pixel | 0xFF000000;
+                mAlpha = alpha;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 单色时为这个颜色(不透明),否则为 {@link #NONE}
+     */
+    int getColor() {
+        return mMixed ? NONE : mColor;
+    }
+
+    private static boolean isSameColor(int color, int colorAlpha, int pixel, int pixelAlpha) {
+        int tolerance = 255 / colorAlpha + 255 / pixelAlpha;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int diff = Math.abs(((color >> shift) & 0xFF) - ((pixel >> shift) & 0xFF));
+            if (diff > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
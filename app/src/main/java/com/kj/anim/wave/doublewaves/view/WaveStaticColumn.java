@@ -0,0 +1,94 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveStaticColumn
+ * @description 浪下面不会变的那一块(背景、浪谷以下的渐变或者图片的下半截)的缓存。
+ * 技术点+注意点:
+ *      1.这一块每一行从左到右都是同一个颜色(见 {@link WaveDirtyBand}),所以只缓存1个像素宽的一列,
+ *        画的时候横向拉伸到View的宽度,不开过滤拉伸是精确的;全屏也只占 4*高度 个字节。
+ *      2.本来每一层都要在这块区域填一遍,缓存以后每帧只画一次位图。
+ *      3.各层先叠到透明的位图里再画到View上,只有所有层都是普通混合(SRC_OVER)时结果才和直接画一样,
+ *        有别的混合模式时调用方不要用本类。
+ *      4.只在尺寸、颜色、画质变化时重建,{@link #release()} 之后下次用时重建。
+ * @created 2017/5/2 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveStaticColumn {
+
+    private Bitmap mBitmap;
+    private final Canvas mCanvas = new Canvas();
+    private final Rect mDst = new Rect();
+    private int mTop;
+    private boolean mValid;
+
+    /**
+     * 开始重建,返回的画布用View的坐标,x只画 [0, 1) 就够了
+     *
+     * @param top    缓存的区域从这一行开始
+     * @param bottom 到这一行结束(不含)
+     * @return 画布,画完调用 {@link #end()};区域为空时返回null
+     */
+    Canvas begin(int top, int bottom) {
+        int height = bottom - top;
+        if (height <= 0) {
+            release();
+            return null;
+        }
+        if (mBitmap == null || mBitmap.getHeight() != height) {
+            if (mBitmap != null) {
+                mBitmap.recycle();
+            }
+            mBitmap = Bitmap.createBitmap(1, height, Bitmap.Config.ARGB_8888);
+        } else {
+            mBitmap.eraseColor(0);
+        }
+        mTop = top;
+        mCanvas.setBitmap(mBitmap);
+        mCanvas.save();
+        mCanvas.translate(0, -top);
+        return mCanvas;
+    }
+
+    void end() {
+        mCanvas.restore();
+        mCanvas.setBitmap(null);
+        mValid = true;
+    }
+
+    boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * 标记为需要重建,位图留着下次复用
+     */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * 横向拉伸到 [0, width)
+     */
+    void draw(Canvas canvas, int width) {
+        if (!mValid) {
+            return;
+        }
+        mDst.set(0, mTop, width, mTop + mBitmap.getHeight());
+        canvas.drawBitmap(mBitmap, null, mDst, null);
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mValid = false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.kj.anim.wave.doublewaves.view;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveStripPlacement
+ * @description Shader方式一条浪图在View里的竖直位置: 图片第一行画在View的 top 行,上下超出的部分由 CLAMP 拉第一行/最后一行。
+ *              BitmapShader的原点只和 top 有关,和这次画的是哪几行无关;画横条、画浪谷以下的缓存都按同一个原点取颜色。
+ * @created 2017/6/26 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class WaveStripPlacement {
+
+    private final int mTop;
+    private int mRows;
+
+    /**
+     * @param top 图片第一行画在View的哪一行
+     */
+    WaveStripPlacement(int top) {
+        mTop = top;
+    }
+
+    /**
+     * @param rows 图片的高度,解码好以后设置
+     */
+    void setRows(int rows) {
+        mRows = rows;
+    }
+
+    /**
+     * @return BitmapShader 的 y 平移量
+     */
+    int getShaderY() {
+        return mTop;
+    }
+
+    /**
+     * @return View的第 viewRow 行画的是图片的哪一行(CLAMP 之后)
+     */
+    int getStripRow(int viewRow) {
+        return Math.max(0, Math.min(mRows - 1, viewRow - getShaderY()));
+    }
+
+    /**
+     * 图片里左右不一样的一行合并进 band。第一行、最后一行左右不一样的话,CLAMP拉上去、拉下去的部分也都会变
+     *
+     * @param stripRow 图片里的行
+     */
+    void includeVaryingRow(WaveDirtyBand band, int stripRow) {
+        int viewRow = getShaderY() + stripRow;
+        band.includeRow(viewRow);
+        if (stripRow == 0) {
+            band.union(Integer.MIN_VALUE, viewRow + 1);
+        }
+        if (stripRow == mRows - 1) {
+            band.union(viewRow, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -1,57 +1,68 @@
 package com.kj.anim.wave.doublewaves.view;
 
-import android.animation.TypeEvaluator;
-import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.graphics.Shader;
 import android.os.Build;
-import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.LinearInterpolator;
 
+import com.kj.anim.wave.core.WaveTileScroller;
 import com.kj.anim.wave.doublewaves.R;
 
 /**
  * @author kangjian
  * @version 1.0
  * @title WaveViewDraw
- * @description 运用ValueAnimator 点的移动来实现
+ * @description 原来运用ValueAnimator 点的移动来实现,现在由共用的 {@link WaveFrameClock} 驱动,按帧时间算动画进度
+ *              图片从共用的 {@link WaveBitmapCache} 里取,attach时取、detach时释放,后台解码好之前不画
+ *              什么时候动由 {@link WaveLifecycleController} 决定,第一次画之前不动
+ *              图片上下两半是两层浪,解码时切成两条,每层一个横向REPEAT的 BitmapShader,每帧每层只画一次;
+ *              偏移量是一个整数({@link WaveTileScroller}),每帧不创建对象,原来每帧4次drawBitmap、new一个Point的写法去掉了
+ *              两层都是单色的,默认按 ALPHA_8 解码(属性 wave_bitmap_config),颜色设给每层的画笔
  * @created 2017/3/24 23:11
  * @changeRecord [修改记录] <br/>
  */
 
-public class WaveViewDraw extends View {
+public class WaveViewDraw extends View implements WaveFrameClock.OnFrameListener,
+        WaveRunState.OnRunStateChangedListener {
 
     public static final String TAG = WaveViewDraw.class.getSimpleName();
-    public static final float START_POSITION = 0f;
 
+    private static final int LAYER_COUNT = 2;     //图片上半是底层浪,下半是上层浪
+    private static final int NO_OFFSET = -1;
     private static boolean WAVE_BITMAP = true;
 
-    private Paint mPaint;
+    private int wave_total_res;
+    private Bitmap.Config wave_config;
 
-    private Drawable wave_total;
+    private Bitmap[] wave_bands;     //上下两层,还没解码好时为null
 
-    private Bitmap wave_total_bp;
+    private WaveBitmapCache.Handle wave_total_handle;
 
     private long duration;
 
-    private Point currentPoint; //控制浪位置的坐标点
-    private Rect src;  //需要绘图的大小
-    private Rect dst;  //屏幕上绘画的位置
+    private boolean started;        //第一次画了以后才开始动
+    private WaveTileScroller scroller;
+    private Paint[] layerPaints;    //每层一个,shader跟着图片换
+    private BitmapShader[] layerShaders;
+    private Matrix[] layerMatrices; //每层一个,不共用,录制好的绘制命令里不会被下一层改掉
+    private int shaderOffset = NO_OFFSET;     //shader现在的本地矩阵平移了多少,没变就不再设
 
-    private boolean isFirstIn = true;
+    private WaveFrameMetrics mMetrics;    //没设置监听时为null
+
+    private WaveLifecycleController mLifecycle;
 
     public WaveViewDraw(Context context) {
         super(context);
+        initView(null, context);
     }
 
     public WaveViewDraw(Context context, AttributeSet attrs) {
@@ -74,135 +85,152 @@ public class WaveViewDraw extends View {
 
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.WaveViewDraw);   //动态获取的方式
         duration = (long) typedArray.getFloat(R.styleable.WaveViewDraw_wave_duration, 16000f);
+        wave_config = WaveBitmapDecoder.toConfig(typedArray.getInt(R.styleable.WaveViewDraw_wave_bitmap_config,
+                WaveBitmapDecoder.CONFIG_ALPHA_8));
+        typedArray.recycle();
 
-        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         if (WAVE_BITMAP)
-            wave_total = ContextCompat.getDrawable(context, R.drawable.ic_wave_total);
+            wave_total_res = R.drawable.ic_wave_total;
         else
-            wave_total = ContextCompat.getDrawable(context, R.drawable.ic_wave_small);
-        wave_total_bp = drawableToBitamp(wave_total);
+            wave_total_res = R.drawable.ic_wave_small;
+
+        scroller = new WaveTileScroller(duration);
+        layerPaints = new Paint[LAYER_COUNT];
+        layerShaders = new BitmapShader[LAYER_COUNT];
+        layerMatrices = new Matrix[LAYER_COUNT];
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            layerPaints[i] = new Paint(Paint.ANTI_ALIAS_FLAG);
+            layerMatrices[i] = new Matrix();
+        }
 
-        src = new Rect();
-        dst = new Rect();
+        mLifecycle = new WaveLifecycleController(this, this);
+        mLifecycle.setIdle(true);     //第一次画的时候才开始动画
+    }
+
+    /**
+     * 设置帧耗时统计的监听,传null关闭统计(关闭后没有任何额外开销)
+     *
+     * @param listener 回调
+     */
+    public void setOnFrameMetricsListener(WaveFrameMetrics.OnFrameMetricsListener listener) {
+        mMetrics = DebugAllocationCounter.createMetrics(TAG, mMetrics, listener);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        if (currentPoint == null) {
-            currentPoint = new Point(START_POSITION, START_POSITION);
-            drawWave(canvas);
-            startWaveAnimation();
-        } else {
-            drawWave(canvas);
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginDraw();
+        }
+        drawWave(canvas);
+        if (!started) {
+            started = true;
+            mLifecycle.setIdle(false);
+        }
+        if (metrics != null) {
+            metrics.endDraw();
         }
-
-    }
-
-    private Bitmap drawableToBitamp(Drawable drawable) {
-        Bitmap bitmap;
-        BitmapDrawable bd = (BitmapDrawable) drawable;
-        bitmap = bd.getBitmap();
-        return bitmap;
     }
 
+    /**
+     * 每层一次drawRect,shader横向REPEAT,平移只改矩阵;
+     * 偏移量没变(比如别的原因引起的重画)时不再设矩阵,设的时候也不会是单位矩阵(见 {@link WaveTileScroller#getShaderOffset})
+     */
     private void drawWave(Canvas canvas) {
-        float left = currentPoint.getX();
-
-        int offSet = (int) left;
-        int start_offSet = 1920 - offSet;
-
-        if (WAVE_BITMAP) {
-            drawImage(canvas, wave_total_bp, 0, 0, offSet, 1080, start_offSet, 0); //底层浪的,左侧
-            drawImage(canvas, wave_total_bp, offSet, 0, 1920, 1080, 0, 0); //先画底层浪,右侧
-            drawImage(canvas, wave_total_bp, 0, 0, offSet, 1080, start_offSet, 1080);     //上层浪,左侧
-            drawImage(canvas, wave_total_bp, offSet, 0, 1920, 1080, 0, 1080);             //上层浪,右侧
-        } else {
-
-            drawImage(canvas, wave_total_bp, 0, 0, offSet, 230, start_offSet, 0); //底层浪的,左侧
-            drawImage(canvas, wave_total_bp, offSet, 0, 1920, 230, 0, 0); //先画底层浪,右侧
-            drawImage(canvas, wave_total_bp, 0, 0, offSet, 230, start_offSet, 230);     //上层浪,左侧
-            drawImage(canvas, wave_total_bp, offSet, 0, 1920, 230, 0, 230);             //上层浪,右侧
+        if (wave_bands == null)
+            return;
+        int offset = scroller.getShaderOffset();
+        boolean moved = offset != shaderOffset;
+        shaderOffset = offset;
+        int width = getWidth();
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (moved) {
+                layerMatrices[i].setTranslate(offset, 0);
+                layerShaders[i].setLocalMatrix(layerMatrices[i]);
+            }
+            canvas.drawRect(0, 0, width, wave_bands[i].getHeight(), layerPaints[i]);     //先画底层浪,再画上层浪
         }
     }
 
     /**
-     * 画浪
-     *
-     * @param canvas
-     * @param bitmap
-     * @param x      绘制起点 left
-     * @param y      绘制起点 top
-     * @param w      绘制终点 右上角
-     * @param h      绘制终点 右下角
-     * @param bx     需要绘图的 left
-     * @param by     需要绘图的 top
+     * @param colors ALPHA_8的层画的颜色,其他为0
      */
-    private void drawImage(Canvas canvas, Bitmap bitmap, int x, int y, int w, int h, int bx, int by) {
-        src.left = bx;
-        src.top = by;
-        src.right = bx + w;
-        src.bottom = by + h;
-        dst.left = x;
-        dst.top = y;
-        dst.right = x + w;
-        dst.bottom = y + h;
-        canvas.drawBitmap(bitmap, src, dst, mPaint);
+    private void setBands(Bitmap[] bands, int[] colors) {
+        wave_bands = bands != null && bands.length >= LAYER_COUNT ? bands : null;
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            layerShaders[i] = wave_bands == null ? null
+                    : new BitmapShader(wave_bands[i], Shader.TileMode.REPEAT, Shader.TileMode.CLAMP);
+            layerPaints[i].setShader(layerShaders[i]);
+            layerPaints[i].setColor(wave_bands != null && colors[i] != 0 ? colors[i] : Color.BLACK);
+        }
+        scroller.setTileWidth(wave_bands == null ? 0 : wave_bands[0].getWidth());
+        shaderOffset = NO_OFFSET;       //新的shader还没有矩阵
     }
 
     /**
-     * 动画
+     * 停下时保存进度,恢复后接着原来的位置走
      */
-    private void startWaveAnimation() {
-        Point startPoint = new Point(0, START_POSITION);
-        Point endPoint = new Point(1920, START_POSITION);
-        ValueAnimator anim = ValueAnimator.ofObject(new PointEvaluator(), startPoint, endPoint);
-        anim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                currentPoint = (Point) animation.getAnimatedValue();
-                invalidate();
-            }
-        });
-        anim.setInterpolator(new LinearInterpolator());
-        anim.setDuration(duration);
-        anim.setRepeatMode(ValueAnimator.RESTART);
-        anim.setRepeatCount(Animation.INFINITE);
-        anim.start();
+    @Override
+    public void onRunStateChanged(boolean running) {
+        if (running) {
+            WaveFrameClock.getInstance().addListener(this);
+        } else {
+            WaveFrameClock.getInstance().removeListener(this);
+            scroller.pause();
+        }
     }
 
-    /**
-     * 导引浪移动的点类
-     */
-    private class Point {
-        private float x;
-        private float y;
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mLifecycle.onWindowVisibilityChanged(visibility);
+    }
 
-        public Point(float x, float y) {
-            this.x = x;
-            this.y = y;
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mLifecycle != null) {       //构造的时候父类就可能回调,这时候还没创建
+            mLifecycle.onVisibilityChanged();
         }
+    }
 
-        public float getX() {
-            return x;
+    @Override
+    public void onFrame(long frameTimeNanos) {
+        final WaveFrameMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginCompute();
+        }
+        boolean changed = scroller.update(frameTimeNanos);
+        if (metrics != null) {
+            metrics.endCompute();
+        }
+        if (changed && wave_bands != null) {
+            invalidate(0, 0, getWidth(), wave_bands[0].getHeight());     //只画了浪图那么高,下面没有东西,不用刷新
         }
+    }
 
-        public float getY() {
-            return y;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (wave_total_res != 0 && wave_total_handle == null) {
+            wave_total_handle = WaveBitmapCache.getInstance().acquire(getResources(), wave_total_res, 0,
+                    wave_config, LAYER_COUNT, new WaveBitmapCache.OnBitmapReadyListener() {
+                        @Override
+                        public void onBitmapReady(Bitmap[] bands, int[] colors) {
+                            setBands(bands, colors);
+                            invalidate();
+                        }
+                    });
         }
     }
 
-    /**
-     * 计算过渡值的类
-     */
-    private class PointEvaluator implements TypeEvaluator {
-        @Override
-        public Object evaluate(float fraction, Object startValue, Object endValue) {
-            Point startPoint = (Point) startValue;
-            Point endPoint = (Point) endValue;
-            float x = startPoint.getX() + fraction * (endPoint.getX() - startPoint.getX());
-            float y = startPoint.getY() + fraction * (endPoint.getY() - startPoint.getY());
-            Point point = new Point(x, y);
-            return point;
+    @Override
+    protected void onDetachedFromWindow() {
+        if (wave_total_handle != null) {
+            wave_total_handle.release();
+            wave_total_handle = null;
+            setBands(null, null);
         }
+        super.onDetachedFromWindow();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 帧耗时直方图和统计的单元测试,在开发机(host)上执行。
+ */
+public class FrameTimeHistogramTest {
+
+    @Test
+    public void percentiles_withinBucketPrecision() throws Exception {
+        Random random = new Random(42);
+        long[] values = new long[10000];
+        FrameTimeHistogram histogram = new FrameTimeHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 200000 + (long) (random.nextGaussian() * 50000 + random.nextInt(5000000) * (i % 50 == 0 ? 1 : 0));
+            if (values[i] < 0) {
+                values[i] = 0;
+            }
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        double[] percentiles = {50, 95, 99};
+        for (double p : percentiles) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getPercentile(p);
+            assertTrue("p" + p + " reported " + reported + " exact " + exact, reported >= exact);
+            assertTrue("p" + p + " reported " + reported + " exact " + exact, reported <= exact + exact / 16 + 1);
+        }
+    }
+
+    @Test
+    public void bucketIndex_isMonotonicAndBounded() throws Exception {
+        int last = -1;
+        for (long value = 0; value < (1L << 44); value = value < 64 ? value + 1 : value + value / 7) {
+            int index = FrameTimeHistogram.bucketIndex(value);
+            assertTrue(index >= last);
+            assertTrue(value <= FrameTimeHistogram.bucketUpperBound(index));
+            last = index;
+        }
+    }
+
+    @Test
+    public void metrics_countsJankAndReports() throws Exception {
+        final int[] reports = new int[1];
+        WaveFrameMetrics metrics = new WaveFrameMetrics("test", new WaveFrameMetrics.OnFrameMetricsListener() {
+            @Override
+            public void onFrameMetrics(WaveFrameMetrics metrics) {
+                reports[0]++;
+            }
+        }, null);
+        metrics.setReportInterval(10);
+        metrics.setFrameBudgetNanos(1);     //每帧都会超过1ns
+        for (int i = 0; i < 25; i++) {
+            metrics.beginCompute();
+            metrics.endCompute();
+            metrics.beginDraw();
+            metrics.endDraw();
+        }
+        assertEquals(25, metrics.getFrameCount());
+        assertEquals(25, metrics.getJankFrameCount());
+        assertEquals(2, reports[0]);
+        assertEquals(25, metrics.getTotalHistogram().getCount());
+    }
+
+    @Test
+    public void metrics_reportsBitmapMemory() throws Exception {
+        WaveFrameMetrics metrics = new WaveFrameMetrics("test", new WaveFrameMetrics.OnFrameMetricsListener() {
+            @Override
+            public void onFrameMetrics(WaveFrameMetrics metrics) {
+            }
+        }, null);
+        assertEquals(0, metrics.getBitmapBytes());
+        assertEquals(0, metrics.getPeakBitmapBytes());
+
+        metrics = new WaveFrameMetrics("test", null, null, new WaveFrameMetrics.MemoryCounter() {
+            @Override
+            public long getBitmapBytes() {
+                return 1920 * 480;
+            }
+
+            @Override
+            public long getPeakBitmapBytes() {
+                return 1920 * 480 + 1920 * 240 * 4;
+            }
+        });
+        assertEquals(1920 * 480, metrics.getBitmapBytes());
+        assertEquals(1920 * 480 + 1920 * 240 * 4, metrics.getPeakBitmapBytes());
+        assertTrue(metrics.toString().contains("bitmap=900KB peak=2700KB"));
+    }
+}
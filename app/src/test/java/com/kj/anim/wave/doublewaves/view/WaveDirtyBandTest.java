@@ -0,0 +1,89 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WavesSampler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 每帧会变的横条的单元测试,在开发机(host)上执行。
+ */
+public class WaveDirtyBandTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    @Test
+    public void setFromSampler_coversEverySampleAtAnyTime() throws Exception {
+        List<WaveLayer> layers = new ArrayList<>();
+        layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0, 0));
+        layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0, 0));
+        layers.add(new WaveLayer(20, 0.5f, 3f, 1, 0, 0));
+        WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(layers);
+        sampler.resize(WIDTH + 20, 20, WIDTH, HEIGHT * 0.5f);
+
+        WaveDirtyBand band = new WaveDirtyBand();
+        band.setFromSampler(sampler, HEIGHT);
+        assertEquals(960 - 52 - 1, band.getTop());
+        assertEquals(960 + 52 + 1, band.getBottom());
+
+        for (double t = 0; t < 30; t += 0.37) {
+            sampler.sample(t);
+            float[] samples = sampler.getSamples();
+            for (int i = 0; i < sampler.getCount() * sampler.getLayerCount(); i++) {
+                assertTrue(samples[i] >= band.getTop() + 1);
+                assertTrue(samples[i] <= band.getBottom() - 1);
+            }
+        }
+    }
+
+    @Test
+    public void setFromSampler_clampsToView() throws Exception {
+        List<WaveLayer> layers = new ArrayList<>();
+        layers.add(new WaveLayer(52, 1.0f, 1.2f, 0, 0, 0));
+        WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(layers);
+        sampler.resize(120, 20, 100, 52);     //浪尖顶到View的最上面
+
+        WaveDirtyBand band = new WaveDirtyBand();
+        band.setFromSampler(sampler, 80);
+        assertEquals(0, band.getTop());
+        assertEquals(80, band.getBottom());
+    }
+
+    @Test
+    public void union_andClamp() throws Exception {
+        WaveDirtyBand band = new WaveDirtyBand();
+        assertTrue(band.isEmpty());
+        band.union(5, 5);
+        assertTrue(band.isEmpty());
+
+        band.includeRow(10);
+        band.includeRow(3);
+        assertEquals(3, band.getTop());
+        assertEquals(11, band.getBottom());
+
+        band.union(8, Integer.MAX_VALUE);   //最后一行会变,CLAMP拉到底
+        band.clamp(240);
+        assertEquals(3, band.getTop());
+        assertEquals(240, band.getBottom());
+
+        band.clamp(2);
+        assertTrue(band.isEmpty());
+    }
+
+    @Test
+    public void isUniformRow() throws Exception {
+        int[] row = new int[64];
+        assertTrue(WaveDirtyBand.isUniformRow(row, row.length));
+        row[63] = 0x01000000;
+        assertFalse(WaveDirtyBand.isUniformRow(row, row.length));
+        assertTrue(WaveDirtyBand.isUniformRow(row, 63));    //只比有效长度
+    }
+}
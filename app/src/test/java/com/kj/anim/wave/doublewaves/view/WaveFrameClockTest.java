@@ -0,0 +1,196 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 共用帧时钟的单元测试,在开发机(host)上执行。
+ * 用一个数数的 FrameScheduler 代替Choreographer,和 WavePicView 一样在回调里加/移除帧监听,
+ * 确认不管布局、显示隐藏、attach/detach多少次,一个View最多只有一个监听,每个vsync只请求一次回调。
+ * 真正的 WavePicView 在手机上的同样检查见 androidTest 里的 WavePicViewFrameClockTest。
+ */
+public class WaveFrameClockTest {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int LAYOUTS = 1000;
+
+    private CountingScheduler mScheduler;
+    private WaveFrameClock mClock;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new CountingScheduler();
+        mClock = new WaveFrameClock(mScheduler);
+    }
+
+    @Test
+    public void layoutPasses_keepOneListener() throws Exception {
+        FakePicView view = new FakePicView(mClock);
+        view.attach();
+        assertEquals(1, mClock.getListenerCount());
+
+        for (int i = 0; i < LAYOUTS; i++) {
+            view.layout();
+        }
+        assertEquals(1, mClock.getListenerCount());
+
+        mScheduler.runFrames(60);
+        assertEquals(60, view.mFrames);       //每个vsync只收到一帧,不会越布局越多
+        assertEquals(1 + 60, mScheduler.mPosted);     //attach时一次,之后每帧一次
+    }
+
+    @Test
+    public void lifecycleCycles_neverStackListeners() throws Exception {
+        FakePicView view = new FakePicView(mClock);
+        for (int i = 0; i < LAYOUTS; i++) {
+            view.attach();
+            view.layout();
+            assertEquals(1, mClock.getListenerCount());
+
+            view.setShown(false);
+            view.layout();
+            assertEquals(0, mClock.getListenerCount());
+
+            view.setShown(true);
+            view.layout();
+            view.setWindowVisible(false);
+            assertEquals(0, mClock.getListenerCount());
+
+            view.setWindowVisible(true);
+            mScheduler.runFrames(1);
+            view.detach();
+            assertEquals(0, mClock.getListenerCount());
+        }
+        assertEquals(LAYOUTS, view.mFrames);
+
+        mScheduler.runFrames(60);       //全部detach后时钟停下,不空转
+        assertEquals(LAYOUTS, view.mFrames);
+        assertFalse(mScheduler.mPending);
+    }
+
+    @Test
+    public void manyViews_oneCallbackPerVsync() throws Exception {
+        FakePicView[] views = new FakePicView[8];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new FakePicView(mClock);
+            views[i].attach();
+            for (int j = 0; j < 100; j++) {
+                views[i].layout();
+            }
+        }
+        assertEquals(views.length, mClock.getListenerCount());
+
+        mScheduler.runFrames(30);
+        assertEquals(1 + 30, mScheduler.mPosted);
+        for (FakePicView view : views) {
+            assertEquals(30, view.mFrames);
+        }
+    }
+
+    @Test
+    public void removeDuringDispatch_takesEffectNextFrame() throws Exception {
+        final FakePicView view = new FakePicView(mClock);
+        final FakePicView other = new FakePicView(mClock);
+        view.attach();
+        other.attach();
+        view.mOnFrame = new Runnable() {
+            @Override
+            public void run() {
+                other.detach();
+            }
+        };
+
+        mScheduler.runFrames(1);
+        assertEquals(1, mClock.getListenerCount());
+        mScheduler.runFrames(10);
+        assertEquals(11, view.mFrames);
+        assertTrue(other.mFrames <= 1);
+    }
+
+    /**
+     * 假的Choreographer: 记下请求了几次回调,同一时刻只能挂一个
+     */
+    private static class CountingScheduler implements WaveFrameClock.FrameScheduler {
+
+        WaveFrameClock mClock;
+        boolean mPending;
+        int mPosted;
+        long mNow = 1000000000L;
+
+        @Override
+        public void postFrame(WaveFrameClock clock) {
+            assertFalse("frame callback posted twice", mPending);
+            mClock = clock;
+            mPending = true;
+            mPosted++;
+        }
+
+        void runFrames(int count) {
+            for (int i = 0; i < count; i++) {
+                mNow += FRAME_NANOS;
+                if (mPending) {
+                    mPending = false;
+                    mClock.doFrame(mNow);
+                }
+            }
+        }
+    }
+
+    /**
+     * 和 WavePicView 一样: 由 WaveRunState 决定动不动,动的时候加帧监听,停的时候移除;
+     * 布局只会通过 onGlobalLayout 更新可见性,不碰动画
+     */
+    private static class FakePicView implements WaveFrameClock.OnFrameListener,
+            WaveRunState.OnRunStateChangedListener {
+
+        final WaveFrameClock mClock;
+        final WaveRunState mState = new WaveRunState(this);
+        boolean mShown = true;
+        int mFrames;
+        Runnable mOnFrame;
+
+        FakePicView(WaveFrameClock clock) {
+            mClock = clock;
+        }
+
+        void attach() {
+            mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        }
+
+        void detach() {
+            mState.setPaused(WaveRunState.REASON_DETACHED, true);
+        }
+
+        void layout() {
+            mState.setPaused(WaveRunState.REASON_VIEW_HIDDEN, !mShown);
+            mState.setPaused(WaveRunState.REASON_OFFSCREEN, !mShown);
+        }
+
+        void setShown(boolean shown) {
+            mShown = shown;
+        }
+
+        void setWindowVisible(boolean visible) {
+            mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, !visible);
+        }
+
+        @Override
+        public void onRunStateChanged(boolean running) {
+            if (running) {
+                mClock.addListener(this);
+            } else {
+                mClock.removeListener(this);
+            }
+        }
+
+        @Override
+        public void onFrame(long frameTimeNanos) {
+            mFrames++;
+            if (mOnFrame != null) {
+                mOnFrame.run();
+            }
+        }
+    }
+}
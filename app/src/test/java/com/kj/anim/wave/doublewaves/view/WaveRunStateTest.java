@@ -0,0 +1,157 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WavePhase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 暂停/恢复规则的单元测试,在开发机(host)上执行。
+ * 用一个假的帧时钟代替Choreographer,数一下每种情况下到底调度了多少帧,和View里一样在回调里加/移除监听、暂停相位。
+ */
+public class WaveRunStateTest {
+
+    private static final long FRAME_NANOS = 16666667;
+
+    private FakeWave mWave;
+    private WaveRunState mState;
+
+    @Before
+    public void setUp() throws Exception {
+        mWave = new FakeWave();
+        mState = new WaveRunState(mWave);
+    }
+
+    @Test
+    public void detached_schedulesNoFrames() throws Exception {
+        assertFalse(mState.isRunning());
+        assertTrue(mState.isPaused(WaveRunState.REASON_DETACHED));
+        mWave.runFrames(60);
+        assertEquals(0, mWave.mFrames);
+        assertEquals(0, mWave.mCallbacks);
+    }
+
+    @Test
+    public void attached_schedulesEveryFrame() throws Exception {
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        assertTrue(mState.isRunning());
+        mWave.runFrames(60);
+        assertEquals(60, mWave.mFrames);
+
+        mState.setPaused(WaveRunState.REASON_DETACHED, true);
+        mWave.runFrames(60);
+        assertEquals(60, mWave.mFrames);
+    }
+
+    @Test
+    public void eachReason_stopsFrames() throws Exception {
+        int[] reasons = {
+                WaveRunState.REASON_WINDOW_HIDDEN,
+                WaveRunState.REASON_VIEW_HIDDEN,
+                WaveRunState.REASON_OFFSCREEN,
+                WaveRunState.REASON_SCREEN_OFF,
+                WaveRunState.REASON_POWER_SAVE,
+                WaveRunState.REASON_IDLE,
+        };
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        for (int reason : reasons) {
+            int before = mWave.mFrames;
+            mState.setPaused(reason, true);
+            mWave.runFrames(30);
+            assertEquals("reason " + reason, before, mWave.mFrames);
+
+            mState.setPaused(reason, false);
+            mWave.runFrames(30);
+            assertEquals("reason " + reason, before + 30, mWave.mFrames);
+        }
+    }
+
+    @Test
+    public void severalReasons_resumeOnlyWhenAllCleared() throws Exception {
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, true);
+        mState.setPaused(WaveRunState.REASON_OFFSCREEN, true);
+        mState.setPaused(WaveRunState.REASON_POWER_SAVE, true);
+
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, false);
+        mWave.runFrames(10);
+        mState.setPaused(WaveRunState.REASON_POWER_SAVE, false);
+        mWave.runFrames(10);
+        assertEquals(0, mWave.mFrames);
+        assertEquals(WaveRunState.REASON_OFFSCREEN, mState.getPauseReasons());
+
+        mState.setPaused(WaveRunState.REASON_OFFSCREEN, false);
+        mWave.runFrames(10);
+        assertEquals(10, mWave.mFrames);
+    }
+
+    @Test
+    public void repeatedState_noDuplicateCallbacks() throws Exception {
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        assertEquals(1, mWave.mCallbacks);
+
+        mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, true);
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, true);     //已经停了,再加原因不回调
+        mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, true);
+        assertEquals(2, mWave.mCallbacks);
+
+        mState.setPaused(WaveRunState.REASON_WINDOW_HIDDEN, false);
+        assertEquals(2, mWave.mCallbacks);
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, false);
+        assertEquals(3, mWave.mCallbacks);
+        mWave.runFrames(5);
+        assertEquals(5, mWave.mFrames);     //监听只加了一次
+    }
+
+    @Test
+    public void resume_continuesFromPausedPhase() throws Exception {
+        mState.setPaused(WaveRunState.REASON_DETACHED, false);
+        mWave.runFrames(37);
+        double paused = mWave.mPhase.getPhase();
+
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, true);
+        mWave.mNow += 3600L * 1000000000L;      //灭屏一个小时,时钟照样走
+        mState.setPaused(WaveRunState.REASON_SCREEN_OFF, false);
+
+        mWave.runFrames(1);     //恢复后第一帧只重新记时间,不前进
+        assertEquals(paused, mWave.mPhase.getPhase(), 1e-12);
+        mWave.runFrames(1);
+        assertEquals(WavePhase.wrap(paused + FRAME_NANOS / 1e9 * FakeWave.SPEED, 1), mWave.mPhase.getPhase(), 1e-9);
+    }
+
+    /**
+     * 假的帧时钟 + 浪: 注册了才会收到帧,和 WaveFrameClock 一样
+     */
+    private static class FakeWave implements WaveRunState.OnRunStateChangedListener {
+
+        static final double SPEED = 0.05;
+
+        final WavePhase mPhase = new WavePhase(SPEED, 1);
+        boolean mScheduled;
+        long mNow = 1000000000L;
+        int mFrames;
+        int mCallbacks;
+
+        @Override
+        public void onRunStateChanged(boolean running) {
+            mCallbacks++;
+            mScheduled = running;
+            if (!running) {
+                mPhase.pause();
+            }
+        }
+
+        void runFrames(int count) {
+            for (int i = 0; i < count; i++) {
+                mNow += FRAME_NANOS;
+                if (mScheduled) {
+                    mFrames++;
+                    mPhase.update(mNow);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 单色浪图判断的单元测试,在开发机(host)上执行。
+ */
+public class WaveSingleColorTest {
+
+    private static final int WAVE = 0x8641ff;
+
+    @Test
+    public void singleColor_withAntiAliasedEdges() throws Exception {
+        WaveSingleColor check = new WaveSingleColor();
+        int[] row = new int[256];
+        for (int alpha = 0; alpha < row.length; alpha++) {
+            row[alpha] = (alpha << 24) | roundTrip(WAVE, alpha);     //边缘从全透明到不透明
+        }
+        assertTrue(check.addRow(row, row.length));
+        assertEquals(0xFF000000 | WAVE, check.getColor());
+    }
+
+    @Test
+    public void twoColors_areMixed() throws Exception {
+        WaveSingleColor check = new WaveSingleColor();
+        int[] row = {0xFF000000 | WAVE, 0, 0xFF7633f9};
+        assertTrue(check.addRow(row, 2));
+        assertFalse(check.addRow(row, 3));
+        assertEquals(WaveSingleColor.NONE, check.getColor());
+        assertFalse(check.addRow(new int[]{0xFF000000 | WAVE}, 1));    //一旦不是单色就一直不是
+
+        check.reset();
+        assertTrue(check.addRow(row, 2));
+        assertEquals(0xFF000000 | WAVE, check.getColor());
+    }
+
+    @Test
+    public void transparentOnly_hasNoColor() throws Exception {
+        WaveSingleColor check = new WaveSingleColor();
+        assertTrue(check.addRow(new int[64], 64));
+        assertEquals(WaveSingleColor.NONE, check.getColor());
+    }
+
+    /**
+     * 和Android解码一样先预乘再由 getPixels 反预乘
+     */
+    private static int roundTrip(int rgb, int alpha) {
+        if (alpha == 0) {
+            return 0;
+        }
+        int result = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int premultiplied = (((rgb >> shift) & 0xFF) * alpha + 127) / 255;
+            int restored = Math.min(255, (premultiplied * 255 + alpha / 2) / alpha);
+            result |= restored << shift;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Shader方式浪图竖直位置的单元测试,在开发机(host)上执行。
+ */
+public class WaveStripPlacementTest {
+
+    private static final int TOP = 300;
+    private static final int WIDTH = 64;
+    private static final int ROWS = 56;
+    private static final int BODY = 0xff6837f4;
+
+    /**
+     * 和生成的浪图一样: 第0行透明,中间是浪尖到浪谷,最后一行是实心的水
+     */
+    private static int[][] strip() {
+        int[][] rows = new int[ROWS][WIDTH];
+        for (int y = 1; y < ROWS; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean wet = y == ROWS - 1 || y >= 1 + (x * (ROWS - 2)) / WIDTH;
+                rows[y][x] = wet ? BODY : 0;
+            }
+        }
+        return rows;
+    }
+
+    private static WaveDirtyBand findVaryingRows(WaveStripPlacement placement, int[][] rows) {
+        WaveDirtyBand band = new WaveDirtyBand();
+        placement.setRows(rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            if (!WaveDirtyBand.isUniformRow(rows[y], WIDTH)) {
+                placement.includeVaryingRow(band, y);
+            }
+        }
+        return band;
+    }
+
+    @Test
+    public void shaderOrigin_isStripTopWhateverRowsAreDrawn() throws Exception {
+        WaveStripPlacement placement = new WaveStripPlacement(TOP);
+        placement.setRows(ROWS);
+        assertEquals(TOP, placement.getShaderY());
+        assertEquals(0, placement.getStripRow(TOP));
+        assertEquals(10, placement.getStripRow(TOP + 10));
+        assertEquals(0, placement.getStripRow(0));                 //上面CLAMP拉第一行
+        assertEquals(ROWS - 1, placement.getStripRow(TOP + 1000));  //下面CLAMP拉最后一行
+    }
+
+    @Test
+    public void staticColumn_samplesStripBody() throws Exception {
+        int[][] rows = strip();
+        WaveStripPlacement placement = new WaveStripPlacement(TOP);
+        WaveDirtyBand band = findVaryingRows(placement, rows);
+        assertEquals(TOP + 1, band.getTop());
+        assertTrue(band.getBottom() <= TOP + ROWS);
+
+        for (int viewRow = band.getBottom(); viewRow < band.getBottom() + 200; viewRow++) {
+            int[] row = rows[placement.getStripRow(viewRow)];
+            assertTrue(WaveDirtyBand.isUniformRow(row, WIDTH));
+            assertEquals("row " + viewRow, BODY, row[0]);      //不是第0行透明的浪尖
+        }
+        for (int viewRow = 0; viewRow < band.getTop(); viewRow++) {
+            assertEquals(0, rows[placement.getStripRow(viewRow)][0]);
+        }
+    }
+
+    @Test
+    public void pictureAtTopZero_isUnchanged() throws Exception {
+        WaveStripPlacement placement = new WaveStripPlacement(0);
+        placement.setRows(ROWS);
+        assertEquals(0, placement.getShaderY());
+        assertEquals(17, placement.getStripRow(17));
+    }
+}
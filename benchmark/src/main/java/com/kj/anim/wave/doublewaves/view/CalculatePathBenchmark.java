@@ -0,0 +1,72 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WavesSampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title CalculatePathBenchmark
+ * @description 计算方式每帧的采样,就是 DoubleWavesRenderer.calculatePath() 里除了Path以外的部分。
+ *              按宽度、求值方式、层数组合跑,和 {@link LegacyCalculatePathBenchmark} 对比。
+ * @created 2017/4/26 10:10
+ * @changeRecord [修改记录] <br/>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatePathBenchmark {
+
+    private static final float X_SPACE = 20;
+    private static final double FRAME_SECONDS = 1 / 60.0;
+
+    @Param({"1080", "1920"})
+    public int width;
+
+    @Param({"0", "1"})      //WavesSampler.EVALUATOR_MATH / EVALUATOR_TABLE
+    public int evaluator;
+
+    @Param({"2", "4"})
+    public int layers;
+
+    private WavesSampler mSampler;
+    private double mSeconds;
+
+    @Setup
+    public void setUp() {
+        List<WaveLayer> list = new ArrayList<>(layers);
+        for (int l = 0; l < layers; l++) {
+            list.add(new WaveLayer(52, 1.5f / (l + 1), l % 2 == 0 ? 1.2f : -1.2f, l, 0, 0));
+        }
+        mSampler = new WavesSampler(evaluator);
+        mSampler.setLayers(list);
+        mSampler.resize(width + X_SPACE, X_SPACE, width, width * 0.28f);
+    }
+
+    @Benchmark
+    public float[] sample() {
+        mSeconds += FRAME_SECONDS;
+        mSampler.sample(mSeconds);
+        return mSampler.getSamples();
+    }
+}
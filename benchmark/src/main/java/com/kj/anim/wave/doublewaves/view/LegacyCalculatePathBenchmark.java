@@ -0,0 +1,68 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title LegacyCalculatePathBenchmark
+ * @description 最早 DoubleWavesCalculateView.calculatePath() 的算法,作为对比的基线:
+ *              float的x循环,每个点两次Math.sin,每个点都重新算中线,偏移量每帧 += mWaveHz。
+ *              原来每个点还会new两个LinearGradient,那是native的对象,这里没法算进来。
+ * @created 2017/4/26 10:25
+ * @changeRecord [修改记录] <br/>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyCalculatePathBenchmark {
+
+    private static final float X_SPACE = 20;
+    private static final float WAVE_HZ = 0.02f;
+    private static final int WAVE_HEIGHT = 52;
+    private static final float WAVE_WEIGHT = 0.28f;
+
+    @Param({"1080", "1920"})
+    public int width;
+
+    private int mHeight;
+    private float mMaxRight;
+    private double omega;
+    private float mAboveOffset;
+
+    @Setup
+    public void setUp() {
+        mHeight = width;
+        mMaxRight = width + X_SPACE;
+        omega = 2 * Math.PI / (width * 1.5f);
+    }
+
+    @Benchmark
+    public void calculatePath(Blackhole bh) {
+        mAboveOffset += WAVE_HZ;
+        float y_front, y_back;
+        for (float x = 0; x <= mMaxRight; x += X_SPACE) {
+            y_front = (float) (WAVE_HEIGHT * Math.sin(omega * x + mAboveOffset) + Math.max(WAVE_HEIGHT, mHeight * WAVE_WEIGHT));
+            y_back = (float) (WAVE_HEIGHT * Math.sin(omega * 1.5 * x - mAboveOffset + 5 * Math.PI / 4) + Math.max(WAVE_HEIGHT, mHeight * WAVE_WEIGHT));
+            bh.consume(y_front);
+            bh.consume(y_back);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WaveWorkerPool;
+import com.kj.anim.wave.core.WavesSampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title ParallelSamplerBenchmark
+ * @description 并行采样的扩展曲线: 同样的宽度、采样间隔、层数,线程数从1到N各跑一遍。
+ *              threads=1 就是单线程;线程数超过CPU核数的结果没有意义。
+ *              最多分几段是 值的个数 / {@link WavesSampler#PARALLEL_MIN_VALUES} 定的,和线程数无关:
+ *                  1920:20 四层约400个值,永远单线程,几个线程数的结果应该一样;
+ *                  7680:1 四层约3.07万个值,最多3段,threads=4、8 和 threads=3 一样;
+ *                  7680:0.25 四层约12.3万个值,最多15段,每个线程数都真的用满。
+ *              每组参数开始时打印实际分了几段(parallelParts),看结果时对照着看。
+ *              ./gradlew :benchmark:jmh -Pjmh="ParallelSampler"
+ * @created 2017/6/14 17:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSamplerBenchmark {
+
+    private static final double FRAME_SECONDS = 1 / 60.0;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1920:20", "7680:1", "7680:0.25"})      //宽度:采样间隔
+    public String surface;
+
+    @Param({"1"})      //WavesSampler.EVALUATOR_TABLE
+    public int evaluator;
+
+    @Param({"4"})
+    public int layers;
+
+    private WaveWorkerPool mPool;
+    private WavesSampler mSampler;
+    private double mSeconds;
+
+    @Setup
+    public void setUp() {
+        String[] parts = surface.split(":");
+        int width = Integer.parseInt(parts[0]);
+        float xSpace = Float.parseFloat(parts[1]);
+        List<WaveLayer> list = new ArrayList<>(layers);
+        for (int l = 0; l < layers; l++) {
+            list.add(new WaveLayer(52, 1.5f / (l + 1), l % 2 == 0 ? 1.2f : -1.2f, l, 0, 0));
+        }
+        mPool = new WaveWorkerPool(threads);
+        mSampler = new WavesSampler(evaluator);
+        mSampler.setWorkerPool(mPool);
+        mSampler.setLayers(list);
+        mSampler.resize(width + xSpace, xSpace, width, 300);
+        System.out.println("surface=" + surface + " layers=" + layers + " threads=" + threads
+                + " parallelParts=" + mSampler.getParallelParts());
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public float[] sample() {
+        mSeconds += FRAME_SECONDS;
+        mSampler.sample(mSeconds);
+        return mSampler.getSamples();
+    }
+}
@@ -0,0 +1,92 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WavePhase;
+import com.kj.anim.wave.core.WaveTileScroller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title PointEvaluatorBenchmark
+ * @description WaveViewDraw 每帧的计算: 原来的 动画进度 + PointEvaluator.evaluate(每帧new一个Point),
+ *              和现在的 {@link WaveTileScroller}(只算一个整数偏移量)对比。
+ *              TypeEvaluator 是android的接口,这里照着原来 WaveViewDraw 里的 Point/PointEvaluator 写了一份一样的。
+ * @created 2017/4/26 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointEvaluatorBenchmark {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int DURATION = 16000;
+    private static final float WAVE_WIDTH = 1920;
+
+    private WavePhase mProgress;
+    private long mFrameTimeNanos;
+    private Point mStartPoint;
+    private Point mEndPoint;
+    private PointEvaluator mEvaluator;
+    private WaveTileScroller mScroller;
+
+    @Setup
+    public void setUp() {
+        mProgress = new WavePhase(1000.0 / DURATION, 1);
+        mStartPoint = new Point(0, 0);
+        mEndPoint = new Point(WAVE_WIDTH, 0);
+        mEvaluator = new PointEvaluator();
+        mScroller = new WaveTileScroller(DURATION);
+        mScroller.setTileWidth((int) WAVE_WIDTH);
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        mFrameTimeNanos += FRAME_NANOS;
+        float fraction = (float) mProgress.update(mFrameTimeNanos);
+        return mEvaluator.evaluate(fraction, mStartPoint, mEndPoint);
+    }
+
+    @Benchmark
+    public int scroll() {
+        mFrameTimeNanos += FRAME_NANOS;
+        mScroller.update(mFrameTimeNanos);
+        return mScroller.getOffset();
+    }
+
+    private static final class Point {
+        private final float x;
+        private final float y;
+
+        Point(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final class PointEvaluator {
+        Object evaluate(float fraction, Object startValue, Object endValue) {
+            Point startPoint = (Point) startValue;
+            Point endPoint = (Point) endValue;
+            float x = startPoint.x + fraction * (endPoint.x - startPoint.x);
+            float y = startPoint.y + fraction * (endPoint.y - startPoint.y);
+            return new Point(x, y);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WaveCurveFitter;
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WavePeriodTile;
+import com.kj.anim.wave.core.WavePhase;
+import com.kj.anim.wave.core.WaveTileScroller;
+import com.kj.anim.wave.core.WavesSampler;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.TexturePaint;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title RenderBenchmark
+ * @description 各种实现方式的离屏绘制基准,在普通的Linux JVM上跑(java.awt.headless),不需要设备和模拟器。
+ *              java2d代替android的Canvas,每种方式照着对应View的onDraw画同样的东西:
+ *                  shader:          DoubleWavesShaderView, 两条浪按View宽度缩放后横向平铺
+ *                  calculate:       DoubleWavesRenderer path 模式, 每帧WavesSampler采样后填充渐变的Path
+ *                  calculate_translate: DoubleWavesRenderer translate 模式, 每层一块周期宽的Path只画一次(相当于硬件加速的Path纹理缓存),
+ *                                   每帧平移整数像素贴几次
+ *                  calculate_curve: DoubleWavesRenderer curve 模式, 每帧WaveCurveFitter拟合几段三次贝塞尔曲线后填充
+ *                  animation:       WavePicView, 两组前后两张图整体平移
+ *                  animation_layer: WavePicView 的硬件层合成, 每组图先合成一张,每帧只贴两次
+ *                  value_animation: WaveViewDraw, 一张大图切成上下两层,每层横向平铺画一次
+ *              每帧的耗时记进 {@link FrameTimeHistogram},结果写成json,版本之间可以直接diff。
+ *              java2d和硬件加速的Canvas绝对值没法比,这里只看同一台机器上各方式之间、各版本之间的相对变化。
+ *              用法: RenderBenchmark 图片目录 输出的json [宽 高 帧数]
+ * @created 2017/4/26 14:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public class RenderBenchmark {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int WARMUP_FRAMES = 120;
+    private static final int DEFAULT_FRAMES = 600;
+    private static final int DEFAULT_WIDTH = 1920;
+    private static final int DEFAULT_HEIGHT = 1080;
+    private static final int DESIGN_WIDTH = 1920;      //图片是按1920宽的屏画的
+    private static final float X_SPACE = 20;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * 一种实现方式,每帧先算再画
+     */
+    interface Strategy {
+        String getName();
+
+        void frame(Graphics2D g, long frameTimeNanos);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: RenderBenchmark <drawable dir> <report.json> [width height frames]");
+            System.exit(1);
+        }
+        File resDir = new File(args[0]);
+        File report = new File(args[1]);
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WIDTH;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_HEIGHT;
+        int frames = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_FRAMES;
+
+        List<Strategy> strategies = new ArrayList<>();
+        strategies.add(new ShaderStrategy(ImageIO.read(new File(resDir, "pic_wave_tt.png")), width, height));
+        strategies.add(new CalculateStrategy(width, height));
+        strategies.add(new CalculateTranslateStrategy(width, height));
+        strategies.add(new CalculateCurveStrategy(width, height));
+        strategies.add(new AnimationStrategy(ImageIO.read(new File(resDir, "ic_wave_back.png")),
+                ImageIO.read(new File(resDir, "ic_wave_front.png")), height));
+        strategies.add(new LayerAnimationStrategy(ImageIO.read(new File(resDir, "ic_wave_back.png")),
+                ImageIO.read(new File(resDir, "ic_wave_front.png")), height));
+        strategies.add(new ValueAnimationStrategy(ImageIO.read(new File(resDir, "ic_wave_total.png"))));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        List<FrameTimeHistogram> results = new ArrayList<>();
+        for (Strategy strategy : strategies) {
+            results.add(run(strategy, target, frames));
+        }
+        writeReport(report, width, height, frames, strategies, results);
+        System.out.println("render benchmark report: " + report.getAbsolutePath());
+    }
+
+    private static FrameTimeHistogram run(Strategy strategy, BufferedImage target, int frames) {
+        FrameTimeHistogram histogram = new FrameTimeHistogram();
+        long frameTimeNanos = 0;
+        for (int i = 0; i < WARMUP_FRAMES + frames; i++) {
+            frameTimeNanos += FRAME_NANOS;
+            Graphics2D g = target.createGraphics();
+            long start = System.nanoTime();
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            strategy.frame(g, frameTimeNanos);
+            long cost = System.nanoTime() - start;
+            g.dispose();
+            if (i >= WARMUP_FRAMES) {
+                histogram.record(cost);
+            }
+        }
+        return histogram;
+    }
+
+    private static void writeReport(File report, int width, int height, int frames,
+                                    List<Strategy> strategies, List<FrameTimeHistogram> results) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"os\": \"").append(System.getProperty("os.name")).append(' ')
+                .append(System.getProperty("os.arch")).append("\",\n");
+        json.append("  \"width\": ").append(width).append(",\n");
+        json.append("  \"height\": ").append(height).append(",\n");
+        json.append("  \"frames\": ").append(frames).append(",\n");
+        json.append("  \"strategies\": [\n");
+        for (int i = 0; i < strategies.size(); i++) {
+            FrameTimeHistogram h = results.get(i);
+            json.append("    {\"name\": \"").append(strategies.get(i).getName()).append('"')
+                    .append(", \"p50Ms\": ").append(millis(h.getP50()))
+                    .append(", \"p95Ms\": ").append(millis(h.getP95()))
+                    .append(", \"p99Ms\": ").append(millis(h.getP99()))
+                    .append(", \"maxMs\": ").append(millis(h.getMax()))
+                    .append(", \"meanMs\": ").append(millis(h.getMean()))
+                    .append('}').append(i < strategies.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+
+        File dir = report.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * 按宽度缩放,和 WaveBitmapDecoder.decodeToWidth 一样宽高同比例
+     */
+    private static BufferedImage scaleToWidth(BufferedImage source, int width) {
+        int height = Math.max(1, Math.round(source.getHeight() * (float) width / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * DoubleWavesShaderView: BitmapShader REPEAT 对应 TexturePaint,平移锚点
+     */
+    static final class ShaderStrategy implements Strategy {
+        private static final int BAND_COUNT = 2;
+
+        private final BufferedImage[] mBands = new BufferedImage[BAND_COUNT];
+        private final WavePhase[] mPhases = {new WavePhase(1000.0 / 20000, 1), new WavePhase(1000.0 / 40000, 1)};
+        private final int mWidth;
+        private final int mHeight;
+
+        ShaderStrategy(BufferedImage sheet, int width, int height) {
+            BufferedImage scaled = scaleToWidth(sheet, width);
+            int bandHeight = scaled.getHeight() / BAND_COUNT;
+            for (int i = 0; i < BAND_COUNT; i++) {
+                mBands[i] = scaled.getSubimage(0, i * bandHeight, width, bandHeight);
+            }
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public String getName() {
+            return "shader";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            for (int i = 0; i < BAND_COUNT; i++) {
+                BufferedImage band = mBands[i];
+                int offset = (int) (mPhases[i].update(frameTimeNanos) * band.getWidth());
+                //TexturePaint的锚点不能改,只能每帧new一个,对应android里 shader.setLocalMatrix
+                g.setPaint(new TexturePaint(band, new Rectangle(offset, 0, band.getWidth(), band.getHeight())));
+                g.fillRect(0, 0, mWidth, Math.min(mHeight, band.getHeight()));  //CLAMP下面是透明的,只画有图的部分
+            }
+        }
+    }
+
+    /**
+     * DoubleWavesRenderer: 默认两层,渐变从浪尖到底部
+     */
+    static final class CalculateStrategy implements Strategy {
+        private final WavesSampler mSampler = new WavesSampler();
+        private final WavePhase mClock = new WavePhase(1);
+        private final Path2D.Float[] mPaths = {new Path2D.Float(), new Path2D.Float()};
+        private final GradientPaint[] mPaints = new GradientPaint[2];
+        private final AlphaComposite[] mComposites = new AlphaComposite[2];
+        private final int mWidth;
+        private final int mHeight;
+
+        CalculateStrategy(int width, int height) {
+            List<WaveLayer> layers = new ArrayList<>(2);
+            layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0x666837f4, 0x006837f4));
+            layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0x4d7743fb, 0x007743fb));
+            int[] alphas = {102, 77};
+            mSampler.setLayers(layers);
+            mSampler.resize(width + X_SPACE, X_SPACE, width, Math.max(52, height * 0.2f));
+            mClock.setPeriod(mSampler.getCommonPeriod());
+            for (int l = 0; l < 2; l++) {
+                WaveLayer layer = layers.get(l);
+                mPaints[l] = new GradientPaint(0, mSampler.getCrestTop(l), new Color(layer.getColor(), true),
+                        0, height, new Color(layer.getColorAfter(), true));
+                mComposites[l] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alphas[l] / 255f);
+            }
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public String getName() {
+            return "calculate";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            mSampler.sample(mClock.update(frameTimeNanos));
+            float[] samples = mSampler.getSamples();
+            int layerCount = mSampler.getLayerCount();
+            for (int l = 0; l < layerCount; l++) {
+                Path2D.Float path = mPaths[l];
+                path.reset();
+                path.moveTo(0, mHeight + 2);
+                for (int i = 0, count = mSampler.getCount(); i < count; i++) {
+                    path.lineTo(mSampler.getX(i), samples[i * layerCount + l]);
+                }
+                path.lineTo(mWidth, mHeight + 2);
+                path.closePath();
+                g.setPaint(mPaints[l]);
+                g.setComposite(mComposites[l]);
+                g.fill(path);
+            }
+        }
+    }
+
+    /**
+     * DoubleWavesRenderer 的 translate 模式。硬件加速时凹的Path光栅化成纹理缓存起来,Path不变就不重画;
+     * java2d没有这个缓存,建Path时直接画成图,渐变是竖直的,烘进图里和画时再上色一样
+     */
+    static final class CalculateTranslateStrategy implements Strategy {
+        private final WavePhase mClock = new WavePhase(1);
+        private final WavePeriodTile[] mTiles = {new WavePeriodTile(), new WavePeriodTile()};
+        private final BufferedImage[] mTileImages = new BufferedImage[2];
+        private final AlphaComposite[] mComposites = new AlphaComposite[2];
+        private final int mWidth;
+
+        CalculateTranslateStrategy(int width, int height) {
+            List<WaveLayer> layers = new ArrayList<>(2);
+            layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0x666837f4, 0x006837f4));
+            layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0x4d7743fb, 0x007743fb));
+            int[] alphas = {102, 77};
+            WavesSampler all = new WavesSampler();
+            all.setLayers(layers);
+            float baseLine = Math.max(52, height * 0.2f);
+            all.resize(0, 1, width, baseLine);
+            mClock.setPeriod(all.getCommonPeriod());
+
+            WavesSampler sampler = new WavesSampler();
+            for (int l = 0; l < 2; l++) {
+                WavePeriodTile tile = mTiles[l];
+                tile.layout(width, layers.get(l));
+                WaveLayer layer = new WaveLayer(layers.get(l));
+                layer.setWavelength(tile.getWavelength());
+                List<WaveLayer> single = new ArrayList<>(1);
+                single.add(layer);
+                sampler.setLayers(single);
+                sampler.resize(tile.getWidth(), X_SPACE, width, baseLine);
+                sampler.sample(0);
+
+                Path2D.Float path = new Path2D.Float();
+                path.moveTo(0, height + 2);
+                for (int i = 0, count = sampler.getCount(); i < count; i++) {
+                    path.lineTo(sampler.getX(i), sampler.getY(0, i));
+                }
+                path.lineTo(tile.getWidth(), sampler.getY(0, 0));
+                path.lineTo(tile.getWidth(), height + 2);
+                path.closePath();
+
+                BufferedImage image = new BufferedImage(tile.getWidth(), height, BufferedImage.TYPE_INT_ARGB_PRE);
+                Graphics2D g = image.createGraphics();
+                g.setPaint(new GradientPaint(0, sampler.getCrestTop(0), new Color(layer.getColor(), true),
+                        0, height, new Color(layer.getColorAfter(), true)));
+                g.fill(path);
+                g.dispose();
+                mTileImages[l] = image;
+                mComposites[l] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alphas[l] / 255f);
+            }
+            mWidth = width;
+        }
+
+        @Override
+        public String getName() {
+            return "calculate_translate";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            double seconds = mClock.update(frameTimeNanos);
+            for (int l = 0; l < 2; l++) {
+                g.setComposite(mComposites[l]);
+                int step = mTiles[l].getWidth();
+                for (int x = mTiles[l].offsetAt(seconds); x < mWidth; x += step) {
+                    g.drawImage(mTileImages[l], x, 0, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * DoubleWavesRenderer 的 curve 模式: 和 calculate 一样每帧重建Path,只是点换成了几段曲线
+     */
+    static final class CalculateCurveStrategy implements Strategy {
+        private final WaveCurveFitter mFitter = new WaveCurveFitter();
+        private final WavePhase mClock = new WavePhase(1);
+        private final Path2D.Float[] mPaths = {new Path2D.Float(), new Path2D.Float()};
+        private final GradientPaint[] mPaints = new GradientPaint[2];
+        private final AlphaComposite[] mComposites = new AlphaComposite[2];
+        private final int mWidth;
+        private final int mHeight;
+
+        CalculateCurveStrategy(int width, int height) {
+            List<WaveLayer> layers = new ArrayList<>(2);
+            layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0x666837f4, 0x006837f4));
+            layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0x4d7743fb, 0x007743fb));
+            int[] alphas = {102, 77};
+            WavesSampler all = new WavesSampler();
+            all.setLayers(layers);
+            float baseLine = Math.max(52, height * 0.2f);
+            all.resize(0, 1, width, baseLine);
+            mClock.setPeriod(all.getCommonPeriod());
+            mFitter.setLayers(layers);
+            mFitter.resize(width, width, baseLine);
+            for (int l = 0; l < 2; l++) {
+                WaveLayer layer = layers.get(l);
+                mPaints[l] = new GradientPaint(0, baseLine - layer.getAmplitude(), new Color(layer.getColor(), true),
+                        0, height, new Color(layer.getColorAfter(), true));
+                mComposites[l] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alphas[l] / 255f);
+            }
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public String getName() {
+            return "calculate_curve";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            mFitter.fit(mClock.update(frameTimeNanos), 0);
+            for (int l = 0; l < 2; l++) {
+                float[] points = mFitter.getPoints(l);
+                Path2D.Float path = mPaths[l];
+                path.reset();
+                path.moveTo(0, mHeight + 2);
+                path.lineTo(points[0], points[1]);
+                for (int s = 0, p = 2, count = mFitter.getSegmentCount(l); s < count; s++, p += 6) {
+                    path.curveTo(points[p], points[p + 1], points[p + 2], points[p + 3], points[p + 4], points[p + 5]);
+                }
+                path.lineTo(mWidth, mHeight + 2);
+                path.closePath();
+                g.setPaint(mPaints[l]);
+                g.setComposite(mComposites[l]);
+                g.fill(path);
+            }
+        }
+    }
+
+    /**
+     * WavePicView: 左边和中间两组图一起平移,每组是下层图+上层图
+     */
+    static final class AnimationStrategy implements Strategy {
+        private final Image mBack;
+        private final Image mFront;
+        private final int mBackTop;
+        private final int mFrontTop;
+        private final WavePhase mTranslation = new WavePhase(DESIGN_WIDTH * 1000.0 / 16000, DESIGN_WIDTH);
+
+        AnimationStrategy(BufferedImage back, BufferedImage front, int height) {
+            mBack = back;
+            mFront = front;
+            mBackTop = height - back.getHeight();       //layout_gravity bottom
+            mFrontTop = height - Math.max(back.getHeight(), front.getHeight());
+        }
+
+        @Override
+        public String getName() {
+            return "animation";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            int translationX = (int) mTranslation.update(frameTimeNanos);
+            for (int left = translationX - DESIGN_WIDTH; left <= translationX; left += DESIGN_WIDTH) {
+                g.drawImage(mBack, left, mBackTop, DESIGN_WIDTH, mBack.getHeight(null), null);
+                g.drawImage(mFront, left, mFrontTop, DESIGN_WIDTH, mFront.getHeight(null), null);
+            }
+        }
+    }
+
+    /**
+     * WavePicView 的硬件层合成: 每组图(下层图+上层图)只光栅化一次,每帧只把两个层平移着贴上去
+     */
+    static final class LayerAnimationStrategy implements Strategy {
+        private final BufferedImage mLayer;
+        private final int mLayerTop;
+        private final WavePhase mTranslation = new WavePhase(DESIGN_WIDTH * 1000.0 / 16000, DESIGN_WIDTH);
+
+        LayerAnimationStrategy(BufferedImage back, BufferedImage front, int height) {
+            int layerHeight = Math.max(back.getHeight(), front.getHeight());
+            mLayer = new BufferedImage(DESIGN_WIDTH, layerHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = mLayer.createGraphics();
+            g.drawImage(back, 0, layerHeight - back.getHeight(), DESIGN_WIDTH, back.getHeight(), null);
+            g.drawImage(front, 0, 0, DESIGN_WIDTH, front.getHeight(), null);
+            g.dispose();
+            mLayerTop = height - layerHeight;
+        }
+
+        @Override
+        public String getName() {
+            return "animation_layer";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            int translationX = (int) mTranslation.update(frameTimeNanos);
+            for (int left = translationX - DESIGN_WIDTH; left <= translationX; left += DESIGN_WIDTH) {
+                g.drawImage(mLayer, left, mLayerTop, null);
+            }
+        }
+    }
+
+    /**
+     * WaveViewDraw: 一张图上下两层,两层同一个偏移量,每层一次平铺
+     */
+    static final class ValueAnimationStrategy implements Strategy {
+        private static final int LAYER_COUNT = 2;
+
+        private final BufferedImage[] mBands = new BufferedImage[LAYER_COUNT];
+        private final WaveTileScroller mScroller = new WaveTileScroller(16000);
+
+        ValueAnimationStrategy(BufferedImage total) {
+            int bandHeight = total.getHeight() / LAYER_COUNT;
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                mBands[i] = total.getSubimage(0, i * bandHeight, total.getWidth(), bandHeight);
+            }
+            mScroller.setTileWidth(total.getWidth());
+        }
+
+        @Override
+        public String getName() {
+            return "value_animation";
+        }
+
+        @Override
+        public void frame(Graphics2D g, long frameTimeNanos) {
+            mScroller.update(frameTimeNanos);
+            int offset = mScroller.getOffset();
+            for (BufferedImage band : mBands) {
+                //TexturePaint对应android里横向REPEAT的BitmapShader
+                g.setPaint(new TexturePaint(band, new Rectangle(offset, 0, band.getWidth(), band.getHeight())));
+                g.fillRect(0, 0, DESIGN_WIDTH, band.getHeight());
+            }
+        }
+    }
+}
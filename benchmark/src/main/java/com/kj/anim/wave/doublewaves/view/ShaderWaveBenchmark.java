@@ -0,0 +1,78 @@
+package com.kj.anim.wave.doublewaves.view;
+
+import com.kj.anim.wave.core.WavePhase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title ShaderWaveBenchmark
+ * @description DoubleWavesShaderView.Wave 每帧的计算: 相位 -> setWavePos -> 平移矩阵。
+ *              android.graphics.Matrix 是native的,这里用和 Matrix.setTranslate 一样的9个float代替,
+ *              量的是Java这一侧的开销。
+ *              WavePicView 每帧也只是一次相位计算,和这里的 phase 一样。
+ * @created 2017/4/26 10:55
+ * @changeRecord [修改记录] <br/>
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShaderWaveBenchmark {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int BITMAP_WIDTH = 1920;
+
+    private WavePhase mBackPhase;
+    private WavePhase mFrontPhase;
+    private long mFrameTimeNanos;
+    private int mBackOffset;
+    private int mFrontOffset;
+    private int mInvalidates;
+    private final float[] mMatrix = new float[9];
+
+    @Setup
+    public void setUp() {
+        mBackPhase = new WavePhase(1000.0 / 20000, 1);
+        mFrontPhase = new WavePhase(1000.0 / 40000, 1);
+    }
+
+    @Benchmark
+    public float[] frame() {
+        mFrameTimeNanos += FRAME_NANOS;
+        mBackOffset = setWavePos(mBackOffset, (int) (mBackPhase.update(mFrameTimeNanos) * BITMAP_WIDTH));
+        mFrontOffset = setWavePos(mFrontOffset, (int) (mFrontPhase.update(mFrameTimeNanos) * BITMAP_WIDTH));
+        setTranslate(mBackOffset);
+        setTranslate(mFrontOffset);
+        return mMatrix;
+    }
+
+    private int setWavePos(int offset, int pos) {
+        if (offset != pos) {
+            mInvalidates++;
+        }
+        return pos;
+    }
+
+    private void setTranslate(float dx) {
+        float[] m = mMatrix;
+        m[0] = 1; m[1] = 0; m[2] = dx;
+        m[3] = 0; m[4] = 1; m[5] = 0;
+        m[6] = 0; m[7] = 0; m[8] = 1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title MathWaveEvaluator
+ * @description 用Math.sin双精度求值,就是原来calculatePath()里的算法,作为查表方式的精度参考
+ * @created 2017/4/7 14:10
+ * @changeRecord [修改记录] <br/>
+ */
+
+final class MathWaveEvaluator implements WaveEvaluator {
+
+    private int mCount;
+    private int mLayerCount;
+    private float mXSpace;
+    private double[] mOmegas = new double[0];
+    private double[] mPhases = new double[0];
+
+    @Override
+    public void prepare(int count, float xSpace, double[] omegas, int layerCount) {
+        mCount = count;
+        mLayerCount = layerCount;
+        mXSpace = xSpace;
+        if (mOmegas.length < layerCount) {
+            mOmegas = new double[layerCount];
+            mPhases = new double[layerCount];
+        }
+        System.arraycopy(omegas, 0, mOmegas, 0, layerCount);
+    }
+
+    @Override
+    public void setPhases(double[] phases) {
+        System.arraycopy(phases, 0, mPhases, 0, mLayerCount);
+    }
+
+    @Override
+    public void evaluate(float[] amplitudes, float baseLine, float[] out, int from, int to) {
+        final int layerCount = mLayerCount;
+        final double[] phases = mPhases;
+        for (int i = from; i < to; i++) {
+            double x = i * mXSpace;
+            int column = i * layerCount;
+            for (int l = 0; l < layerCount; l++) {
+                out[column + l] = (float) (amplitudes[l] * Math.sin(mOmegas[l] * x + phases[l])) + baseLine;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.kj.anim.wave.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveComputeThread
+ * @description 计算方式在后台线程采样,UI线程只拿算好的结果建Path、画。
+ *              技术点+注意点:
+ *                  1.UI线程每帧 {@link #request} 一次(只写两个volatile再unpark),马上返回,不等采样。
+ *                  2.采样结果写进 {@link WaveTripleBuffer} 里的 {@link Frame},UI线程 {@link #getLatest()} 拿最新的完整一帧,
+ *                    两边都不加锁、不等对方,也不会拿到写了一半的帧。UI线程画的是上一次请求的结果,晚一帧。
+ *                  3.参数变化时 {@link #configure} 建一份新的 {@link Config}(复制一份层的参数),后台线程下次采样前换上;
+ *                    每一帧带着算它时用的参数的版本号,UI线程不用旧参数算出来的帧。
+ *                  4.采样器只在后台线程里用,UI线程不碰;每帧不创建对象。
+ * @created 2017/6/20 14:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveComputeThread extends Thread {
+
+    /**
+     * 一帧的采样结果,格式和 {@link WavesSampler#getSamples()} 一样按列交错
+     */
+    public static final class Frame {
+        public float[] samples = new float[0];
+        public int count;
+        public int layerCount;
+        public float xSpace;
+        public int generation;     //算它时用的参数的版本号,0表示还没算过
+        public double seconds;
+
+        public float getX(int index) {
+            return index * xSpace;
+        }
+
+        private void copyFrom(WavesSampler sampler, float xSpace, int generation, double seconds) {
+            int size = sampler.getCount() * sampler.getLayerCount();
+            if (samples.length < size) {
+                samples = new float[size];      //只在点数变多时
+            }
+            System.arraycopy(sampler.getSamples(), 0, samples, 0, size);
+            count = sampler.getCount();
+            layerCount = sampler.getLayerCount();
+            this.xSpace = xSpace;
+            this.generation = generation;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * 采样的参数,建好以后不再改
+     */
+    private static final class Config {
+        final int generation;
+        final List<WaveLayer> layers;
+        final float maxRight;
+        final float xSpace;
+        final float unitWidth;
+        final float baseLine;
+
+        Config(int generation, List<WaveLayer> layers, float maxRight, float xSpace, float unitWidth, float baseLine) {
+            this.generation = generation;
+            this.layers = layers;
+            this.maxRight = maxRight;
+            this.xSpace = xSpace;
+            this.unitWidth = unitWidth;
+            this.baseLine = baseLine;
+        }
+    }
+
+    private final WavesSampler mSampler;
+    private final WaveTripleBuffer<Frame> mFrames = new WaveTripleBuffer<>(new Frame(), new Frame(), new Frame());
+    private volatile Config mConfig;
+    private Config mApplied;            //后台线程现在用的参数
+    private int mGeneration;            //UI线程最后一次configure的版本号
+    private volatile long mRequest;     //UI线程每请求一次加1
+    private volatile double mSeconds;
+    private volatile boolean mQuit;
+
+    /**
+     * @param evaluatorType 求sin的方式
+     * @param pool          并行采样的线程池,null表示只在这个线程里算
+     */
+    public WaveComputeThread(int evaluatorType, WaveWorkerPool pool) {
+        super("WaveCompute");
+        mSampler = new WavesSampler(evaluatorType);
+        mSampler.setWorkerPool(pool);
+        setDaemon(true);
+    }
+
+    /**
+     * UI线程调用,参数和 {@link WavesSampler#setLayers}/{@link WavesSampler#resize} 一样
+     *
+     * @return 这份参数的版本号,{@link Frame#generation} 等于它的帧才是按这份参数算的
+     */
+    public int configure(List<WaveLayer> layers, float maxRight, float xSpace, float unitWidth, float baseLine) {
+        List<WaveLayer> copy = new ArrayList<>(layers.size());
+        for (int l = 0; l < layers.size(); l++) {
+            copy.add(new WaveLayer(layers.get(l)));
+        }
+        mConfig = new Config(++mGeneration, copy, maxRight, xSpace, unitWidth, baseLine);
+        return mGeneration;
+    }
+
+    /**
+     * UI线程每帧调用,请求按这个时间算一帧,马上返回
+     *
+     * @param seconds 浪走过的秒数
+     */
+    public void request(double seconds) {
+        mSeconds = seconds;
+        mRequest++;         //只有UI线程写
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * UI线程调用
+     *
+     * @return 最新算好的一帧,什么都没算好时 generation 为0
+     */
+    public Frame getLatest() {
+        return mFrames.getLatest();
+    }
+
+    /**
+     * 停掉线程,之后不能再用
+     */
+    public void quit() {
+        mQuit = true;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        long done = 0;
+        while (!mQuit) {
+            long request = mRequest;
+            if (request == done) {
+                LockSupport.park(this);
+                continue;
+            }
+            done = request;
+            double seconds = mSeconds;      //两次请求之间被新的覆盖了就直接算新的
+            Config config = mConfig;
+            if (config == null) {
+                continue;
+            }
+            if (config != mApplied) {
+                mApplied = config;
+                mSampler.setLayers(config.layers);
+                mSampler.resize(config.maxRight, config.xSpace, config.unitWidth, config.baseLine);
+            }
+            mSampler.sample(seconds);
+            mFrames.getWriteBuffer().copyFrom(mSampler, config.xSpace, config.generation, seconds);
+            mFrames.publish();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.kj.anim.wave.core;
+
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveCurveFitter
+ * @description 计算方式的曲线模式: 每层浪用几段三次贝塞尔曲线拼起来,代替每 xSpace 一段的折线。
+ *              技术点+注意点:
+ *                  1.每段的两个端点取浪上的点,控制点按端点的斜率放在三分之一处(三次Hermite插值),x方向是均匀的,
+ *                    所以曲线和 y = A * sin(ωx + φ) + baseLine 的误差上界是 A * (ωh)^4 / 384,h是一段的宽度。
+ *                  2.按允许的最大误差(像素)倒推一个周期分几段({@link #segmentsPerPeriod}),浪高、波长短的段多,
+ *                    平缓的段少;一个周期正好分完,每段宽度一样,不会有一段特别差。
+ *                  3.二次曲线的误差只按 h^3 下降,同样的误差要多一倍左右的段,所以只用三次的。
+ *                  4.数组只在 {@link #setLayers}/{@link #resize} 时重新分配,{@link #fit} 每帧调用不会产生任何对象。
+ *              结果按层存放: getPoints(l) 是 [x0, y0, 控制点1 x, y, 控制点2 x, y, 终点 x, y, ...],每段6个数。
+ * @created 2017/6/23 10:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveCurveFitter {
+
+    public static final float DEFAULT_MAX_ERROR = 0.5f;    //像素
+
+    private static final double PI2 = 2 * Math.PI;
+    private static final double HERMITE_ERROR_DIVISOR = 384;   //三次Hermite插值误差 max|f''''| * h^4 / 384
+    private static final float MIN_SEGMENT_WIDTH = 1;          //再细也没有意义,按像素算
+
+    private float mMaxError = DEFAULT_MAX_ERROR;
+    private float mRight;
+    private float mWidth;
+    private float mBaseLine;
+
+    private int mLayerCount;
+    private float[] mAmplitudes = new float[0];
+    private float[] mWavelengths = new float[0];
+    private float[] mSpeeds = new float[0];
+    private float[] mInitialPhases = new float[0];
+    private double[] mOmegas = new double[0];
+    private float[] mSegmentWidths = new float[0];
+    private int[] mSegments = new int[0];
+    private float[][] mPoints = new float[0][];
+
+    /**
+     * 设置允许的最大误差,之后要重新 {@link #resize}
+     *
+     * @param maxError 曲线和真正的浪最多差几个像素,小于等于0时用 {@link #DEFAULT_MAX_ERROR}
+     */
+    public void setMaxError(float maxError) {
+        mMaxError = maxError > 0 ? maxError : DEFAULT_MAX_ERROR;
+        layout();
+    }
+
+    public float getMaxError() {
+        return mMaxError;
+    }
+
+    /**
+     * 设置所有层,和 {@link WavesSampler#setLayers} 一样
+     */
+    public void setLayers(List<WaveLayer> layers) {
+        mLayerCount = layers.size();
+        if (mAmplitudes.length < mLayerCount) {
+            mAmplitudes = new float[mLayerCount];
+            mWavelengths = new float[mLayerCount];
+            mSpeeds = new float[mLayerCount];
+            mInitialPhases = new float[mLayerCount];
+            mOmegas = new double[mLayerCount];
+            mSegmentWidths = new float[mLayerCount];
+            mSegments = new int[mLayerCount];
+            float[][] points = new float[mLayerCount][];
+            System.arraycopy(mPoints, 0, points, 0, mPoints.length);
+            mPoints = points;
+        }
+        for (int l = 0; l < mLayerCount; l++) {
+            WaveLayer layer = layers.get(l);
+            mAmplitudes[l] = layer.getAmplitude();
+            mWavelengths[l] = layer.getWavelength();
+            mSpeeds[l] = layer.getSpeed();
+            mInitialPhases[l] = layer.getPhase();
+        }
+        layout();
+    }
+
+    /**
+     * 尺寸变化时调用,只有段数变多时才重新分配数组
+     *
+     * @param right    曲线至少画到这个x坐标
+     * @param width    波长按它的倍数算
+     * @param baseLine 浪的中线y坐标
+     */
+    public void resize(float right, float width, float baseLine) {
+        mRight = Math.max(0, right);
+        mWidth = width;
+        mBaseLine = baseLine;
+        layout();
+    }
+
+    private void layout() {
+        for (int l = 0; l < mLayerCount; l++) {
+            float period = mWidth * mWavelengths[l];
+            float amplitude = Math.abs(mAmplitudes[l]);
+            float segmentWidth;
+            if (period > 0 && amplitude > 0) {
+                int perPeriod = Math.min(segmentsPerPeriod(amplitude, mMaxError), Math.max(1, (int) (period / MIN_SEGMENT_WIDTH)));
+                segmentWidth = period / perPeriod;
+                mOmegas[l] = PI2 / period;
+            } else {
+                segmentWidth = Math.max(MIN_SEGMENT_WIDTH, mRight);    //平的,一段直线
+                mOmegas[l] = 0;
+            }
+            int segments = Math.max(1, (int) Math.ceil(mRight / segmentWidth));
+            mSegmentWidths[l] = segmentWidth;
+            mSegments[l] = segments;
+            int size = 2 + segments * 6;
+            if (mPoints[l] == null || mPoints[l].length < size) {
+                mPoints[l] = new float[size];
+            }
+        }
+    }
+
+    /**
+     * 一个周期至少分几段,误差才不超过 maxError
+     *
+     * @param amplitude 振幅(像素)
+     * @param maxError  允许的最大误差(像素)
+     */
+    public static int segmentsPerPeriod(float amplitude, float maxError) {
+        if (amplitude <= 0) {
+            return 1;
+        }
+        double maxAngle = Math.pow(HERMITE_ERROR_DIVISOR * maxError / amplitude, 0.25);    //一段最多跨多少弧度
+        return Math.max(1, (int) Math.ceil(PI2 / maxAngle - 1e-9));
+    }
+
+    /**
+     * 按时间算一帧所有层的曲线,相位和 {@link WavesSampler#sample} 一样是 初始相位 + 速度 * 时间
+     *
+     * @param seconds 浪走过的时间(秒)
+     * @param originX 第0段起点在整条浪里的x坐标(拼墙时是这个View在墙里的位置),结果里的x都从0开始
+     */
+    public void fit(double seconds, float originX) {
+        final float baseLine = mBaseLine;
+        for (int l = 0; l < mLayerCount; l++) {
+            final double amplitude = mAmplitudes[l];
+            final double omega = mOmegas[l];
+            final double phase = WavePhase.wrap(mInitialPhases[l] + mSpeeds[l] * seconds, PI2) + omega * originX;
+            final float h = mSegmentWidths[l];
+            final float third = h / 3;
+            final float[] points = mPoints[l];
+
+            double angle = phase;
+            float y = (float) (amplitude * Math.sin(angle)) + baseLine;
+            float slope = (float) (amplitude * omega * Math.cos(angle));
+            points[0] = 0;
+            points[1] = y;
+            for (int s = 0, p = 2; s < mSegments[l]; s++, p += 6) {
+                float x0 = s * h;
+                float x1 = (s + 1) * h;
+                points[p] = x0 + third;
+                points[p + 1] = y + slope * third;
+                angle = omega * x1 + phase;
+                y = (float) (amplitude * Math.sin(angle)) + baseLine;
+                slope = (float) (amplitude * omega * Math.cos(angle));
+                points[p + 2] = x1 - third;
+                points[p + 3] = y - slope * third;
+                points[p + 4] = x1;
+                points[p + 5] = y;
+            }
+        }
+    }
+
+    public int getLayerCount() {
+        return mLayerCount;
+    }
+
+    /**
+     * @return 这一层有几段曲线
+     */
+    public int getSegmentCount(int layer) {
+        return mSegments[layer];
+    }
+
+    /**
+     * @return 这一层的起点和每段的控制点、终点,见类的说明
+     */
+    public float[] getPoints(int layer) {
+        return mPoints[layer];
+    }
+
+    /**
+     * @return 这一层曲线和真正的浪之间误差的上界(像素)
+     */
+    public float getErrorBound(int layer) {
+        double angle = mOmegas[layer] * mSegmentWidths[layer];
+        return (float) (Math.abs(mAmplitudes[layer]) * Math.pow(angle, 4) / HERMITE_ERROR_DIVISOR);
+    }
+}
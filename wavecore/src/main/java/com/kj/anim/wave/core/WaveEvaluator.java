@@ -0,0 +1,47 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveEvaluator
+ * @description 多层浪的求值器,一次循环把所有层都算出来:
+ *              out[i * layerCount + l] = amplitude[l] * sin(omega[l] * x[i] + phase[l]) + baseLine, 其中 x[i] = i * xSpace
+ *              结果按列交错存放,同一列所有层的数据挨在一起。
+ *              {@link MathWaveEvaluator}  直接调用Math.sin,作为参考实现
+ *              {@link TableWaveEvaluator} 查正弦表+线性插值,计算方式默认用这个
+ *              每帧先 {@link #setPhases} 一次,再按列分段 {@link #evaluate};不同的段可以在不同的线程里同时算。
+ * @created 2017/4/7 14:02
+ * @changeRecord [修改记录] <br/>
+ */
+
+interface WaveEvaluator {
+
+    /**
+     * 尺寸或者角频率变化时调用,在这里预计算每一列的相位,不要在每帧里调用
+     *
+     * @param count      采样点个数
+     * @param xSpace     采样间隔
+     * @param omegas     每一层的角频率
+     * @param layerCount 层数
+     */
+    void prepare(int count, float xSpace, double[] omegas, int layerCount);
+
+    /**
+     * 设置这一帧每一层的相位,每帧在 {@link #evaluate} 之前调用一次,不能创建对象
+     *
+     * @param phases 每一层当前的相位(弧度)
+     */
+    void setPhases(double[] phases);
+
+    /**
+     * 求一帧里 [from, to) 这几列的y坐标,不能创建对象。
+     * 只读 prepare/setPhases 准备好的数据、只写这几列,不同的列可以在多个线程里同时算
+     *
+     * @param amplitudes 每一层的振幅
+     * @param baseLine   中线y坐标
+     * @param out        结果,长度不小于 count * layerCount
+     * @param from       第一列
+     * @param to         最后一列的下一列
+     */
+    void evaluate(float[] amplitudes, float baseLine, float[] out, int from, int to);
+}
@@ -0,0 +1,207 @@
+package com.kj.anim.wave.core;
+
+import java.util.Arrays;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveFrameRing
+ * @description 计算方式的浪是周期性的: 每层的相位 = 初始相位 + 速度 * t,所有层的速度能凑出一个公共周期时,
+ *              一个周期以后画面完全重复。本类把一个周期按固定帧率量化成若干帧,缓存每帧所有层的采样结果(列高度),
+ *              第一圈边算边存,之后直接拷贝,不再求sin。
+ *              技术点+注意点:
+ *                  1.公共周期: 每层的周期是 2π/|speed|,在 MAX_PERIOD_MULTIPLE 倍以内找所有层都能整除的最小周期,找不到就不缓存。
+ *                    速度是float,一个周期后每层的相位多少会差一点(残差 Δφ),绕回时画面会跳一下: 竖直方向最多 振幅*Δφ,
+ *                    横向浪整个平移 波长*Δφ/2π。按当前的振幅和波长(像素)算,两个都不超过 {@link #MAX_WRAP_ERROR} 才算重复,
+ *                    只按弧度判断的话,宽屏上波长几千像素,千分之一弧度就平移半个像素。
+ *                  2.每个周期的帧数 = ceil(周期 * 帧率),帧间隔再按周期均分,首尾正好接上,不会跳。
+ *                  3.内存 = 帧数 * 每帧的点数 * 4字节(加上每帧一个标记),超过预算就不缓存,由调用方继续实时计算。
+ *                  4.数组只在 {@link #configure} 时按需要的大小分配,变小时也重新分配,不启用时放掉,
+ *                    实际留着的内存({@link #getByteCount()})总是在预算以内;{@link #load}/{@link #store} 不创建对象。
+ * @created 2017/4/24 14:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveFrameRing {
+
+    public static final int MAX_PERIOD_MULTIPLE = 8;          //公共周期最多是最慢那层周期的几倍
+    public static final double MAX_WRAP_ERROR = 0.25;         //绕回时画面最多跳多少像素,以内算重复
+
+    private static final double PI2 = 2 * Math.PI;
+
+    private float[] mFrames = new float[0];
+    private boolean[] mFilled = new boolean[0];
+    private int mFrameCount;
+    private int mFrameLength;
+    private int mFilledCount;
+    private double mPeriod;         //秒,0表示没有启用
+    private double mFrameInterval;  //秒
+
+    /**
+     * 按当前的层重新配置,之前缓存的帧全部作废
+     *
+     * @param speeds          每层的速度(弧度/秒)
+     * @param amplitudes      每层的振幅(像素)
+     * @param wavelengths     每层的波长,unitWidth 的倍数
+     * @param unitWidth       波长的单位宽度(像素),还不知道时传0,只按振幅判断
+     * @param layerCount      层数
+     * @param frameLength     每帧的float个数(点数 * 层数)
+     * @param framesPerSecond 量化的帧率
+     * @param budgetBytes     最多用多少字节,小于等于0表示不缓存
+     * @return 是否启用了缓存
+     */
+    public boolean configure(float[] speeds, float[] amplitudes, float[] wavelengths, float unitWidth, int layerCount,
+                             int frameLength, float framesPerSecond, long budgetBytes) {
+        mPeriod = 0;
+        mFrameCount = 0;
+        mFilledCount = 0;
+        if (budgetBytes <= 0 || frameLength <= 0 || framesPerSecond <= 0) {
+            clear();
+            return false;
+        }
+        double period = findCommonPeriod(speeds, amplitudes, wavelengths, unitWidth, layerCount);
+        if (period <= 0) {
+            clear();
+            return false;
+        }
+        int frameCount = (int) Math.ceil(period * framesPerSecond);
+        if ((long) frameCount * frameLength * 4 + frameCount > budgetBytes) {
+            clear();
+            return false;
+        }
+        if (mFrames.length != frameCount * frameLength) {       //以前留下的大数组不能超出这次的预算
+            mFrames = new float[frameCount * frameLength];
+        }
+        if (mFilled.length != frameCount) {
+            mFilled = new boolean[frameCount];
+        }
+        Arrays.fill(mFilled, 0, frameCount, false);
+        mFrameCount = frameCount;
+        mFrameLength = frameLength;
+        mPeriod = period;
+        mFrameInterval = period / frameCount;
+        return true;
+    }
+
+    /**
+     * 所有层的公共周期,参数和 {@link #configure} 一样
+     *
+     * @return 秒,没有(比如速度之比不是整数倍、绕回时会跳超过 {@link #MAX_WRAP_ERROR})或者所有层都不动时返回0
+     */
+    public static double findCommonPeriod(float[] speeds, float[] amplitudes, float[] wavelengths, float unitWidth,
+                                          int layerCount) {
+        double slowest = 0;
+        for (int l = 0; l < layerCount; l++) {
+            if (speeds[l] != 0) {
+                slowest = Math.max(slowest, PI2 / Math.abs(speeds[l]));
+            }
+        }
+        if (slowest == 0) {
+            return 0;
+        }
+        for (int multiple = 1; multiple <= MAX_PERIOD_MULTIPLE; multiple++) {
+            double period = slowest * multiple;
+            if (isPeriod(speeds, amplitudes, wavelengths, unitWidth, layerCount, period)) {
+                return period;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isPeriod(float[] speeds, float[] amplitudes, float[] wavelengths, float unitWidth,
+                                    int layerCount, double period) {
+        for (int l = 0; l < layerCount; l++) {
+            double turns = Math.abs(speeds[l]) * period / PI2;
+            double residual = Math.abs(turns - Math.rint(turns)) * PI2;    //绕回时差的相位(弧度)
+            double scale = Math.max(Math.abs(amplitudes[l]), Math.abs(unitWidth * wavelengths[l]) / PI2);
+            if (residual * scale > MAX_WRAP_ERROR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return mPeriod > 0;
+    }
+
+    /**
+     * @return 一个周期的秒数,没有启用时为0
+     */
+    public double getPeriod() {
+        return mPeriod;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return 已经缓存了几帧,等于 {@link #getFrameCount()} 时一整圈都存好了
+     */
+    public int getFilledCount() {
+        return mFilledCount;
+    }
+
+    /**
+     * @return 占用的字节数
+     */
+    public long getByteCount() {
+        return (long) mFrames.length * 4 + mFilled.length;
+    }
+
+    /**
+     * @param seconds 浪走过的时间
+     * @return 量化到最近的一帧,是一圈里的第几帧
+     */
+    public int frameIndex(double seconds) {
+        double t = seconds % mPeriod;
+        if (t < 0) {
+            t += mPeriod;
+        }
+        int index = (int) (t / mFrameInterval + 0.5);
+        return index < mFrameCount ? index : 0;
+    }
+
+    /**
+     * @return 第index帧对应的时间,这一帧没有缓存时按这个时间算,保证存进来的和以后拷出去的一样
+     */
+    public double frameTime(int index) {
+        return index * mFrameInterval;
+    }
+
+    /**
+     * 把缓存的一帧拷出来
+     *
+     * @return 这一帧还没有缓存时返回false
+     */
+    public boolean load(int index, float[] out) {
+        if (!mFilled[index]) {
+            return false;
+        }
+        System.arraycopy(mFrames, index * mFrameLength, out, 0, mFrameLength);
+        return true;
+    }
+
+    /**
+     * 存一帧
+     */
+    public void store(int index, float[] samples) {
+        System.arraycopy(samples, 0, mFrames, index * mFrameLength, mFrameLength);
+        if (!mFilled[index]) {
+            mFilled[index] = true;
+            mFilledCount++;
+        }
+    }
+
+    /**
+     * 释放缓存的内存,下次 {@link #configure} 时重新分配
+     */
+    public void clear() {
+        mFrames = new float[0];
+        mFilled = new boolean[0];
+        mPeriod = 0;
+        mFrameCount = 0;
+        mFilledCount = 0;
+    }
+}
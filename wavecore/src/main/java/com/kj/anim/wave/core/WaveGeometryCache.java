@@ -0,0 +1,317 @@
+package com.kj.anim.wave.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveGeometryCache
+ * @description 多个计算方式的浪View共用的采样结果,同样参数的浪每帧只算一次。
+ * 技术点+注意点:
+ *      1.按 所有层的参数 + 波长的单位宽度 + 中线 + 求sin的方式 分组,同一组共用一个时钟,相位完全一样。
+ *      2.组里按 采样间隔 + 从第几层开始 各有一个 {@link WavesSampler}(自动画质可能让各个View的档位不同),
+ *        从全局x=0采样到所有引用里最靠右的位置,每个View按自己的全局偏移量取其中一段({@link Handle#getFirstIndex()})。
+ *        RecyclerView里的很多个头部偏移量都是0,共用同一段;拼成一面墙的几个View偏移量依次错开,拼起来是一条连续的浪。
+ *      3.{@link #acquire} 返回一个引用计数的 {@link Handle},不用了调 {@link Handle#release()},没人用的组马上丢掉。
+ *      4.同一帧里第一个调 {@link Handle#sample} 的算,后面的直接用,按帧时间判断是不是同一帧;
+ *        组里所有引用都停下时时钟才暂停,恢复后接着走。
+ *      5.每个线程一份({@link #getInstance()}),只有在同一个线程上画的View才共用;本类不是线程安全的。
+ * @created 2017/6/8 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveGeometryCache {
+
+    private static final long NO_FRAME = Long.MIN_VALUE;
+
+    private static final ThreadLocal<WaveGeometryCache> sInstances = new ThreadLocal<WaveGeometryCache>() {
+        @Override
+        protected WaveGeometryCache initialValue() {
+            return new WaveGeometryCache();
+        }
+    };
+
+    private final HashMap<Key, Group> mGroups = new HashMap<>();
+
+    WaveGeometryCache() {
+    }
+
+    /**
+     * @return 当前线程的实例
+     */
+    public static WaveGeometryCache getInstance() {
+        return sInstances.get();
+    }
+
+    /**
+     * @param layers        所有层,和 {@link WavesSampler#setLayers} 一样
+     * @param firstLayer    画质限制了层数时从这一层开始采样
+     * @param evaluatorType 求sin的方式
+     * @param unitWidth     波长按这个宽度的倍数算,拼成墙时是整面墙的宽度
+     * @param baseLine      浪的中线y坐标
+     * @param xSpace        采样间隔
+     * @param offset        这个View左边在全局的x坐标
+     * @param width         这个View的宽度
+     * @return 引用,不用了一定要release
+     */
+    public Handle acquire(List<WaveLayer> layers, int firstLayer, int evaluatorType, float unitWidth, float baseLine,
+                   float xSpace, float offset, float width) {
+        Key key = new Key(layers, evaluatorType, unitWidth, baseLine);
+        Group group = mGroups.get(key);
+        if (group == null) {
+            group = new Group(key, layers);
+            mGroups.put(key, group);
+        }
+        Geometry geometry = group.find(xSpace, firstLayer);
+        if (geometry == null) {
+            geometry = new Geometry(xSpace, firstLayer, evaluatorType,
+                    firstLayer == 0 ? layers : layers.subList(firstLayer, layers.size()), unitWidth, baseLine);
+            group.geometries.add(geometry);
+        }
+        Handle handle = new Handle(this, group, geometry, offset, width);
+        geometry.handles.add(handle);
+        geometry.updateRight();
+        return handle;
+    }
+
+    /**
+     * @return 现在有几组,测试用
+     */
+    int getGroupCount() {
+        return mGroups.size();
+    }
+
+    private void release(Handle handle) {
+        Group group = handle.group;
+        Geometry geometry = handle.geometry;
+        geometry.handles.remove(handle);
+        if (geometry.handles.isEmpty()) {
+            group.geometries.remove(geometry);
+        } else {
+            geometry.updateRight();
+        }
+        if (group.geometries.isEmpty() && mGroups.get(group.key) == group) {
+            mGroups.remove(group.key);
+        }
+    }
+
+    /**
+     * 一个View对共用采样结果的引用
+     */
+    public static final class Handle {
+        private final WaveGeometryCache cache;
+        private final Group group;
+        private final Geometry geometry;
+        private final float offset;
+        private final float width;
+        private boolean running;
+        private boolean released;
+
+        private Handle(WaveGeometryCache cache, Group group, Geometry geometry, float offset, float width) {
+            this.cache = cache;
+            this.group = group;
+            this.geometry = geometry;
+            this.offset = offset;
+            this.width = width;
+        }
+
+        /**
+         * 只推进共用的时钟,不采样(平移绘制时用)
+         *
+         * @param frameTimeNanos 帧时间
+         * @return 这一组的浪走过的秒数
+         */
+        public double update(long frameTimeNanos) {
+            if (!running) {
+                running = true;
+                group.running++;
+            }
+            return group.update(frameTimeNanos);
+        }
+
+        /**
+         * 推进时钟并采样,同一帧里只有第一次真的算
+         *
+         * @param frameTimeNanos 帧时间
+         */
+        public void sample(long frameTimeNanos) {
+            geometry.sample(update(frameTimeNanos), frameTimeNanos);
+        }
+
+        /**
+         * 停止刷新时调用,组里所有引用都停了时钟才暂停
+         */
+        public void pause() {
+            if (running) {
+                running = false;
+                if (--group.running == 0) {
+                    group.clock.pause();
+                    group.frameTimeNanos = NO_FRAME;
+                }
+            }
+        }
+
+        /**
+         * @return 共用的采样结果,只读
+         */
+        public WavesSampler getSampler() {
+            return geometry.sampler;
+        }
+
+        /**
+         * @return 这个View要用的第一个点,它的x在View左边或者正好在左边
+         */
+        public int getFirstIndex() {
+            return (int) Math.floor(offset / geometry.xSpace);
+        }
+
+        /**
+         * @return 这个View要用的最后一个点的下一个,最后一个点在View右边或者正好在右边
+         */
+        public int getEndIndex() {
+            return Math.min(geometry.sampler.getCount(), (int) Math.ceil((offset + width) / geometry.xSpace) + 1);
+        }
+
+        /**
+         * @return 这个View左边在全局的x坐标,采样点的x减去它就是View里的x
+         */
+        public float getOffset() {
+            return offset;
+        }
+
+        public void release() {
+            if (released) {
+                return;
+            }
+            pause();
+            released = true;
+            cache.release(this);
+        }
+    }
+
+    /**
+     * 同样参数的浪,共用一个时钟
+     */
+    private static final class Group {
+        final Key key;
+        final WavePhase clock = new WavePhase(1);
+        final ArrayList<Geometry> geometries = new ArrayList<>(1);
+        int running;                        //在动的引用数
+        long frameTimeNanos = NO_FRAME;     //时钟最后一次推进到的帧
+        double seconds;
+
+        Group(Key key, List<WaveLayer> layers) {
+            this.key = key;
+            WavesSampler sampler = new WavesSampler();
+            sampler.setLayers(layers);
+            sampler.resize(0, 1, key.unitWidth, key.baseLine);      //只用来判断公共周期,波长要按像素算
+            clock.setPeriod(sampler.getCommonPeriod());
+        }
+
+        double update(long frameTimeNanos) {
+            if (this.frameTimeNanos != frameTimeNanos) {
+                this.frameTimeNanos = frameTimeNanos;
+                seconds = clock.update(frameTimeNanos);
+            }
+            return seconds;
+        }
+
+        Geometry find(float xSpace, int firstLayer) {
+            for (int i = 0; i < geometries.size(); i++) {
+                Geometry geometry = geometries.get(i);
+                if (geometry.xSpace == xSpace && geometry.firstLayer == firstLayer) {
+                    return geometry;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一组里同样采样间隔、同样层数的采样结果
+     */
+    private static final class Geometry {
+        final float xSpace;
+        final int firstLayer;
+        final WavesSampler sampler;
+        final float unitWidth;
+        final float baseLine;
+        final ArrayList<Handle> handles = new ArrayList<>(2);
+        float maxRight = -1;
+        long sampledFrame = NO_FRAME;
+
+        Geometry(float xSpace, int firstLayer, int evaluatorType, List<WaveLayer> layers, float unitWidth, float baseLine) {
+            this.xSpace = xSpace;
+            this.firstLayer = firstLayer;
+            this.unitWidth = unitWidth;
+            this.baseLine = baseLine;
+            sampler = new WavesSampler(evaluatorType);
+            sampler.setLayers(layers);
+        }
+
+        /**
+         * 采样到所有引用里最靠右的位置再多一个点
+         */
+        void updateRight() {
+            float right = 0;
+            for (int i = 0; i < handles.size(); i++) {
+                Handle handle = handles.get(i);
+                right = Math.max(right, handle.offset + handle.width + xSpace);
+            }
+            if (right != maxRight) {
+                maxRight = right;
+                sampler.resize(right, xSpace, unitWidth, baseLine);
+                sampledFrame = NO_FRAME;
+            }
+        }
+
+        void sample(double seconds, long frameTimeNanos) {
+            if (sampledFrame != frameTimeNanos) {
+                sampledFrame = frameTimeNanos;
+                sampler.sample(seconds);
+            }
+        }
+    }
+
+    private static final class Key {
+        final float[] params;       //每层 振幅、波长、速度、初始相位
+        final int evaluatorType;
+        final float unitWidth;
+        final float baseLine;
+
+        Key(List<WaveLayer> layers, int evaluatorType, float unitWidth, float baseLine) {
+            params = new float[layers.size() * 4];
+            for (int l = 0; l < layers.size(); l++) {
+                WaveLayer layer = layers.get(l);
+                params[l * 4] = layer.getAmplitude();
+                params[l * 4 + 1] = layer.getWavelength();
+                params[l * 4 + 2] = layer.getSpeed();
+                params[l * 4 + 3] = layer.getPhase();
+            }
+            this.evaluatorType = evaluatorType;
+            this.unitWidth = unitWidth;
+            this.baseLine = baseLine;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return evaluatorType == key.evaluatorType && Float.compare(unitWidth, key.unitWidth) == 0
+                    && Float.compare(baseLine, key.baseLine) == 0 && Arrays.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(params);
+            result = 31 * result + evaluatorType;
+            result = 31 * result + Float.floatToIntBits(unitWidth);
+            result = 31 * result + Float.floatToIntBits(baseLine);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveLayer
+ * @description 计算方式里的一层浪: y = amplitude * sin(2π / (width * wavelength) * x + phase + speed * t) + 中线
+ *              可以在xml里用 wave_layers 引用一组style(每个style里是 WaveLayer 的属性),也可以在代码里设置。
+ *              layer_amplitude:  振幅,单位px [默认值52]
+ *              layer_wavelength: 波长是View宽度的几倍 [默认值1.5]
+ *              layer_speed:      每秒移动多少弧度,负数往反方向走 [默认值1.2]
+ *              layer_phase:      初始相位,弧度 [默认值0]
+ *              layer_color:      浪尖的颜色 [默认值0x4d7743fb]
+ *              layer_color_after:View底部的颜色 [默认值0x007743fb]
+ *              layer_alpha:      画笔的alpha [默认值255]
+ *              layer_blend_mode: 和下面的层怎么混合 normal/screen/add/multiply/overlay [默认值normal]
+ *              不依赖android类,列表里前面的层先画(在下面)。
+ * @created 2017/4/21 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveLayer {
+
+    public static final int BLEND_NORMAL = 0;
+    public static final int BLEND_SCREEN = 1;
+    public static final int BLEND_ADD = 2;
+    public static final int BLEND_MULTIPLY = 3;
+    public static final int BLEND_OVERLAY = 4;
+
+    public static final float DEFAULT_AMPLITUDE = 52;
+    public static final float DEFAULT_WAVELENGTH = 1.5f;
+    public static final float DEFAULT_SPEED = 1.2f;
+    public static final int DEFAULT_COLOR = 0x4d7743fb;
+    public static final int DEFAULT_COLOR_AFTER = 0x007743fb;
+
+    private float amplitude = DEFAULT_AMPLITUDE;
+    private float wavelength = DEFAULT_WAVELENGTH;
+    private float speed = DEFAULT_SPEED;
+    private float phase;
+    private int color = DEFAULT_COLOR;
+    private int colorAfter = DEFAULT_COLOR_AFTER;
+    private int alpha = 255;
+    private int blendMode = BLEND_NORMAL;
+
+    public WaveLayer() {
+    }
+
+    /**
+     * @param amplitude  振幅,px
+     * @param wavelength 波长是View宽度的几倍
+     * @param speed      弧度/秒
+     * @param phase      初始相位,弧度
+     * @param color      浪尖的颜色
+     * @param colorAfter View底部的颜色
+     */
+    public WaveLayer(float amplitude, float wavelength, float speed, float phase, int color, int colorAfter) {
+        this.amplitude = amplitude;
+        this.wavelength = wavelength;
+        this.speed = speed;
+        this.phase = phase;
+        this.color = color;
+        this.colorAfter = colorAfter;
+    }
+
+    /**
+     * 复制一份,交给别的线程用
+     */
+    public WaveLayer(WaveLayer other) {
+        this(other.amplitude, other.wavelength, other.speed, other.phase, other.color, other.colorAfter);
+        this.alpha = other.alpha;
+        this.blendMode = other.blendMode;
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    public void setAmplitude(float amplitude) {
+        this.amplitude = amplitude;
+    }
+
+    public float getWavelength() {
+        return wavelength;
+    }
+
+    public void setWavelength(float wavelength) {
+        this.wavelength = wavelength;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public float getPhase() {
+        return phase;
+    }
+
+    public void setPhase(float phase) {
+        this.phase = phase;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public int getColorAfter() {
+        return colorAfter;
+    }
+
+    public void setColorAfter(int colorAfter) {
+        this.colorAfter = colorAfter;
+    }
+
+    public int getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+    }
+
+    public int getBlendMode() {
+        return blendMode;
+    }
+
+    /**
+     * @param blendMode {@link #BLEND_NORMAL} {@link #BLEND_SCREEN} {@link #BLEND_ADD} {@link #BLEND_MULTIPLY} {@link #BLEND_OVERLAY}
+     */
+    public void setBlendMode(int blendMode) {
+        this.blendMode = blendMode;
+    }
+}
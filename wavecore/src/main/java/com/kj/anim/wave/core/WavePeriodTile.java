@@ -0,0 +1,91 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WavePeriodTile
+ * @description 计算方式平移绘制时一层浪的平铺参数。一层正弦浪随时间只是整体横移,
+ *              所以只要建一次整数个周期宽的Path,每帧把它平移整数像素、横着铺满View。
+ *              一个周期取整到整像素,相邻两块的接缝落在像素边界上;波长跟着改一点点(不到半个像素),看不出来。
+ *              一块太窄时放几个周期,保证铺满一行最多 {@link #MAX_TILES} + 1 块。
+ *              拼成墙的几个View波长都按墙的宽度算、取整的结果一样,再按各自在墙里的位置错开,拼起来是连续的。
+ * @created 2017/6/2 14:30
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WavePeriodTile {
+
+    public static final int MAX_TILES = 4;     //一块至少是View宽度的 1/MAX_TILES
+
+    private static final double PI2 = 2 * Math.PI;
+
+    private int mWidth;             //一块的宽度(px)
+    private int mPeriods;           //一块里有几个周期,0表示这层是平的
+    private float mWavelength;      //取整后的波长,和 WaveLayer 一样是单位宽度的倍数
+    private float mSpeed;
+
+    /**
+     * 尺寸或者层的参数变化时调用
+     *
+     * @param viewWidth View的宽度
+     * @param layer     这一层浪
+     */
+    public void layout(int viewWidth, WaveLayer layer) {
+        layout(viewWidth, viewWidth, layer);
+    }
+
+    /**
+     * @param viewWidth View的宽度,决定一块放几个周期
+     * @param unitWidth 波长按这个宽度的倍数算,拼成墙时是整面墙的宽度
+     * @param layer     这一层浪
+     */
+    public void layout(int viewWidth, float unitWidth, WaveLayer layer) {
+        double period = (double) unitWidth * layer.getWavelength();
+        mSpeed = layer.getSpeed();
+        if (period <= 0) {      //平的,怎么平移都一样
+            mWidth = Math.max(1, viewWidth);
+            mPeriods = 0;
+            mWavelength = layer.getWavelength();
+            return;
+        }
+        long rounded = Math.max(1, Math.round(period));
+        mPeriods = Math.max(1, (int) Math.ceil(viewWidth / (MAX_TILES * (double) rounded)));
+        mWidth = (int) (mPeriods * rounded);
+        mWavelength = (float) rounded / unitWidth;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return 建Path时用的波长,平的层返回原来的值
+     */
+    public float getWavelength() {
+        return mWavelength;
+    }
+
+    /**
+     * 第一块的左边,往右每隔 {@link #getWidth()} 画一块。
+     * 相位 = 初始相位 + 速度 * 时间,等于把 t=0 的浪往左移 速度 * 时间 / 角频率
+     *
+     * @param seconds 浪走过的时间(秒)
+     * @return 在 [-宽度, 0] 里的整数
+     */
+    public int offsetAt(double seconds) {
+        return offsetAt(seconds, 0);
+    }
+
+    /**
+     * @param seconds 浪走过的时间(秒)
+     * @param originX 这个View左边在墙里的x坐标
+     * @return 在 [-宽度, 0] 里的整数
+     */
+    public int offsetAt(double seconds, float originX) {
+        if (mPeriods == 0) {
+            return 0;
+        }
+        double shift = mSpeed * seconds * mWidth / (PI2 * mPeriods) + originX;
+        return -(int) Math.round(WavePhase.wrap(shift, mWidth));
+    }
+}
@@ -0,0 +1,122 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WavePhase
+ * @description 根据帧时间算浪的相位(或者偏移像素),速度只和时间有关,和帧率无关。
+ *              暂停后再恢复,从暂停时的相位接着走,不会因为暂停的时间跳一下。
+ *              不依赖android类,单位随便用: 计算方式用弧度,图片方式用像素。
+ *              可以给一个周期,相位一直保持在 [0, 周期) 里: 每绕回一次就把当前帧重新作为起点,
+ *              起点相位和时间差都不会越来越大,7*24小时一直跑也不会丢精度(原来float的偏移量 offset + 0.02f == offset 以后浪就不动了)。
+ * @created 2017/4/12 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WavePhase {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private double mSpeed;              //每秒走多少
+    private double mPeriod;             //相位绕回的周期,0表示不绕回
+    private double mBasePhase;          //mBaseNanos时刻的相位
+    private long mBaseNanos = -1;       //-1表示还没有开始(或者刚恢复),下一帧作为起点
+    private double mPhase;
+    private long mPhaseNanos;           //mPhase是哪一帧的相位
+
+    /**
+     * @param speed 每秒走多少(弧度/秒 或者 像素/秒)
+     */
+    public WavePhase(double speed) {
+        this(speed, 0);
+    }
+
+    /**
+     * @param speed  每秒走多少(弧度/秒 或者 像素/秒)
+     * @param period 相位在 [0, period) 里绕回,0表示不绕回
+     */
+    public WavePhase(double speed, double period) {
+        mSpeed = speed;
+        mPeriod = period;
+    }
+
+    /**
+     * 按帧时间更新相位
+     *
+     * @param frameTimeNanos 帧时间
+     * @return 当前相位
+     */
+    public double update(long frameTimeNanos) {
+        if (mBaseNanos < 0) {
+            mBaseNanos = frameTimeNanos;
+        }
+        double phase = mBasePhase + (frameTimeNanos - mBaseNanos) * mSpeed / NANOS_PER_SECOND;
+        if (mPeriod > 0 && (phase >= mPeriod || phase < 0)) {
+            phase = wrap(phase, mPeriod);
+            mBasePhase = phase;             //绕回时把这一帧作为新的起点
+            mBaseNanos = frameTimeNanos;
+        }
+        mPhase = phase;
+        mPhaseNanos = frameTimeNanos;
+        return mPhase;
+    }
+
+    /**
+     * 暂停,记住当前相位,下一次update的帧时间作为新的起点
+     */
+    public void pause() {
+        mBasePhase = mPhase;
+        mBaseNanos = -1;
+    }
+
+    /**
+     * 改速度,从当前相位开始按新的速度走
+     */
+    public void setSpeed(double speed) {
+        pause();
+        mSpeed = speed;
+    }
+
+    /**
+     * 改绕回的周期,当前相位马上按新的周期绕回。
+     * 不暂停: 在动的话以最后一帧为起点接着走,下一帧不会少走一帧的时间;周期没变时什么都不做
+     *
+     * @param period 0表示不绕回
+     */
+    public void setPeriod(double period) {
+        if (period == mPeriod) {
+            return;
+        }
+        mPeriod = period;
+        if (period > 0) {
+            mPhase = wrap(mPhase, period);
+        }
+        mBasePhase = mPhase;
+        if (mBaseNanos >= 0) {
+            mBaseNanos = mPhaseNanos;
+        }
+    }
+
+    public double getPeriod() {
+        return mPeriod;
+    }
+
+    /**
+     * @return value 对 period 取模,结果在 [0, period)
+     */
+    public static double wrap(double value, double period) {
+        double wrapped = value % period;
+        if (wrapped < 0) {
+            wrapped += period;
+        }
+        return wrapped < period ? wrapped : 0;     //很小的负数加上period会舍入成period
+    }
+
+    public double getSpeed() {
+        return mSpeed;
+    }
+
+    public double getPhase() {
+        return mPhase;
+    }
+}
@@ -0,0 +1,255 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveQualityGovernor
+ * @description 计算方式浪的自动画质: 运行时量每帧实际的表现,超出预算就降一档,一直很宽裕就升一档。
+ *              好的机器上采样更密、开抗锯齿;差的机器上采样变稀、关抗锯齿、少画几层、渐变换成纯色,最后降帧率。
+ * 技术点+注意点:
+ *      1.档位从高到低见 {@link #LEVELS},默认从 {@link #DEFAULT_LEVEL} 开始,就是原来写死的效果(X_SPACE=20,不抗锯齿)。
+ *      2.每 {@link #WINDOW_FRAMES} 个真正画了的帧算一个窗口,用窗口的平均值和超预算的帧数判断,偶尔一帧卡不会降档。
+ *        量什么看画布:
+ *          a.硬件加速时 draw() 只是把绘制命令录进display list,Path的三角化、抗锯齿、渐变填充都在RenderThread/GPU上,
+ *            量出来的时间远小于真正的开销。这时用 {@link #onFramePresented}: 两个画了的帧之间隔了几个vsync,
+ *            丢了vsync就是超预算,一个窗口里一个都没丢才算宽裕;
+ *          b.软件画布(TextureView的lockCanvas)上绘制就是真正的开销,用 {@link #onFrameRendered} 量计算+绘制的耗时。
+ *      3.防止来回跳(滞回):
+ *          a.降档要连续 {@link #DOWNGRADE_WINDOWS} 个窗口超预算,升档要连续若干个窗口都低于预算的 {@link #UPGRADE_RATIO};
+ *          b.换档后的第一个窗口不算(Path、渐变要重新准备),中间暂停过也一样;
+ *          c.刚升上去很快又降下来,说明上面那一档撑不住,下次升档要等的窗口数翻倍(最多 {@link #MAX_UPGRADE_WINDOWS});
+ *            升上去撑住了再减半。
+ *      4.预算是按60fps算的每帧预算,降帧率之后每帧能用的时间按比例变长,见 {@link #getFrameBudgetNanos()}。
+ *      5.不是线程安全的,和用它的渲染器(DoubleWavesRenderer)在同一个线程用。
+ * @created 2017/4/28 10:15
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveQualityGovernor {
+
+    /**
+     * 一档画质
+     */
+    public static final class Level {
+        public final float xSpace;         //采样间隔(px),越小越平滑
+        public final boolean antiAlias;    //抗锯齿
+        public final int maxLayers;        //最多画几层,多出来的从最先画(最靠后)的开始去掉
+        public final int gradient;         //渐变质量,GRADIENT_*
+        public final int framesPerSecond;  //目标帧率
+
+        Level(float xSpace, boolean antiAlias, int maxLayers, int gradient, int framesPerSecond) {
+            this.xSpace = xSpace;
+            this.antiAlias = antiAlias;
+            this.maxLayers = maxLayers;
+            this.gradient = gradient;
+            this.framesPerSecond = framesPerSecond;
+        }
+    }
+
+    public static final int GRADIENT_SOLID = 0;        //纯色,没有shader
+    public static final int GRADIENT_LINEAR = 1;       //线性渐变
+    public static final int GRADIENT_DITHER = 2;       //线性渐变+抖动,大屏上渐变不会一条一条的
+
+    public static final int FULL_FPS = 60;
+    public static final int ALL_LAYERS = Integer.MAX_VALUE;
+
+    /**
+     * 从高到低
+     */
+    static final Level[] LEVELS = {
+            new Level(5, true, ALL_LAYERS, GRADIENT_DITHER, FULL_FPS),
+            new Level(10, true, ALL_LAYERS, GRADIENT_LINEAR, FULL_FPS),
+            new Level(20, false, ALL_LAYERS, GRADIENT_LINEAR, FULL_FPS),
+            new Level(30, false, 2, GRADIENT_LINEAR, FULL_FPS),
+            new Level(40, false, 2, GRADIENT_SOLID, 30),
+            new Level(40, false, 1, GRADIENT_SOLID, 15),
+    };
+
+    static final int DEFAULT_LEVEL = 2;
+
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8000000;     //UI线程上还要留时间给别的View
+
+    static final int WINDOW_FRAMES = 30;
+    static final int DOWNGRADE_WINDOWS = 2;
+    static final int MIN_UPGRADE_WINDOWS = 4;
+    static final int MAX_UPGRADE_WINDOWS = 64;
+    static final float UPGRADE_RATIO = 0.6f;
+    static final float JANK_FRAME_RATIO = 0.25f;    //一个窗口里超过这个比例的帧超预算,平均值不超也算超
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private long mBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private boolean mEnabled = true;
+    private int mLevel = DEFAULT_LEVEL;
+
+    //当前窗口
+    private int mWindowFrames;
+    private long mWindowCost;
+    private int mWindowOverBudget;
+    private boolean mSettling;          //换档后的第一个窗口,不算
+
+    private int mOverWindows;
+    private int mUnderWindows;
+    private int mUpgradeWindows = MIN_UPGRADE_WINDOWS;
+    private boolean mJustUpgraded;      //升档之后还没有一个窗口证明撑得住
+
+    private long mLastRenderNanos = -1;
+    private long mLastPresentedNanos = -1;     //上一个画了的帧的vsync时间,暂停后重新开始
+
+    /**
+     * @param budgetNanos 按60fps算的每帧预算(计算+绘制),小于等于0关闭自动调节,固定在默认档
+     */
+    public void setFrameBudgetNanos(long budgetNanos) {
+        mEnabled = budgetNanos > 0;
+        mBudgetNanos = mEnabled ? budgetNanos : DEFAULT_FRAME_BUDGET_NANOS;
+        if (!mEnabled) {
+            mLevel = DEFAULT_LEVEL;
+        }
+        resetWindow();
+        mSettling = false;
+        mOverWindows = 0;
+        mUnderWindows = 0;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * @return 当前档位下每个画了的帧能用的时间
+     */
+    public long getFrameBudgetNanos() {
+        return mBudgetNanos * FULL_FPS / getLevel().framesPerSecond;
+    }
+
+    public int getLevelIndex() {
+        return mLevel;
+    }
+
+    public Level getLevel() {
+        return LEVELS[mLevel];
+    }
+
+    /**
+     * 帧率降下来以后跳过一部分vsync,位置是按时间算的,跳帧不影响速度
+     *
+     * @param frameTimeNanos 帧时间
+     * @return 这一帧要不要算、要不要画
+     */
+    public boolean shouldRender(long frameTimeNanos) {
+        int fps = getLevel().framesPerSecond;
+        if (fps < FULL_FPS && mLastRenderNanos >= 0) {
+            long interval = NANOS_PER_SECOND / fps;
+            if (frameTimeNanos - mLastRenderNanos < interval - interval / 8) {  //留1/8的余量,vsync有抖动
+                return false;
+            }
+        }
+        mLastRenderNanos = frameTimeNanos;
+        return true;
+    }
+
+    /**
+     * 停下时调用,恢复后第一帧一定画。刚换了档还没量过的话,恢复后的第一个窗口还是不算
+     */
+    public void pause() {
+        mLastRenderNanos = -1;
+        mLastPresentedNanos = -1;
+        resetWindow();
+    }
+
+    /**
+     * 软件画布: 记录一个画了的帧的耗时
+     *
+     * @param costNanos 计算+绘制的耗时
+     * @return 档位有没有变,变了要重新应用 {@link #getLevel()}
+     */
+    public boolean onFrameRendered(long costNanos) {
+        if (!mEnabled) {
+            return false;
+        }
+        long budget = getFrameBudgetNanos();
+        return addFrame(costNanos, budget, (long) (budget * UPGRADE_RATIO));
+    }
+
+    /**
+     * 硬件加速: 记录一个画了的帧的vsync时间,和上一个画了的帧比,中间隔了超过一个半帧的间隔就是丢了vsync
+     *
+     * @param frameTimeNanos 这一帧的vsync时间
+     * @return 档位有没有变,变了要重新应用 {@link #getLevel()}
+     */
+    public boolean onFramePresented(long frameTimeNanos) {
+        long last = mLastPresentedNanos;
+        mLastPresentedNanos = frameTimeNanos;
+        if (!mEnabled || last < 0) {
+            return false;
+        }
+        long interval = NANOS_PER_SECOND / getLevel().framesPerSecond;
+        long missed = interval + interval / 2;
+        return addFrame(frameTimeNanos - last, missed, missed);
+    }
+
+    /**
+     * @param cost       这一帧的开销
+     * @param overLimit  超过它这一帧就算超预算
+     * @param underLimit 窗口平均低于它、又没有一帧超预算,才算宽裕
+     */
+    private boolean addFrame(long cost, long overLimit, long underLimit) {
+        mWindowFrames++;
+        mWindowCost += cost;
+        if (cost > overLimit) {
+            mWindowOverBudget++;
+        }
+        if (mWindowFrames < WINDOW_FRAMES) {
+            return false;
+        }
+        long average = mWindowCost / mWindowFrames;
+        boolean over = average > overLimit || mWindowOverBudget > mWindowFrames * JANK_FRAME_RATIO;
+        boolean under = average < underLimit && mWindowOverBudget == 0;
+        boolean settling = mSettling;
+        resetWindow();
+        mSettling = false;
+        if (settling) {
+            return false;
+        }
+        if (over) {
+            mUnderWindows = 0;
+            if (++mOverWindows >= DOWNGRADE_WINDOWS && mLevel < LEVELS.length - 1) {
+                if (mJustUpgraded) {    //上去了撑不住,下次多等一会
+                    mUpgradeWindows = Math.min(mUpgradeWindows * 2, MAX_UPGRADE_WINDOWS);
+                }
+                return changeLevel(mLevel + 1);
+            }
+            return false;
+        }
+        mOverWindows = 0;
+        if (mJustUpgraded) {    //升上来撑住了
+            mJustUpgraded = false;
+            mUpgradeWindows = Math.max(mUpgradeWindows / 2, MIN_UPGRADE_WINDOWS);
+        }
+        if (under) {
+            if (++mUnderWindows >= mUpgradeWindows && mLevel > 0) {
+                changeLevel(mLevel - 1);
+                mJustUpgraded = true;
+                return true;
+            }
+        } else {
+            mUnderWindows = 0;
+        }
+        return false;
+    }
+
+    private boolean changeLevel(int level) {
+        mLevel = level;
+        mOverWindows = 0;
+        mUnderWindows = 0;
+        mJustUpgraded = false;
+        mSettling = true;
+        return true;
+    }
+
+    private void resetWindow() {
+        mWindowFrames = 0;
+        mWindowCost = 0;
+        mWindowOverBudget = 0;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kj.anim.wave.core;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveTileScroller
+ * @description 横向平铺的浪图每帧的偏移量(px),代替原来 ValueAnimator + PointEvaluator 每帧new一个Point的写法。
+ *              每个周期走过一整张图的宽度,偏移量在 [0, 图宽) 里绕回;只用基本类型,每帧不创建任何对象。
+ * @created 2017/5/3 10:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveTileScroller {
+
+    private final WavePhase mProgress;     //动画进度,每个周期走1,在 [0, 1) 里绕回
+    private int mTileWidth;
+    private int mOffset;
+
+    /**
+     * @param durationMillis 走过一整张图的时间
+     */
+    public WaveTileScroller(long durationMillis) {
+        mProgress = new WavePhase(1000.0 / durationMillis, 1);
+    }
+
+    /**
+     * @param tileWidth 一张图的宽度,也就是一个周期要走的距离
+     */
+    public void setTileWidth(int tileWidth) {
+        mTileWidth = tileWidth;
+    }
+
+    /**
+     * 按帧时间更新
+     *
+     * @param frameTimeNanos 帧时间
+     * @return 整像素的偏移量有没有变,没变就不用重画
+     */
+    public boolean update(long frameTimeNanos) {
+        int offset = (int) (mProgress.update(frameTimeNanos) * mTileWidth);   //线性插值,循环播放
+        boolean changed = offset != mOffset;
+        mOffset = offset;
+        return changed;
+    }
+
+    /**
+     * @return 当前的偏移量,在 [0, 图宽) 里
+     */
+    public int getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * 给BitmapShader的本地矩阵用的偏移量,和 {@link #getOffset} 差整数个图宽,画出来一样,但是在 (0, 图宽] 里,不会是0。
+     * 7.0以上 Shader.setLocalMatrix 传单位矩阵时会丢掉自己的矩阵,下次不是单位矩阵时再new一个,绕回到0的那一帧就会分配
+     */
+    public int getShaderOffset() {
+        return mOffset == 0 ? mTileWidth : mOffset;
+    }
+
+    /**
+     * 停下时调用,恢复后接着原来的位置走
+     */
+    public void pause() {
+        mProgress.pause();
+    }
+}
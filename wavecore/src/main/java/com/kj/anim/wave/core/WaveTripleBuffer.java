@@ -0,0 +1,62 @@
+package com.kj.anim.wave.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveTripleBuffer
+ * @description 一个线程写、一个线程读的三缓冲,不加锁。
+ *              写的线程总是写自己手里的那个({@link #getWriteBuffer()}),写完 {@link #publish()} 和中间那个交换;
+ *              读的线程 {@link #getLatest()} 时如果中间那个是新的,就和自己手里的交换。
+ *              两边各拿一个、中间放一个,写的永远不会等读的,读的拿到的永远是完整的一帧,不会读到写了一半的。
+ *              交换只是一个 AtomicInteger 的 getAndSet,不创建任何对象。
+ *              注意点: 只能有一个写的线程和一个读的线程,三个缓冲在构造时传进来,之后不能换。
+ * @created 2017/6/20 11:15
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveTripleBuffer<T> {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;     //中间那个是写的线程新放进去的,读的线程还没拿
+
+    private final Object[] mBuffers;
+    private final AtomicInteger mMiddle = new AtomicInteger(1);    //低两位是中间那个的下标
+    private int mBack = 0;      //只有写的线程用
+    private int mFront = 2;     //只有读的线程用
+
+    public WaveTripleBuffer(T first, T second, T third) {
+        mBuffers = new Object[]{first, second, third};
+    }
+
+    /**
+     * 写的线程调用
+     *
+     * @return 现在可以写的那个,{@link #publish()} 之前读的线程不会碰它
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) mBuffers[mBack];
+    }
+
+    /**
+     * 写的线程写完一帧后调用,换一个新的来写。读的线程还没拿走的上一帧直接被这一帧顶掉
+     */
+    public void publish() {
+        mBack = mMiddle.getAndSet(mBack | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * 读的线程调用
+     *
+     * @return 有新的一帧就换成新的,没有就还是上次那个;什么都没写过时是一个没写过的缓冲
+     */
+    @SuppressWarnings("unchecked")
+    public T getLatest() {
+        if ((mMiddle.get() & FRESH) != 0) {
+            mFront = mMiddle.getAndSet(mFront) & INDEX_MASK;
+        }
+        return (T) mBuffers[mFront];
+    }
+}
@@ -0,0 +1,167 @@
+package com.kj.anim.wave.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveWorkerPool
+ * @description 并行采样用的固定线程池,每帧把一个任务分成几段,调用线程自己算第0段,其他段交给工作线程,全部算完才返回。
+ *              技术点+注意点:
+ *                  1.线程在构造时就创建好,之后一直复用;每帧只用volatile、AtomicInteger和park/unpark同步,不创建任何对象。
+ *                  2.工作线程没活干时park,不占CPU;是daemon线程,不会拦着进程退出。
+ *                  3.{@link #run} 是同步的,多个线程共用一个池时排队,一次只跑一个任务。
+ *                  4.工作线程里抛出的异常在 {@link #run} 里重新抛给调用线程,工作线程继续活着。
+ *              {@link #getDefault()} 是进程共用的池,线程数是CPU核数(最多 {@link #MAX_DEFAULT_THREADS} 个,包括调用线程)。
+ * @created 2017/6/14 16:05
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveWorkerPool {
+
+    /**
+     * 分成几段来跑的任务
+     */
+    public interface Task {
+        /**
+         * @param part  第几段,从0开始
+         * @param parts 一共几段
+         */
+        void run(int part, int parts);
+    }
+
+    public static final int MAX_DEFAULT_THREADS = 4;
+
+    private static final int SPIN_COUNT = 1000;     //等工作线程时先空转一会,大部分情况下不用park
+
+    private static WaveWorkerPool sDefault;
+
+    private final Worker[] mWorkers;
+    private final AtomicInteger mPending = new AtomicInteger();
+    private volatile Task mTask;
+    private volatile int mParts;
+    private volatile Thread mCaller;
+    private volatile Throwable mFailure;
+    private volatile boolean mShutdown;
+
+    /**
+     * @param threadCount 一共几个线程,包括调用 {@link #run} 的线程,所以只会新建 threadCount - 1 个
+     */
+    public WaveWorkerPool(int threadCount) {
+        mWorkers = new Worker[Math.max(1, threadCount) - 1];
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new Worker(this, i + 1);
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * @return 进程共用的池
+     */
+    public static synchronized WaveWorkerPool getDefault() {
+        if (sDefault == null) {
+            sDefault = new WaveWorkerPool(Math.min(MAX_DEFAULT_THREADS, Runtime.getRuntime().availableProcessors()));
+        }
+        return sDefault;
+    }
+
+    /**
+     * @return 一共几个线程,包括调用线程
+     */
+    public int getThreadCount() {
+        return mWorkers.length + 1;
+    }
+
+    /**
+     * 把任务分成 parts 段同时跑,调用线程跑第0段,全部跑完才返回
+     *
+     * @param task  任务
+     * @param parts 几段,超过线程数时按线程数算
+     */
+    public synchronized void run(Task task, int parts) {
+        parts = Math.max(1, Math.min(parts, getThreadCount()));
+        if (parts == 1 || mShutdown) {
+            task.run(0, 1);
+            return;
+        }
+        mTask = task;
+        mParts = parts;
+        mCaller = Thread.currentThread();
+        mFailure = null;
+        mPending.set(parts - 1);
+        for (int i = 0; i < parts - 1; i++) {
+            Worker worker = mWorkers[i];
+            worker.generation++;        //volatile写,上面设置的任务对工作线程可见
+            LockSupport.unpark(worker);
+        }
+        try {
+            task.run(0, parts);
+        } finally {
+            awaitWorkers();
+            mTask = null;
+        }
+        Throwable failure = mFailure;
+        if (failure != null) {
+            mFailure = null;
+            throw new RuntimeException("wave worker failed", failure);
+        }
+    }
+
+    private void awaitWorkers() {
+        for (int spin = 0; mPending.get() > 0; spin++) {
+            if (spin >= SPIN_COUNT) {
+                LockSupport.park(this);     //最后一个工作线程做完会unpark,先unpark再park也会马上返回
+            }
+        }
+    }
+
+    /**
+     * 停掉所有工作线程,之后 {@link #run} 都在调用线程里一次跑完
+     */
+    public synchronized void shutdown() {
+        mShutdown = true;
+        for (Worker worker : mWorkers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void onPartDone() {
+        if (mPending.decrementAndGet() == 0) {
+            LockSupport.unpark(mCaller);
+        }
+    }
+
+    private static final class Worker extends Thread {
+        private final WaveWorkerPool pool;
+        private final int part;
+        volatile int generation;    //调用线程每派一次活加1
+
+        Worker(WaveWorkerPool pool, int part) {
+            super("WaveWorker-" + part);
+            this.pool = pool;
+            this.part = part;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int done = 0;
+            while (!pool.mShutdown) {
+                int current = generation;
+                if (current == done) {
+                    LockSupport.park(this);     //可能被无故唤醒,循环回去再看一次
+                    continue;
+                }
+                done = current;
+                try {
+                    pool.mTask.run(part, pool.mParts);
+                } catch (Throwable t) {
+                    pool.mFailure = t;
+                } finally {
+                    pool.onPartDone();
+                }
+            }
+        }
+    }
+}
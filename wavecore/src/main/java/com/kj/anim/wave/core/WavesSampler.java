@@ -0,0 +1,285 @@
+package com.kj.anim.wave.core;
+
+import java.util.List;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WavesSampler
+ * @description 计算方式多层浪的采样器,只负责把每一帧所有层浪的y坐标算到预先分配好的float[]里。
+ *              注意点:
+ *                  1.数组只在 {@link #resize}/{@link #setLayers} 变大时重新分配,{@link #sample} 每帧调用不会产生任何对象。
+ *                  2.x坐标固定为 index * xSpace,不用每帧再存。
+ *                  3.具体怎么求sin交给 {@link WaveEvaluator},默认用查表的方式,所有层在一次循环里算完。
+ *                  4.结果按列交错存放: 第l层第i个点在 getSamples()[i * getLayerCount() + l]。
+ *                  5.可选的 {@link WaveFrameRing}: 所有层有公共周期、内存预算够时,一个周期按帧率量化缓存起来,第二圈开始直接拷贝。
+ *                  6.可选的并行采样({@link #setWorkerPool}): 点数*层数很多时按列分成几段交给 {@link WaveWorkerPool},
+ *                    每段至少 {@link #PARALLEL_MIN_VALUES} 个值,不够时自动退回单线程;段的边界按 {@link #PARALLEL_ALIGN_COLUMNS} 列对齐,
+ *                    每个线程写自己那一段连续的数组,相邻两段最多共用一条缓存行。
+ * @created 2017/4/6 10:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WavesSampler {
+
+    public static final int EVALUATOR_MATH = 0;     //Math.sin 参考实现
+    public static final int EVALUATOR_TABLE = 1;    //正弦表实现
+
+    public static final int PARALLEL_MIN_VALUES = 8192;     //每段至少算这么多个值,再少分出去的开销比省下的多
+    public static final int PARALLEL_ALIGN_COLUMNS = 16;
+
+    private static final double PI2 = 2 * Math.PI;
+
+    private float[] mSamples = new float[0];
+    private int mCount;
+    private int mLayerCount;
+
+    private float mXSpace;
+    private float mWidth;
+    private float mBaseLine;    //浪的中线位置,原来每个点都要算一次 Math.max(mWaveHeight, getHeight() * mWaveWeight)
+
+    //每一层的参数
+    private float[] mAmplitudes = new float[0];
+    private float[] mWavelengths = new float[0];
+    private float[] mSpeeds = new float[0];
+    private float[] mInitialPhases = new float[0];
+    private double[] mOmegas = new double[0];
+    private double[] mPhases = new double[0];
+
+    private WaveEvaluator mEvaluator;
+
+    private final WaveFrameRing mFrameRing = new WaveFrameRing();
+    private float mFrameCacheFps;
+    private long mFrameCacheBudget;     //字节,0表示不缓存
+
+    private WaveWorkerPool mWorkerPool;     //null表示单线程
+    private int mParts = 1;                 //每帧分成几段算
+    private int mPartColumns;               //每段几列,最后一段可能少一些
+    private final WaveWorkerPool.Task mPartTask = new WaveWorkerPool.Task() {
+        @Override
+        public void run(int part, int parts) {
+            int from = part * mPartColumns;
+            mEvaluator.evaluate(mAmplitudes, mBaseLine, mSamples, from, Math.min(mCount, from + mPartColumns));
+        }
+    };
+
+    public WavesSampler() {
+        this(EVALUATOR_TABLE);
+    }
+
+    public WavesSampler(int evaluatorType) {
+        setEvaluatorType(evaluatorType);
+    }
+
+    /**
+     * 切换求值方式,切换后会按当前的参数重新预计算
+     *
+     * @param evaluatorType {@link #EVALUATOR_MATH} 或 {@link #EVALUATOR_TABLE}
+     */
+    public void setEvaluatorType(int evaluatorType) {
+        if (evaluatorType == EVALUATOR_MATH) {
+            mEvaluator = new MathWaveEvaluator();
+        } else {
+            mEvaluator = new TableWaveEvaluator();
+        }
+        prepareEvaluator();
+        configureFrameRing();
+    }
+
+    /**
+     * 打开或者关闭一个周期的帧缓存。没有公共周期或者预算不够时自动退回实时计算
+     *
+     * @param framesPerSecond 一个周期按多少帧每秒量化
+     * @param budgetBytes     最多用多少字节,小于等于0关闭
+     */
+    public void setFrameCache(float framesPerSecond, long budgetBytes) {
+        mFrameCacheFps = framesPerSecond;
+        mFrameCacheBudget = budgetBytes;
+        if (budgetBytes <= 0) {
+            mFrameRing.clear();
+        }
+        configureFrameRing();
+    }
+
+    /**
+     * 打开或者关闭并行采样,见 {@link WaveWorkerPool}
+     *
+     * @param pool 线程池,null表示单线程
+     */
+    public void setWorkerPool(WaveWorkerPool pool) {
+        mWorkerPool = pool;
+        updateParts();
+    }
+
+    /**
+     * @return 每帧分成几段算,1表示单线程
+     */
+    public int getParallelParts() {
+        return mParts;
+    }
+
+    private void updateParts() {
+        int values = mCount * mLayerCount;
+        int parts = mWorkerPool == null ? 1 : Math.min(mWorkerPool.getThreadCount(), values / PARALLEL_MIN_VALUES);
+        if (parts <= 1) {
+            mParts = 1;
+            mPartColumns = mCount;
+            return;
+        }
+        int columns = (mCount + parts - 1) / parts;
+        columns = (columns + PARALLEL_ALIGN_COLUMNS - 1) / PARALLEL_ALIGN_COLUMNS * PARALLEL_ALIGN_COLUMNS;
+        mPartColumns = columns;
+        mParts = (mCount + columns - 1) / columns;      //对齐以后可能少一段
+    }
+
+    /**
+     * @return 帧缓存是否在用
+     */
+    public boolean isFrameCacheActive() {
+        return mFrameRing.isEnabled();
+    }
+
+    public WaveFrameRing getFrameRing() {
+        return mFrameRing;
+    }
+
+    private void configureFrameRing() {
+        mFrameRing.configure(mSpeeds, mAmplitudes, mWavelengths, mWidth, mLayerCount, mCount * mLayerCount,
+                mFrameCacheFps, mFrameCacheBudget);
+    }
+
+    /**
+     * 设置所有层,前面的层在下面
+     */
+    public void setLayers(List<WaveLayer> layers) {
+        mLayerCount = layers.size();
+        if (mAmplitudes.length < mLayerCount) {
+            mAmplitudes = new float[mLayerCount];
+            mWavelengths = new float[mLayerCount];
+            mSpeeds = new float[mLayerCount];
+            mInitialPhases = new float[mLayerCount];
+            mOmegas = new double[mLayerCount];
+            mPhases = new double[mLayerCount];
+        }
+        for (int l = 0; l < mLayerCount; l++) {
+            WaveLayer layer = layers.get(l);
+            mAmplitudes[l] = layer.getAmplitude();
+            mWavelengths[l] = layer.getWavelength();
+            mSpeeds[l] = layer.getSpeed();
+            mInitialPhases[l] = layer.getPhase();
+        }
+        ensureSampleCapacity();
+        updateOmegas();
+        prepareEvaluator();
+        configureFrameRing();
+    }
+
+    /**
+     * 尺寸变化时调用,只有点数变多时才重新分配数组
+     *
+     * @param maxRight 采样的最右边x坐标
+     * @param xSpace   采样间隔
+     * @param width    View的宽度,波长按它的倍数算
+     * @param baseLine 浪的中线y坐标
+     */
+    public void resize(float maxRight, float xSpace, float width, float baseLine) {
+        mXSpace = xSpace;
+        mWidth = width;
+        mBaseLine = baseLine;
+        mCount = maxRight < 0 ? 0 : (int) (maxRight / xSpace) + 1;
+        ensureSampleCapacity();
+        updateOmegas();
+        prepareEvaluator();
+        configureFrameRing();
+    }
+
+    /**
+     * @return 所有层的公共周期(秒),没有时为0;按当前的振幅和宽度判断绕回时会不会跳,{@link #resize} 之前只看振幅
+     */
+    public double getCommonPeriod() {
+        return WaveFrameRing.findCommonPeriod(mSpeeds, mAmplitudes, mWavelengths, mWidth, mLayerCount);
+    }
+
+    private void ensureSampleCapacity() {
+        if (mSamples.length < mCount * mLayerCount) {
+            mSamples = new float[mCount * mLayerCount];
+        }
+    }
+
+    private void updateOmegas() {
+        for (int l = 0; l < mLayerCount; l++) {
+            float waveLength = mWidth * mWavelengths[l];
+            mOmegas[l] = waveLength > 0 ? PI2 / waveLength : 0;
+        }
+    }
+
+    private void prepareEvaluator() {
+        mEvaluator.prepare(mCount, mXSpace, mOmegas, mLayerCount);
+        updateParts();
+    }
+
+    /**
+     * 按时间采样一帧,每一层的相位 = 初始相位 + 速度 * 时间。
+     * 开了帧缓存时时间按帧率量化,缓存里有就直接拷贝,没有就按量化后的时间算完存进去
+     *
+     * @param seconds 浪走过的时间(秒)
+     */
+    public void sample(double seconds) {
+        if (mFrameRing.isEnabled()) {
+            int index = mFrameRing.frameIndex(seconds);
+            if (mFrameRing.load(index, mSamples)) {
+                return;
+            }
+            evaluate(mFrameRing.frameTime(index));
+            mFrameRing.store(index, mSamples);
+            return;
+        }
+        evaluate(seconds);
+    }
+
+    private void evaluate(double seconds) {
+        for (int l = 0; l < mLayerCount; l++) {
+            mPhases[l] = WavePhase.wrap(mInitialPhases[l] + mSpeeds[l] * seconds, PI2);   //先用double绕回,求值器拿到的相位都在一圈以内
+        }
+        mEvaluator.setPhases(mPhases);
+        if (mParts > 1) {
+            mWorkerPool.run(mPartTask, mParts);
+        } else {
+            mEvaluator.evaluate(mAmplitudes, mBaseLine, mSamples, 0, mCount);
+        }
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getLayerCount() {
+        return mLayerCount;
+    }
+
+    public float getX(int index) {
+        return index * mXSpace;
+    }
+
+    public float getY(int layer, int index) {
+        return mSamples[index * mLayerCount + layer];
+    }
+
+    public float[] getSamples() {
+        return mSamples;
+    }
+
+    /**
+     * @return 这一层浪尖能到达的最高位置,渐变从这里开始
+     */
+    public float getCrestTop(int layer) {
+        return mBaseLine - mAmplitudes[layer];
+    }
+
+    /**
+     * @return 这一层浪谷能到达的最低位置,再往下每一列都一样,不随时间变
+     */
+    public float getTroughBottom(int layer) {
+        return mBaseLine + mAmplitudes[layer];
+    }
+}
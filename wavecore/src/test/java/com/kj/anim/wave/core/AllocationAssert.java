@@ -0,0 +1,43 @@
+package com.kj.anim.wave.core;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 单元测试共用: 检查每帧的计算在稳定以后不分配内存,在开发机(host)上执行。
+ * 用HotSpot的 com.sun.management.ThreadMXBean 数当前线程分配的字节数,先跑同样多的帧预热(让JIT编译完),
+ * 再减去读取计数本身的开销。
+ */
+public final class AllocationAssert {
+
+    private AllocationAssert() {
+    }
+
+    /**
+     * @param frames 预热和统计各跑几帧
+     * @param frame  一帧的计算,只能在当前线程里分配
+     */
+    public static void assertNoAllocation(int frames, Runnable frame) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue("allocation counting not supported on this JVM", bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < frames; i++) {      //预热,让JIT编译完成
+            frame.run();
+        }
+
+        //两次连续读取之间的差值就是读取本身的开销
+        long before = bean.getThreadAllocatedBytes(threadId);
+        long overhead = bean.getThreadAllocatedBytes(threadId) - before;
+
+        before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < frames; i++) {
+            frame.run();
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals("bytes allocated over " + frames + " frames", 0, allocated);
+    }
+}
@@ -0,0 +1,97 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 查表求值和Math.sin参考实现的精度对比,在开发机(host)上执行。
+ */
+public class TableWaveEvaluatorTest {
+
+    private static final int COUNT = 98;
+    private static final float X_SPACE = 20;
+    private static final float BASE_LINE = 540;
+    private static final float MAX_ERROR_PX = 0.01f;
+
+    private static final double[] OMEGAS = {2 * Math.PI / 2880, 2 * Math.PI / 2880 * 1.5, 2 * Math.PI / 360};
+    private static final float[] AMPLITUDES = {52, 52, 20};
+    private static final int LAYERS = OMEGAS.length;
+
+    @Test
+    public void evaluate_matchesMathReference() throws Exception {
+        float[] expected = new float[COUNT * LAYERS];
+        float[] actual = new float[COUNT * LAYERS];
+        double[] phases = new double[LAYERS];
+        MathWaveEvaluator reference = new MathWaveEvaluator();
+        TableWaveEvaluator table = new TableWaveEvaluator();
+        reference.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+        table.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+        for (double phase = -20; phase < 20; phase += 0.0137) {
+            for (int l = 0; l < LAYERS; l++) {
+                phases[l] = phase * (l + 1) - l;    //每层的相位都不一样
+            }
+            reference.setPhases(phases);
+            reference.evaluate(AMPLITUDES, BASE_LINE, expected, 0, COUNT);
+            table.setPhases(phases);
+            table.evaluate(AMPLITUDES, BASE_LINE, actual, 0, COUNT);
+            for (int i = 0; i < COUNT * LAYERS; i++) {
+                assertEquals("phase=" + phase + " i=" + i, expected[i], actual[i], MAX_ERROR_PX);
+            }
+        }
+    }
+
+    @Test
+    public void evaluate_keepsPrecisionForLargePhase() throws Exception {
+        float[] expected = new float[COUNT * LAYERS];
+        float[] actual = new float[COUNT * LAYERS];
+        double[] phases = {1e6 + 0.25, -1e6 - 0.5, 3e5};
+        MathWaveEvaluator reference = new MathWaveEvaluator();
+        TableWaveEvaluator table = new TableWaveEvaluator();
+        reference.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+        table.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+        reference.setPhases(phases);
+        reference.evaluate(AMPLITUDES, BASE_LINE, expected, 0, COUNT);
+        table.setPhases(phases);
+        table.evaluate(AMPLITUDES, BASE_LINE, actual, 0, COUNT);
+        for (int i = 0; i < COUNT * LAYERS; i++) {
+            assertEquals(expected[i], actual[i], MAX_ERROR_PX);
+        }
+    }
+
+    @Test
+    public void prepare_fewerLayersReusesState() throws Exception {
+        float[] expected = new float[COUNT];
+        float[] actual = new float[COUNT];
+        double[] phases = {0.7};
+        MathWaveEvaluator reference = new MathWaveEvaluator();
+        TableWaveEvaluator table = new TableWaveEvaluator();
+        table.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+        reference.prepare(COUNT, X_SPACE, new double[]{OMEGAS[2]}, 1);
+        table.prepare(COUNT, X_SPACE, new double[]{OMEGAS[2]}, 1);
+        reference.setPhases(phases);
+        reference.evaluate(new float[]{20}, BASE_LINE, expected, 0, COUNT);
+        table.setPhases(phases);
+        table.evaluate(new float[]{20}, BASE_LINE, actual, 0, COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(expected[i], actual[i], MAX_ERROR_PX);
+        }
+    }
+
+    @Test
+    public void evaluate_columnRangesMatchWholeFrame() throws Exception {
+        float[] whole = new float[COUNT * LAYERS];
+        float[] pieces = new float[COUNT * LAYERS];
+        double[] phases = {0.3, -2.1, 7.9};
+        WaveEvaluator[] evaluators = {new MathWaveEvaluator(), new TableWaveEvaluator()};
+        for (WaveEvaluator evaluator : evaluators) {
+            evaluator.prepare(COUNT, X_SPACE, OMEGAS, LAYERS);
+            evaluator.setPhases(phases);
+            evaluator.evaluate(AMPLITUDES, BASE_LINE, whole, 0, COUNT);
+            for (int from = 0; from < COUNT; from += 7) {      //分段算,段的顺序和边界都不影响结果
+                evaluator.evaluate(AMPLITUDES, BASE_LINE, pieces, from, Math.min(COUNT, from + 7));
+            }
+            assertArrayEquals(whole, pieces, 0);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 后台线程采样的单元测试,在开发机(host)上执行。
+ */
+public class WaveComputeThreadTest {
+
+    private static final int WIDTH = 1080;
+    private static final float X_SPACE = 5;
+    private static final float BASE_LINE = 300;
+
+    private static List<WaveLayer> layers(float amplitude) {
+        List<WaveLayer> layers = new ArrayList<>(2);
+        layers.add(new WaveLayer(amplitude, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0, 0));
+        layers.add(new WaveLayer(amplitude, 1.5f, 1.2f, 0, 0, 0));
+        return layers;
+    }
+
+    private static WaveComputeThread.Frame await(WaveComputeThread compute, int generation, double seconds) throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            WaveComputeThread.Frame frame = compute.getLatest();
+            if (frame.generation == generation && frame.seconds == seconds) {
+                return frame;
+            }
+            Thread.sleep(1);
+        }
+        fail("frame not computed");
+        return null;
+    }
+
+    @Test
+    public void frames_matchSamplerOnCallingThread() throws Exception {
+        WaveComputeThread compute = new WaveComputeThread(WavesSampler.EVALUATOR_MATH, null);
+        compute.start();
+        try {
+            assertEquals(0, compute.getLatest().generation);
+            int generation = compute.configure(layers(52), WIDTH + X_SPACE, X_SPACE, WIDTH, BASE_LINE);
+
+            WavesSampler direct = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+            direct.setLayers(layers(52));
+            direct.resize(WIDTH + X_SPACE, X_SPACE, WIDTH, BASE_LINE);
+            for (int step = 1; step <= 20; step++) {
+                double seconds = step * 0.137;
+                compute.request(seconds);
+                WaveComputeThread.Frame frame = await(compute, generation, seconds);
+                direct.sample(seconds);
+                assertEquals(direct.getCount(), frame.count);
+                assertEquals(2, frame.layerCount);
+                for (int i = 0; i < frame.count; i++) {
+                    assertEquals(direct.getX(i), frame.getX(i), 0);
+                    for (int l = 0; l < 2; l++) {
+                        assertEquals(direct.getY(l, i), frame.samples[i * 2 + l], 0);
+                    }
+                }
+            }
+        } finally {
+            compute.quit();
+            compute.join(1000);
+        }
+        assertFalse(compute.isAlive());
+    }
+
+    @Test
+    public void configure_laterFramesCarryNewGeneration() throws Exception {
+        WaveComputeThread compute = new WaveComputeThread(WavesSampler.EVALUATOR_MATH, null);
+        compute.start();
+        try {
+            List<WaveLayer> layers = layers(52);
+            int first = compute.configure(layers, WIDTH + X_SPACE, X_SPACE, WIDTH, BASE_LINE);
+            compute.request(1);
+            await(compute, first, 1);
+
+            layers.get(0).setWavelength(3);     //configure 复制了一份,之后改原来的不影响后台线程
+            int second = compute.configure(layers(10), WIDTH / 2 + X_SPACE, X_SPACE, WIDTH, BASE_LINE);
+            assertTrue(second > first);
+            compute.request(2);
+            WaveComputeThread.Frame frame = await(compute, second, 2);
+            for (int i = 0; i < frame.count * frame.layerCount; i++) {
+                assertTrue(Math.abs(frame.samples[i] - BASE_LINE) <= 10 + 1e-3);
+            }
+        } finally {
+            compute.quit();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 曲线模式贝塞尔拟合的单元测试,在开发机(host)上执行。
+ */
+public class WaveCurveFitterTest {
+
+    private static final int WIDTH = 1920;
+    private static final float BASE_LINE = 300;
+
+    private static List<WaveLayer> defaultLayers() {
+        List<WaveLayer> layers = new ArrayList<>(2);
+        layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0, 0));
+        layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0, 0));
+        return layers;
+    }
+
+    private static WaveCurveFitter fitter(List<WaveLayer> layers, float maxError) {
+        WaveCurveFitter fitter = new WaveCurveFitter();
+        fitter.setMaxError(maxError);
+        fitter.setLayers(layers);
+        fitter.resize(WIDTH, WIDTH, BASE_LINE);
+        return fitter;
+    }
+
+    private static double bezier(double p0, double p1, double p2, double p3, double t) {
+        double u = 1 - t;
+        return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+    }
+
+    /**
+     * 逐段取曲线上的点,和同一个x上真正的浪比,返回最大的误差
+     */
+    private static double maxDeviation(WaveCurveFitter fitter, int layer, WaveLayer wave, double seconds, float originX) {
+        double omega = 2 * Math.PI / (WIDTH * wave.getWavelength());
+        double phase = wave.getPhase() + wave.getSpeed() * seconds;
+        float[] points = fitter.getPoints(layer);
+        double max = 0;
+        for (int s = 0; s < fitter.getSegmentCount(layer); s++) {
+            int p = s * 6;
+            for (double t = 0; t <= 1; t += 1.0 / 64) {
+                double x = bezier(points[p], points[p + 2], points[p + 4], points[p + 6], t);
+                double y = bezier(points[p + 1], points[p + 3], points[p + 5], points[p + 7], t);
+                double expected = wave.getAmplitude() * Math.sin(omega * (x + originX) + phase) + BASE_LINE;
+                max = Math.max(max, Math.abs(y - expected));
+            }
+        }
+        return max;
+    }
+
+    @Test
+    public void curve_staysWithinMaxError() throws Exception {
+        List<WaveLayer> layers = defaultLayers();
+        layers.add(new WaveLayer(120, 0.13f, 2.5f, 0.3f, 0, 0));
+        for (float maxError : new float[]{0.1f, 0.5f, 2f}) {
+            WaveCurveFitter fitter = fitter(layers, maxError);
+            for (double seconds = 0; seconds < 10; seconds += 0.73) {
+                fitter.fit(seconds, 0);
+                for (int l = 0; l < layers.size(); l++) {
+                    assertTrue(fitter.getErrorBound(l) <= maxError);
+                    double deviation = maxDeviation(fitter, l, layers.get(l), seconds, 0);
+                    assertTrue("error " + maxError + " layer " + l + " deviation " + deviation,
+                            deviation <= fitter.getErrorBound(l) + 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void segments_adaptToAmplitudeAndWavelength() throws Exception {
+        assertTrue(WaveCurveFitter.segmentsPerPeriod(200, 0.5f) > WaveCurveFitter.segmentsPerPeriod(20, 0.5f));
+        assertTrue(WaveCurveFitter.segmentsPerPeriod(52, 0.1f) > WaveCurveFitter.segmentsPerPeriod(52, 2f));
+
+        WaveCurveFitter fitter = fitter(defaultLayers(), 0.5f);
+        int longWave = fitter.getSegmentCount(1);
+        assertTrue(fitter.getSegmentCount(0) > longWave);       //波长短的,同样宽度里段多
+        for (int l = 0; l < 2; l++) {
+            assertTrue(fitter.getSegmentCount(l) * 3 < WIDTH / 20);   //原来每20px一个点,97个
+        }
+
+        fitter.setLayers(Collections.singletonList(new WaveLayer(52, 0.001f, 1.2f, 0, 0, 0)));
+        fitter.resize(WIDTH, WIDTH, BASE_LINE);
+        assertTrue(fitter.getSegmentCount(0) <= WIDTH);          //一段至少一个像素
+    }
+
+    @Test
+    public void curve_coversWholeWidthAndJoinsSmoothly() throws Exception {
+        WaveCurveFitter fitter = fitter(defaultLayers(), 0.5f);
+        fitter.fit(3.3, 0);
+        for (int l = 0; l < 2; l++) {
+            float[] points = fitter.getPoints(l);
+            int last = fitter.getSegmentCount(l) * 6;
+            assertEquals(0, points[0], 0);
+            assertTrue(points[last] >= WIDTH);
+            for (int s = 1; s < fitter.getSegmentCount(l); s++) {
+                int joint = s * 6;      //接点两边的控制点在一条直线上,斜率连续
+                double in = (points[joint + 1] - points[joint - 1]) / (points[joint] - points[joint - 2]);
+                double out = (points[joint + 3] - points[joint + 1]) / (points[joint + 2] - points[joint]);
+                assertEquals(in, out, 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void wallOffset_continuesTheSameWave() throws Exception {
+        List<WaveLayer> layers = defaultLayers();
+        WaveCurveFitter fitter = fitter(layers, 0.5f);
+        float originX = WIDTH * 1.37f;
+        for (double seconds = 0; seconds < 5; seconds += 0.61) {
+            fitter.fit(seconds, originX);
+            for (int l = 0; l < 2; l++) {
+                assertTrue(maxDeviation(fitter, l, layers.get(l), seconds, originX) <= 0.5 + 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void flatLayer_isOneStraightSegment() throws Exception {
+        WaveCurveFitter fitter = fitter(Collections.singletonList(new WaveLayer(0, 1.0f, 1.2f, 0, 0, 0)), 0.5f);
+        fitter.fit(2, 0);
+        assertEquals(1, fitter.getSegmentCount(0));
+        float[] points = fitter.getPoints(0);
+        for (int i = 1; i < 8; i += 2) {
+            assertEquals(BASE_LINE, points[i], 0);
+        }
+    }
+
+    @Test
+    public void fit_allocatesNothingInSteadyState() throws Exception {
+        final WaveCurveFitter fitter = fitter(defaultLayers(), 0.5f);
+        AllocationAssert.assertNoAllocation(1000, new Runnable() {
+            private double mSeconds;
+
+            @Override
+            public void run() {
+                fitter.fit(mSeconds += 1 / 60.0, WIDTH * 1.37f);
+            }
+        });
+    }
+
+    @Test
+    public void fit_reusesArrays() throws Exception {
+        WaveCurveFitter fitter = fitter(defaultLayers(), 0.5f);
+        float[] points = fitter.getPoints(0);
+        for (int frame = 0; frame < 100; frame++) {
+            fitter.fit(frame / 60.0, 0);
+        }
+        fitter.resize(WIDTH / 2, WIDTH, BASE_LINE);
+        assertSame(points, fitter.getPoints(0));
+    }
+}
@@ -0,0 +1,167 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 一个周期帧缓存的单元测试,在开发机(host)上执行。
+ */
+public class WaveFrameRingTest {
+
+    private static final float WIDTH = 1920;
+    private static final float FPS = 60;
+    private static final long BUDGET = 1024 * 1024;
+
+    private static WavesSampler createSampler(float... speeds) {
+        List<WaveLayer> layers = new ArrayList<>();
+        for (float speed : speeds) {
+            layers.add(new WaveLayer(52, 1.5f, speed, 0.3f, 0, 0));
+        }
+        WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(layers);
+        sampler.resize(1940, 20, WIDTH, 540);
+        return sampler;
+    }
+
+    @Test
+    public void findCommonPeriod_defaultLayers() throws Exception {
+        float[] amplitudes = {52, 52};
+        float[] wavelengths = {1.0f, 1.5f};
+        assertEquals(2 * Math.PI / 1.2, WaveFrameRing.findCommonPeriod(new float[]{-1.2f, 1.2f}, amplitudes, wavelengths, WIDTH, 2), 1e-6);
+        assertEquals(2 * Math.PI / 0.4, WaveFrameRing.findCommonPeriod(new float[]{1.2f, 0.8f}, amplitudes, wavelengths, WIDTH, 2), 1e-5);
+        assertEquals(0, WaveFrameRing.findCommonPeriod(new float[]{1f, (float) Math.sqrt(2)}, amplitudes, wavelengths, WIDTH, 2), 0);
+        assertEquals(0, WaveFrameRing.findCommonPeriod(new float[]{0, 0}, amplitudes, wavelengths, WIDTH, 2), 0);
+    }
+
+    /**
+     * 一个周期后还差一点相位的速度: 两层的速度之比是 2 + residual/2π,慢的那层转一圈时快的那层差 residual 弧度
+     */
+    private static float[] nearlyCommonSpeeds(double residual) {
+        float slow = 1.2f;
+        return new float[]{slow, (float) (slow * (2 + residual / (2 * Math.PI)))};
+    }
+
+    /**
+     * 绕回时画面最多跳多少像素: 竖直 振幅*Δφ,横向 波长*Δφ/2π
+     */
+    private static double wrapJump(float[] speeds, float[] amplitudes, float[] wavelengths, float unitWidth, double period) {
+        double jump = 0;
+        for (int l = 0; l < speeds.length; l++) {
+            double turns = Math.abs(speeds[l]) * period / (2 * Math.PI);
+            double residual = Math.abs(turns - Math.rint(turns)) * 2 * Math.PI;
+            jump = Math.max(jump, residual * Math.max(amplitudes[l], unitWidth * wavelengths[l] / (2 * Math.PI)));
+        }
+        return jump;
+    }
+
+    @Test
+    public void findCommonPeriod_rejectsVisibleWrapJump() throws Exception {
+        float[] amplitudes = {52, 52};
+        float[] wavelengths = {1.0f, 1.5f};
+        float[] speeds = nearlyCommonSpeeds(9e-4);      //原来1e-3弧度的容差以内
+        double horizontal = 9e-4 * WIDTH * 1.5 / (2 * Math.PI);
+        assertTrue(horizontal > WaveFrameRing.MAX_WRAP_ERROR);      //1920宽的屏上每次绕回横着跳0.4px
+
+        assertEquals(0, WaveFrameRing.findCommonPeriod(speeds, amplitudes, wavelengths, WIDTH, 2), 0);
+
+        //波长短、振幅小的浪,同样的残差看不出来,还是可以缓存
+        float[] smallWave = {2, 2};
+        double period = WaveFrameRing.findCommonPeriod(speeds, smallWave, new float[]{0.01f, 0.01f}, WIDTH, 2);
+        assertEquals(2 * Math.PI / 1.2f, period, 1e-6);
+    }
+
+    @Test
+    public void findCommonPeriod_jumpStaysWithinMaxWrapError() throws Exception {
+        float[] amplitudes = {52, 120};
+        float[] wavelengths = {1.0f, 1.5f};
+        for (float width : new float[]{720, 1920, 3840, 7680}) {
+            for (double residual = 1e-5; residual < 1e-2; residual *= 1.7) {
+                float[] speeds = nearlyCommonSpeeds(residual);
+                double period = WaveFrameRing.findCommonPeriod(speeds, amplitudes, wavelengths, width, 2);
+                if (period > 0) {
+                    double jump = wrapJump(speeds, amplitudes, wavelengths, width, period);
+                    assertTrue("width " + width + " residual " + residual + " jump " + jump,
+                            jump <= WaveFrameRing.MAX_WRAP_ERROR);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sample_replaysCachedPeriod() throws Exception {
+        WavesSampler cached = createSampler(-1.2f, 1.2f);
+        cached.setFrameCache(FPS, BUDGET);
+        assertTrue(cached.isFrameCacheActive());
+        WaveFrameRing ring = cached.getFrameRing();
+        double period = ring.getPeriod();
+
+        for (int i = 0; i < ring.getFrameCount(); i++) {     //第一圈,边算边存
+            cached.sample(ring.frameTime(i));
+        }
+        assertEquals(ring.getFrameCount(), ring.getFilledCount());
+
+        //之后任何时间都和按量化时间实时算的一样
+        WavesSampler live = createSampler(-1.2f, 1.2f);
+        int length = cached.getCount() * cached.getLayerCount();
+        for (double t = period * 3; t < period * 4; t += 0.0371) {
+            cached.sample(t);
+            live.sample(ring.frameTime(ring.frameIndex(t)));
+            for (int i = 0; i < length; i++) {
+                assertEquals("t=" + t, live.getSamples()[i], cached.getSamples()[i], 1e-2f);
+            }
+        }
+    }
+
+    @Test
+    public void sample_fallsBackWhenBudgetTooSmall() throws Exception {
+        WavesSampler sampler = createSampler(-1.2f, 1.2f);
+        sampler.setFrameCache(FPS, 1024);
+        assertFalse(sampler.isFrameCacheActive());
+
+        WavesSampler live = createSampler(-1.2f, 1.2f);
+        sampler.sample(12.345);
+        live.sample(12.345);
+        assertArrayEquals(live.getSamples(), sampler.getSamples(), 0f);
+    }
+
+    @Test
+    public void sample_fallsBackWithoutCommonPeriod() throws Exception {
+        WavesSampler sampler = createSampler(1f, (float) Math.sqrt(2));
+        sampler.setFrameCache(FPS, BUDGET);
+        assertFalse(sampler.isFrameCacheActive());
+    }
+
+    @Test
+    public void configure_keptArrayStaysWithinBudget() throws Exception {
+        WavesSampler sampler = createSampler(-1.2f, 1.2f);
+        sampler.setFrameCache(FPS, BUDGET);
+        WaveFrameRing ring = sampler.getFrameRing();
+        long wide = ring.getByteCount();
+        assertTrue(wide <= BUDGET);
+
+        sampler.resize(740, 20, 720, 300);          //变小了,以前的大数组不留着
+        long narrowBudget = wide / 2;
+        sampler.setFrameCache(FPS, narrowBudget);
+        assertTrue(sampler.isFrameCacheActive());
+        assertTrue(ring.getByteCount() + " > " + narrowBudget, ring.getByteCount() <= narrowBudget);
+
+        sampler.setFrameCache(FPS, 1024);           //预算不够,不启用时也不留着
+        assertFalse(sampler.isFrameCacheActive());
+        assertEquals(0, ring.getByteCount());
+    }
+
+    @Test
+    public void resize_invalidatesCachedFrames() throws Exception {
+        WavesSampler sampler = createSampler(-1.2f, 1.2f);
+        sampler.setFrameCache(FPS, BUDGET);
+        sampler.sample(0.5);
+        assertEquals(1, sampler.getFrameRing().getFilledCount());
+        sampler.resize(740, 20, 720, 300);
+        assertTrue(sampler.isFrameCacheActive());
+        assertEquals(0, sampler.getFrameRing().getFilledCount());
+    }
+}
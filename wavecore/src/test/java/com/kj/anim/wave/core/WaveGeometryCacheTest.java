@@ -0,0 +1,132 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多个浪View共用采样结果的单元测试,在开发机(host)上执行。
+ */
+public class WaveGeometryCacheTest {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int WIDTH = 540;
+    private static final float X_SPACE = 5;
+    private static final float BASE_LINE = 300;
+
+    private static List<WaveLayer> layers(float speed) {
+        List<WaveLayer> layers = new ArrayList<>(2);
+        layers.add(new WaveLayer(52, 1.0f, -speed, (float) (5 * Math.PI / 4), 0, 0));
+        layers.add(new WaveLayer(52, 1.5f, speed, 0, 0, 0));
+        return layers;
+    }
+
+    private static WaveGeometryCache.Handle acquire(WaveGeometryCache cache, List<WaveLayer> layers, float offset, float unitWidth) {
+        return cache.acquire(layers, 0, WavesSampler.EVALUATOR_MATH, unitWidth, BASE_LINE, X_SPACE, offset, WIDTH);
+    }
+
+    @Test
+    public void groups_scaleWithConfigurationsNotInstances() throws Exception {
+        WaveGeometryCache cache = new WaveGeometryCache();
+        List<WaveGeometryCache.Handle> handles = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            handles.add(acquire(cache, layers(1.2f + i % 3), 0, WIDTH));
+        }
+        assertEquals(3, cache.getGroupCount());
+        assertSame(handles.get(0).getSampler(), handles.get(3).getSampler());
+        assertNotSame(handles.get(0).getSampler(), handles.get(1).getSampler());
+
+        for (WaveGeometryCache.Handle handle : handles) {
+            handle.release();
+        }
+        assertEquals(0, cache.getGroupCount());
+    }
+
+    @Test
+    public void sample_sameFrameComputedOnce() throws Exception {
+        WaveGeometryCache cache = new WaveGeometryCache();
+        WaveGeometryCache.Handle first = acquire(cache, layers(1.2f), 0, WIDTH);
+        WaveGeometryCache.Handle second = acquire(cache, layers(1.2f), 0, WIDTH);
+        first.sample(FRAME_NANOS * 10);
+        float[] samples = first.getSampler().getSamples();
+        samples[0] = Float.NaN;     //同一帧第二个View不会再算,改掉的值还在
+        second.sample(FRAME_NANOS * 10);
+        assertTrue(Float.isNaN(second.getSampler().getSamples()[0]));
+
+        second.sample(FRAME_NANOS * 11);
+        assertFalse(Float.isNaN(second.getSampler().getSamples()[0]));
+    }
+
+    @Test
+    public void wall_slicesJoinIntoOneWave() throws Exception {
+        WaveGeometryCache cache = new WaveGeometryCache();
+        int panels = 3;
+        float wallWidth = WIDTH * panels;
+        WaveGeometryCache.Handle[] handles = new WaveGeometryCache.Handle[panels];
+        for (int p = 0; p < panels; p++) {
+            handles[p] = acquire(cache, layers(1.2f), p * WIDTH, wallWidth);
+        }
+
+        WavesSampler whole = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        whole.setLayers(layers(1.2f));
+        whole.resize(wallWidth, X_SPACE, wallWidth, BASE_LINE);
+
+        long now = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            now += FRAME_NANOS;
+            double seconds = handles[0].update(now);
+            whole.sample(seconds);
+            for (int p = 0; p < panels; p++) {
+                WaveGeometryCache.Handle handle = handles[p];
+                handle.sample(now);
+                WavesSampler sampler = handle.getSampler();
+                assertTrue(sampler.getX(handle.getFirstIndex()) - handle.getOffset() <= 0);
+                assertTrue(sampler.getX(handle.getEndIndex() - 1) - handle.getOffset() >= WIDTH);
+                for (int i = handle.getFirstIndex(); i < handle.getEndIndex() && i < whole.getCount(); i++) {
+                    for (int l = 0; l < 2; l++) {
+                        assertEquals(whole.getY(l, i), sampler.getY(l, i), 1e-3);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clock_sharedAndPausedOnlyWhenAllStop() throws Exception {
+        WaveGeometryCache cache = new WaveGeometryCache();
+        WaveGeometryCache.Handle first = acquire(cache, layers(1.2f), 0, WIDTH);
+        long now = 1000000000L;
+        first.update(now);
+        for (int i = 0; i < 60; i++) {
+            first.update(now += FRAME_NANOS);
+        }
+        WaveGeometryCache.Handle late = acquire(cache, layers(1.2f), 0, WIDTH);
+        assertEquals(first.update(now), late.update(now), 0);     //后来的View直接接上同一个相位
+
+        first.pause();
+        double running = late.update(now += FRAME_NANOS);
+        assertTrue(running > 0.9);
+
+        late.pause();
+        now += 60L * 1000000000L;       //都停了一分钟
+        double resumed = late.update(now);
+        assertEquals(running, resumed, 1e-9);
+    }
+
+    @Test
+    public void release_keepsGroupWhileOthersUseIt() throws Exception {
+        WaveGeometryCache cache = new WaveGeometryCache();
+        WaveGeometryCache.Handle first = acquire(cache, layers(1.2f), 0, WIDTH);
+        WaveGeometryCache.Handle wide = acquire(cache, layers(1.2f), WIDTH * 2, WIDTH);
+        int wideCount = wide.getSampler().getCount();
+        wide.release();
+        wide.release();
+        assertEquals(1, cache.getGroupCount());
+        assertTrue(first.getSampler().getCount() < wideCount);     //最右边的View走了,采样范围缩回来
+        first.release();
+        assertEquals(0, cache.getGroupCount());
+    }
+}
@@ -0,0 +1,100 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * 计算方式平移绘制的平铺参数的单元测试,在开发机(host)上执行。
+ */
+public class WavePeriodTileTest {
+
+    private static final int WIDTH = 1080;
+    private static final float BASE_LINE = 300;
+    private static final float AMPLITUDE = 52;
+
+    @Test
+    public void translatedTile_matchesResampledWave() throws Exception {
+        WaveLayer layer = new WaveLayer(AMPLITUDE, 1.5f, 1.2f, 0.7f, 0, 0);
+        WavePeriodTile tile = new WavePeriodTile();
+        tile.layout(WIDTH, layer);
+        assertEquals(1620, tile.getWidth());
+
+        WaveLayer rounded = new WaveLayer(layer);
+        rounded.setWavelength(tile.getWavelength());
+        WavesSampler tileSampler = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        tileSampler.setLayers(Collections.singletonList(rounded));
+        tileSampler.resize(tile.getWidth(), 1, WIDTH, BASE_LINE);
+        tileSampler.sample(0);
+
+        WavesSampler frameSampler = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        frameSampler.setLayers(Collections.singletonList(rounded));
+        frameSampler.resize(WIDTH, 1, WIDTH, BASE_LINE);
+
+        double slope = AMPLITUDE * 2 * Math.PI / tile.getWidth();     //偏移量取整最多差半个像素
+        for (double seconds = 0; seconds < 20; seconds += 0.37) {
+            frameSampler.sample(seconds);
+            int offset = tile.offsetAt(seconds);
+            for (int x = 0; x < WIDTH; x += 7) {
+                int u = (x - offset) % tile.getWidth();
+                assertEquals("t=" + seconds + " x=" + x, frameSampler.getY(0, x), tileSampler.getY(0, u),
+                        slope * 0.5 + 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void offset_staysWithinOneTile() throws Exception {
+        WavePeriodTile tile = new WavePeriodTile();
+        tile.layout(WIDTH, new WaveLayer(AMPLITUDE, 1.0f, -1.2f, 0, 0, 0));
+        for (double seconds = 0; seconds < 100; seconds += 0.016) {
+            int offset = tile.offsetAt(seconds);
+            assertTrue(offset <= 0);
+            assertTrue(offset >= -tile.getWidth());
+        }
+    }
+
+    @Test
+    public void shortWavelength_packsPeriodsIntoOneTile() throws Exception {
+        WavePeriodTile tile = new WavePeriodTile();
+        tile.layout(WIDTH, new WaveLayer(AMPLITUDE, 0.05f, 1.2f, 0, 0, 0));
+        assertTrue(tile.getWidth() * WavePeriodTile.MAX_TILES >= WIDTH);
+        float period = tile.getWavelength() * WIDTH;
+        int periods = Math.round(tile.getWidth() / period);
+        assertEquals(tile.getWidth(), periods * period, 1e-2);
+        assertEquals(54, period, 0.5);
+    }
+
+    @Test
+    public void wallPanels_lineUpAcrossSeams() throws Exception {
+        int panels = 3;
+        float wallWidth = WIDTH * panels;
+        WaveLayer layer = new WaveLayer(AMPLITUDE, 0.37f, 1.2f, 0.7f, 0, 0);
+        WavePeriodTile[] tiles = new WavePeriodTile[panels];
+        for (int p = 0; p < panels; p++) {
+            tiles[p] = new WavePeriodTile();
+            tiles[p].layout(WIDTH, wallWidth, layer);
+            assertEquals(tiles[0].getWidth(), tiles[p].getWidth());
+        }
+        int tileWidth = tiles[0].getWidth();
+        for (double seconds = 0; seconds < 20; seconds += 0.37) {
+            int first = tiles[0].offsetAt(seconds, 0);
+            for (int p = 1; p < panels; p++) {
+                int offset = tiles[p].offsetAt(seconds, p * WIDTH);
+                int expected = first - p * WIDTH;       //第一块往右铺过去在这个View里的位置
+                int diff = ((offset - expected) % tileWidth + tileWidth) % tileWidth;
+                assertTrue("t=" + seconds + " panel " + p + " diff " + diff, diff <= 1 || diff >= tileWidth - 1);
+            }
+        }
+    }
+
+    @Test
+    public void flatLayer_doesNotMove() throws Exception {
+        WavePeriodTile tile = new WavePeriodTile();
+        tile.layout(WIDTH, new WaveLayer(AMPLITUDE, 0, 1.2f, 0, 0, 0));
+        assertEquals(WIDTH, tile.getWidth());
+        assertEquals(0, tile.offsetAt(3.5));
+    }
+}
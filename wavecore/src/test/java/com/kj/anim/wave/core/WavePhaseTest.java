@@ -0,0 +1,110 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 相位绕回的单元测试,模拟7*24小时长时间运行,在开发机(host)上执行。
+ */
+public class WavePhaseTest {
+
+    private static final long FRAME_NANOS = 16666667;              //60fps
+    private static final long DAYS_30_FRAMES = 30L * 24 * 3600 * 60;
+    private static final double PI2 = 2 * Math.PI;
+
+    @Test
+    public void update_soak30Days_motionPerFrameStaysConstant() throws Exception {
+        double speed = 1.2;
+        WavePhase phase = new WavePhase(speed, PI2);
+        double expected = FRAME_NANOS * speed / 1e9;
+
+        long now = 123456789L;
+        double last = phase.update(now);
+        double minStep = Double.MAX_VALUE;
+        double maxStep = 0;
+        for (long i = 0; i < DAYS_30_FRAMES; i++) {
+            now += FRAME_NANOS;
+            double current = phase.update(now);
+            assertTrue(current >= 0 && current < PI2);
+            double step = WavePhase.wrap(current - last, PI2);
+            minStep = Math.min(minStep, step);
+            maxStep = Math.max(maxStep, step);
+            last = current;
+        }
+        assertEquals(expected, minStep, 1e-9);
+        assertEquals(expected, maxStep, 1e-9);
+    }
+
+    @Test
+    public void update_soak30Days_tileOffsetStillMoves() throws Exception {
+        WavePhase phase = new WavePhase(1000.0 / 40000, 1);     //Shader方式前层浪,单位是图片宽度
+        long now = 0;
+        phase.update(now);
+        now += (DAYS_30_FRAMES - 1) * FRAME_NANOS;
+        double before = phase.update(now);
+        now += FRAME_NANOS;
+        double after = phase.update(now);
+        assertEquals(FRAME_NANOS * (1000.0 / 40000) / 1e9, WavePhase.wrap(after - before, 1), 1e-12);
+    }
+
+    @Test
+    public void update_negativeSpeedWrapsIntoRange() throws Exception {
+        WavePhase phase = new WavePhase(-3, PI2);
+        long now = 0;
+        phase.update(now);
+        for (int i = 0; i < 10000; i++) {
+            now += FRAME_NANOS;
+            double current = phase.update(now);
+            assertTrue(current >= 0 && current < PI2);
+        }
+    }
+
+    @Test
+    public void pause_keepsWrappedPhase() throws Exception {
+        WavePhase phase = new WavePhase(1.2, PI2);
+        phase.update(0);
+        double paused = phase.update(10000000000L);
+        phase.pause();
+        assertEquals(paused, phase.update(10000000000L + 3600000000000L), 0);
+        assertEquals(WavePhase.wrap(12, PI2), paused, 1e-9);
+    }
+
+    @Test
+    public void setPeriod_whileRunningKeepsMoving() throws Exception {
+        long frame = 16666667;
+        WavePhase phase = new WavePhase(1.2, PI2);
+        phase.update(0);
+        double before = phase.update(10 * frame);
+        phase.setPeriod(PI2);       //周期没变(换画质、改尺寸)
+        assertEquals(before + 1.2 * frame / 1e9, phase.update(11 * frame), 1e-9);
+
+        phase.setPeriod(2 * PI2);   //周期变了也不丢这一帧
+        double after = phase.update(12 * frame);
+        assertEquals(before + 2 * 1.2 * frame / 1e9, after, 1e-9);
+    }
+
+    @Test
+    public void sample_after30DaysMatchesWrappedTime() throws Exception {
+        List<WaveLayer> layers = new ArrayList<>();
+        layers.add(new WaveLayer(52, 1.0f, -1.2f, (float) (5 * Math.PI / 4), 0, 0));
+        layers.add(new WaveLayer(52, 1.5f, 1.2f, 0, 0, 0));
+        WavesSampler late = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        WavesSampler early = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        late.setLayers(layers);
+        early.setLayers(layers);
+        late.resize(1940, 20, 1920, 540);
+        early.resize(1940, 20, 1920, 540);
+
+        double period = late.getCommonPeriod();
+        double seconds = 30 * 24 * 3600.0 + 0.25;
+        late.sample(seconds);
+        early.sample(WavePhase.wrap(seconds, period));
+        for (int i = 0; i < late.getCount() * late.getLayerCount(); i++) {
+            assertEquals(early.getSamples()[i], late.getSamples()[i], 1e-3f);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 自动画质的单元测试,在开发机(host)上执行。
+ * 每档的耗时用一个假的模型代替真机,看档位会不会停在预算以内、会不会来回跳。
+ */
+public class WaveQualityGovernorTest {
+
+    private static final long BUDGET = 8000000;
+    private static final long FRAME_NANOS = 16666667;
+
+    private WaveQualityGovernor mGovernor;
+
+    @Before
+    public void setUp() throws Exception {
+        mGovernor = new WaveQualityGovernor();
+        mGovernor.setFrameBudgetNanos(BUDGET);
+    }
+
+    @Test
+    public void startsAtDefaultLevel() throws Exception {
+        assertEquals(WaveQualityGovernor.DEFAULT_LEVEL, mGovernor.getLevelIndex());
+        assertEquals(20, mGovernor.getLevel().xSpace, 0);
+        assertFalse(mGovernor.getLevel().antiAlias);
+    }
+
+    @Test
+    public void slowDevice_downgradesUntilWithinBudget() throws Exception {
+        //每档的耗时,从高到低
+        long[] cost = {40000000, 30000000, 20000000, 14000000, 11000000, 6000000};
+        run(cost, 3000);
+        int level = mGovernor.getLevelIndex();
+        assertEquals(4, level);     //11ms 在30fps下有16ms的预算,又没有宽裕到可以升档
+        assertEquals(30, mGovernor.getLevel().framesPerSecond);
+        assertTrue(cost[level] <= mGovernor.getFrameBudgetNanos());
+    }
+
+    @Test
+    public void fastDevice_upgradesToBest() throws Exception {
+        long[] cost = {3000000, 2000000, 1000000, 900000, 500000, 400000};
+        run(cost, 3000);
+        assertEquals(0, mGovernor.getLevelIndex());
+        assertTrue(mGovernor.getLevel().antiAlias);
+    }
+
+    @Test
+    public void singleSpikes_doNotDowngrade() throws Exception {
+        for (int i = 0; i < 3000; i++) {
+            long cost = i % 20 == 0 ? 30000000 : 6000000;   //5%的帧卡一下
+            assertFalse(mGovernor.onFrameRendered(cost));
+        }
+        assertEquals(WaveQualityGovernor.DEFAULT_LEVEL, mGovernor.getLevelIndex());
+    }
+
+    @Test
+    public void borderlineDevice_changesRarely() throws Exception {
+        //默认档刚好够,上一档刚好不够: 会试着往上升,但是升一次失败以后要等越来越久
+        long[] cost = {20000000, 9000000, 4000000, 3000000, 2000000, 1000000};
+        int changes = 0;
+        int frames = 60 * 60 * 10;  //60fps跑10分钟
+        for (int i = 0; i < frames; i++) {
+            if (mGovernor.onFrameRendered(cost[mGovernor.getLevelIndex()])) {
+                changes++;
+            }
+        }
+        int level = mGovernor.getLevelIndex();
+        assertTrue("level " + level, level == WaveQualityGovernor.DEFAULT_LEVEL || level == WaveQualityGovernor.DEFAULT_LEVEL - 1);
+        int cycle = WaveQualityGovernor.WINDOW_FRAMES * WaveQualityGovernor.MAX_UPGRADE_WINDOWS;
+        assertTrue("changes " + changes, changes <= 2 * (7 + frames / cycle));
+    }
+
+    @Test
+    public void disabled_staysAtDefault() throws Exception {
+        mGovernor.setFrameBudgetNanos(0);
+        assertFalse(mGovernor.isEnabled());
+        for (int i = 0; i < 3000; i++) {
+            assertFalse(mGovernor.onFrameRendered(50000000));
+        }
+        assertEquals(WaveQualityGovernor.DEFAULT_LEVEL, mGovernor.getLevelIndex());
+    }
+
+    @Test
+    public void lowFrameRate_skipsVsyncs() throws Exception {
+        long[] cost = {40000000, 40000000, 40000000, 40000000, 40000000, 25000000};
+        run(cost, 3000);
+        assertEquals(WaveQualityGovernor.LEVELS.length - 1, mGovernor.getLevelIndex());
+        assertEquals(15, mGovernor.getLevel().framesPerSecond);
+
+        mGovernor.pause();
+        int rendered = 0;
+        long now = 0;
+        for (int i = 0; i < 600; i++) {     //60Hz跑10秒,带一点vsync抖动
+            now += FRAME_NANOS + (i % 3 - 1) * 500000;
+            if (mGovernor.shouldRender(now)) {
+                rendered++;
+            }
+        }
+        assertEquals(150, rendered, 2);
+    }
+
+    @Test
+    public void fullFrameRate_rendersEveryVsync() throws Exception {
+        long now = 0;
+        for (int i = 0; i < 100; i++) {
+            now += FRAME_NANOS / 2;     //120Hz也每帧都画
+            assertTrue(mGovernor.shouldRender(now));
+        }
+    }
+
+    @Test
+    public void pacing_downgradesWhenVsyncsAreMissed() throws Exception {
+        //硬件加速时draw()很快,真正的开销在RenderThread上: 每档一帧要多久才能画完,从高到低
+        long[] gpu = {40000000, 30000000, 25000000, 14000000, 20000000, 20000000};
+        runPaced(gpu, 60 * 60);
+        assertEquals(3, mGovernor.getLevelIndex());     //第一个一帧能在一个vsync里画完的档
+        assertEquals(30, mGovernor.getLevel().xSpace, 0);
+    }
+
+    @Test
+    public void pacing_upgradesWhenEveryVsyncIsHit() throws Exception {
+        long[] gpu = {10000000, 8000000, 5000000, 4000000, 3000000, 3000000};
+        runPaced(gpu, 60 * 60);
+        assertEquals(0, mGovernor.getLevelIndex());
+    }
+
+    @Test
+    public void pacing_singleMissedVsyncsDoNotDowngrade() throws Exception {
+        long now = 0;
+        for (int i = 0; i < 3000; i++) {
+            now += i % 20 == 0 ? 2 * FRAME_NANOS : FRAME_NANOS;     //5%的帧丢一个vsync
+            assertTrue(mGovernor.shouldRender(now));
+            assertFalse(mGovernor.onFramePresented(now));
+        }
+        assertEquals(WaveQualityGovernor.DEFAULT_LEVEL, mGovernor.getLevelIndex());
+    }
+
+    @Test
+    public void pacing_pauseGapIsNotAMissedVsync() throws Exception {
+        long now = 0;
+        for (int i = 0; i < WaveQualityGovernor.WINDOW_FRAMES * 3; i++) {
+            now += FRAME_NANOS;
+            if (i % WaveQualityGovernor.WINDOW_FRAMES == 0) {
+                mGovernor.pause();
+                now += 60L * 1000000000L;      //停了一分钟
+            }
+            assertFalse(mGovernor.onFramePresented(now));
+        }
+        assertEquals(WaveQualityGovernor.DEFAULT_LEVEL, mGovernor.getLevelIndex());
+    }
+
+    @Test
+    public void pause_keepsSettlingWindowAfterLevelChange() throws Exception {
+        long over = 2 * BUDGET;
+        int frames = 0;
+        while (!mGovernor.onFrameRendered(over)) {
+            assertTrue(++frames < 1000);
+        }
+        int level = mGovernor.getLevelIndex();
+        mGovernor.pause();      //刚换档就停了,恢复后第一个窗口还是要准备Path和渐变,不算
+
+        for (int i = 0; i < WaveQualityGovernor.WINDOW_FRAMES * WaveQualityGovernor.DOWNGRADE_WINDOWS; i++) {
+            assertFalse(mGovernor.onFrameRendered(over));
+        }
+        assertEquals(level, mGovernor.getLevelIndex());
+        boolean changed = false;
+        for (int i = 0; i < WaveQualityGovernor.WINDOW_FRAMES; i++) {
+            changed |= mGovernor.onFrameRendered(over);
+        }
+        assertTrue(changed);
+    }
+
+    /**
+     * 按vsync跑: 上一帧还没画完的vsync丢掉,画了的帧把vsync时间报给governor
+     *
+     * @param gpuPerLevel 每档一帧画完要多久
+     */
+    private void runPaced(long[] gpuPerLevel, int vsyncs) {
+        long now = 0;
+        long busyUntil = 0;
+        for (int i = 0; i < vsyncs; i++) {
+            now += FRAME_NANOS;
+            if (now < busyUntil || !mGovernor.shouldRender(now)) {
+                continue;
+            }
+            busyUntil = now + gpuPerLevel[mGovernor.getLevelIndex()];
+            mGovernor.onFramePresented(now);
+        }
+    }
+
+    /**
+     * 按当前档位的耗时喂给governor,只统计真正画了的帧
+     */
+    private void run(long[] costPerLevel, int frames) {
+        for (int i = 0; i < frames; i++) {
+            mGovernor.onFrameRendered(costPerLevel[mGovernor.getLevelIndex()]);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * WaveViewDraw 每帧偏移量的单元测试,在开发机(host)上执行。
+ */
+public class WaveTileScrollerTest {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final int DURATION = 16000;
+    private static final int TILE_WIDTH = 1920;
+    private static final int FRAMES = 100000;
+
+    @Test
+    public void update_allocatesNothingPerFrame() throws Exception {
+        final WaveTileScroller scroller = new WaveTileScroller(DURATION);
+        scroller.setTileWidth(TILE_WIDTH);
+        final long[] checksum = new long[1];
+        AllocationAssert.assertNoAllocation(FRAMES, new Runnable() {
+            private long mNow;
+
+            @Override
+            public void run() {
+                scroller.update(mNow += FRAME_NANOS);
+                checksum[0] += scroller.getOffset();
+            }
+        });
+        assertTrue(checksum[0] > 0);
+    }
+
+    @Test
+    public void update_movesOneTilePerDurationAndWraps() throws Exception {
+        WaveTileScroller scroller = new WaveTileScroller(DURATION);
+        scroller.setTileWidth(TILE_WIDTH);
+        long start = 1000000000L;
+        scroller.update(start);
+        assertEquals(0, scroller.getOffset());
+
+        assertTrue(scroller.update(start + DURATION / 4 * 1000000L));
+        assertEquals(TILE_WIDTH / 4, scroller.getOffset(), 1);
+
+        long now = start;
+        for (int i = 0; i < 60 * 60; i++) {     //一分钟,绕回好几圈
+            scroller.update(now += FRAME_NANOS);
+            assertTrue(scroller.getOffset() >= 0);
+            assertTrue(scroller.getOffset() < TILE_WIDTH);
+        }
+    }
+
+    @Test
+    public void shaderOffset_isNeverIdentity() throws Exception {
+        WaveTileScroller scroller = new WaveTileScroller(DURATION);
+        scroller.setTileWidth(TILE_WIDTH);
+        scroller.update(0);
+        assertEquals(0, scroller.getOffset());
+        assertEquals(TILE_WIDTH, scroller.getShaderOffset());   //平铺的图平移一整张,和不平移一样
+
+        long now = 0;
+        int wraps = 0;
+        for (int i = 0; i < 60 * 60; i++) {
+            scroller.update(now += FRAME_NANOS / 4);    //每帧0.5px,绕回时一定有正好是0的帧
+            int shaderOffset = scroller.getShaderOffset();
+            assertTrue(shaderOffset > 0);
+            assertTrue(shaderOffset <= TILE_WIDTH);
+            assertEquals(scroller.getOffset(), shaderOffset % TILE_WIDTH);
+            if (scroller.getOffset() == 0) {
+                wraps++;
+            }
+        }
+        assertTrue(wraps > 0);
+    }
+
+    @Test
+    public void update_reportsOnlyPixelChanges() throws Exception {
+        WaveTileScroller scroller = new WaveTileScroller(DURATION);
+        scroller.setTileWidth(TILE_WIDTH);
+        scroller.update(0);
+        assertFalse(scroller.update(1000000));      //1ms只走了0.12px
+        assertTrue(scroller.update(FRAME_NANOS));   //一帧走2px
+    }
+
+    @Test
+    public void pause_resumesAtSameOffset() throws Exception {
+        WaveTileScroller scroller = new WaveTileScroller(DURATION);
+        scroller.setTileWidth(TILE_WIDTH);
+        long now = 0;
+        for (int i = 0; i < 100; i++) {
+            scroller.update(now += FRAME_NANOS);
+        }
+        int paused = scroller.getOffset();
+        scroller.pause();
+
+        now += 60L * 1000000000L;       //停了一分钟
+        assertFalse(scroller.update(now));
+        assertEquals(paused, scroller.getOffset());
+    }
+}
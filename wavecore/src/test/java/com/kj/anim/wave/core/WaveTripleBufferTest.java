@@ -0,0 +1,73 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 三缓冲交接的单元测试,在开发机(host)上执行。
+ */
+public class WaveTripleBufferTest {
+
+    private static final int SIZE = 4096;
+
+    @Test
+    public void getLatest_returnsLastPublished() throws Exception {
+        int[] a = new int[1], b = new int[1], c = new int[1];
+        WaveTripleBuffer<int[]> buffer = new WaveTripleBuffer<>(a, b, c);
+        int[] initial = buffer.getLatest();
+        assertSame(initial, buffer.getLatest());        //没写过时一直是同一个
+
+        for (int frame = 1; frame <= 3; frame++) {
+            int[] write = buffer.getWriteBuffer();
+            assertNotSame(initial, write);
+            write[0] = frame;
+            buffer.publish();
+        }
+        int[] latest = buffer.getLatest();
+        assertEquals(3, latest[0]);     //中间没拿走的帧被顶掉了
+        assertSame(latest, buffer.getLatest());
+        assertNotSame(latest, buffer.getWriteBuffer());
+    }
+
+    @Test
+    public void concurrent_neverTornAndNeverGoesBack() throws Exception {
+        final WaveTripleBuffer<int[]> buffer = new WaveTripleBuffer<>(new int[SIZE], new int[SIZE], new int[SIZE]);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final int frames = 20000;
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (int frame = 1; frame <= frames && !stop.get(); frame++) {
+                    int[] write = buffer.getWriteBuffer();
+                    for (int i = 0; i < SIZE; i++) {
+                        write[i] = frame;
+                    }
+                    buffer.publish();
+                }
+            }
+        };
+        writer.start();
+        int last = 0;
+        try {
+            while (last < frames) {
+                int[] read = buffer.getLatest();
+                int frame = read[0];
+                for (int i = 1; i < SIZE; i++) {
+                    assertEquals("torn frame", frame, read[i]);
+                }
+                assertTrue(frame >= last);
+                last = frame;
+                if (!writer.isAlive() && buffer.getLatest()[0] == last) {
+                    break;
+                }
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+        assertEquals(frames, buffer.getLatest()[0]);
+    }
+}
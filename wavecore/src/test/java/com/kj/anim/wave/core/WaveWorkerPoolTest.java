@@ -0,0 +1,85 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/**
+ * 并行采样线程池的单元测试,在开发机(host)上执行。
+ */
+public class WaveWorkerPoolTest {
+
+    @Test
+    public void run_everyPartRunsOncePerCall() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(4);
+        try {
+            final AtomicIntegerArray counts = new AtomicIntegerArray(4);
+            WaveWorkerPool.Task task = new WaveWorkerPool.Task() {
+                @Override
+                public void run(int part, int parts) {
+                    counts.incrementAndGet(part);
+                }
+            };
+            for (int i = 0; i < 10000; i++) {
+                pool.run(task, 4);
+            }
+            for (int part = 0; part < 4; part++) {
+                assertEquals(10000, counts.get(part));
+            }
+
+            pool.run(task, 16);     //段数超过线程数时按线程数算
+            assertEquals(10001, counts.get(3));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void run_workerFailureReachesCallerAndPoolSurvives() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(2);
+        try {
+            try {
+                pool.run(new WaveWorkerPool.Task() {
+                    @Override
+                    public void run(int part, int parts) {
+                        if (part == 1) {
+                            throw new IllegalStateException("part 1");
+                        }
+                    }
+                }, 2);
+                fail("worker failure should be rethrown");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+
+            final int[] ran = new int[2];
+            pool.run(new WaveWorkerPool.Task() {
+                @Override
+                public void run(int part, int parts) {
+                    ran[part]++;
+                }
+            }, 2);
+            assertArrayEquals(new int[]{1, 1}, ran);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdown_runsEverythingOnCaller() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(3);
+        pool.shutdown();
+        final Thread caller = Thread.currentThread();
+        final int[] parts = new int[1];
+        pool.run(new WaveWorkerPool.Task() {
+            @Override
+            public void run(int part, int count) {
+                assertSame(caller, Thread.currentThread());
+                parts[0] = count;
+            }
+        }, 3);
+        assertEquals(1, parts[0]);
+    }
+}
@@ -0,0 +1,171 @@
+package com.kj.anim.wave.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 计算方式多层浪采样器的单元测试,在开发机(host)上执行。
+ */
+public class WavesSamplerTest {
+
+    private static final int FRAMES = 1000;
+    private static final float WIDTH = 1920;
+    private static final float AMPLITUDE = 52;
+    private static final float SPEED = 1.2f;
+    private static final float BACK_PHASE = (float) (5 * Math.PI / 4);
+
+    /**
+     * 和 DoubleWavesRenderer 默认的两层一样: 下层浪在前面
+     */
+    private static List<WaveLayer> defaultLayers() {
+        List<WaveLayer> layers = new ArrayList<>();
+        layers.add(new WaveLayer(AMPLITUDE, 1.0f, -SPEED, BACK_PHASE, 0, 0));
+        layers.add(new WaveLayer(AMPLITUDE, 1.5f, SPEED, 0, 0, 0));
+        return layers;
+    }
+
+    @Test
+    public void sample_allocatesNothingInSteadyState() throws Exception {
+        List<WaveLayer> layers = defaultLayers();
+        layers.add(new WaveLayer(20, 0.5f, 2.5f, 1, 0, 0));
+        final WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(layers);
+        sampler.resize(1940, 20, WIDTH, 540);
+
+        AllocationAssert.assertNoAllocation(FRAMES, new Runnable() {
+            private double mSeconds;
+
+            @Override
+            public void run() {
+                sampler.sample(mSeconds += 1 / 60.0);
+            }
+        });
+    }
+
+    @Test
+    public void sample_defaultLayersMatchOriginalFormula() throws Exception {
+        float baseLine = 540;
+        double omega = 2 * Math.PI / (WIDTH * 1.5);
+        WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(defaultLayers());
+        sampler.resize(1940, 20, WIDTH, baseLine);
+        sampler.sample(1.25);
+        float offset = 1.25f * SPEED;       //原来的偏移量
+
+        assertEquals(98, sampler.getCount());
+        assertEquals(2, sampler.getLayerCount());
+        for (int i = 0; i < sampler.getCount(); i++) {
+            float x = sampler.getX(i);
+            float front = (float) (AMPLITUDE * Math.sin(omega * x + offset) + baseLine);
+            float back = (float) (AMPLITUDE * Math.sin(omega * 1.5 * x - offset + 5 * Math.PI / 4) + baseLine);
+            assertEquals(back, sampler.getY(0, i), 1e-2f);
+            assertEquals(front, sampler.getY(1, i), 1e-2f);
+        }
+    }
+
+    @Test
+    public void sample_layersAreInterleavedByColumn() throws Exception {
+        WavesSampler sampler = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        List<WaveLayer> layers = defaultLayers();
+        layers.add(new WaveLayer(10, 0.25f, 3, 0.5f, 0, 0));
+        sampler.setLayers(layers);
+        sampler.resize(1940, 20, WIDTH, 540);
+        sampler.sample(0.5);
+
+        float[] samples = sampler.getSamples();
+        for (int i = 0; i < sampler.getCount(); i++) {
+            for (int l = 0; l < 3; l++) {
+                assertEquals(samples[i * 3 + l], sampler.getY(l, i), 0f);
+            }
+        }
+        assertEquals(540 - 10, sampler.getCrestTop(2), 0f);
+        assertEquals(540 + 10, sampler.getTroughBottom(2), 0f);
+    }
+
+    @Test
+    public void resize_reusesBuffersWhenShrinking() throws Exception {
+        WavesSampler sampler = new WavesSampler();
+        sampler.setLayers(defaultLayers());
+        sampler.resize(1940, 20, WIDTH, 540);
+        float[] samples = sampler.getSamples();
+        sampler.resize(740, 20, 720, 540);
+        assertSame(samples, sampler.getSamples());
+        assertEquals(38, sampler.getCount());
+    }
+
+    @Test
+    public void sample_parallelMatchesSingleThread() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(4);
+        try {
+            List<WaveLayer> layers = defaultLayers();
+            layers.add(new WaveLayer(20, 0.5f, 2.5f, 1, 0, 0));
+            layers.add(new WaveLayer(10, 0.25f, -3, 0.5f, 0, 0));
+            for (int evaluator = WavesSampler.EVALUATOR_MATH; evaluator <= WavesSampler.EVALUATOR_TABLE; evaluator++) {
+                WavesSampler single = new WavesSampler(evaluator);
+                WavesSampler parallel = new WavesSampler(evaluator);
+                parallel.setWorkerPool(pool);
+                for (WavesSampler sampler : new WavesSampler[]{single, parallel}) {
+                    sampler.setLayers(layers);
+                    sampler.resize(7681, 1, 7680, 540);     //7680px宽的墙,每个像素一个点
+                }
+                assertEquals(3, parallel.getParallelParts());     //7682列*4层,每段至少8192个值
+                for (double seconds = 0; seconds < 3; seconds += 1 / 60.0) {
+                    single.sample(seconds);
+                    parallel.sample(seconds);
+                    for (int i = 0; i < single.getCount() * 4; i++) {
+                        assertEquals(single.getSamples()[i], parallel.getSamples()[i], 0f);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void setWorkerPool_smallFramesStaySingleThreaded() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(4);
+        try {
+            WavesSampler sampler = new WavesSampler();
+            sampler.setWorkerPool(pool);
+            sampler.setLayers(defaultLayers());
+            sampler.resize(1940, 20, WIDTH, 540);       //98列*2层,分出去不划算
+            assertEquals(1, sampler.getParallelParts());
+
+            sampler.resize(WIDTH * 8, 1, WIDTH, 540);       //15361列*2层,够分3段
+            assertEquals(3, sampler.getParallelParts());
+
+            sampler.setWorkerPool(null);
+            assertEquals(1, sampler.getParallelParts());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sample_parallelAllocatesNothingInSteadyState() throws Exception {
+        WaveWorkerPool pool = new WaveWorkerPool(3);
+        try {
+            final WavesSampler sampler = new WavesSampler();
+            sampler.setWorkerPool(pool);
+            sampler.setLayers(defaultLayers());
+            sampler.resize(WIDTH * 8, 1, WIDTH, 540);
+            assertEquals(3, sampler.getParallelParts());
+
+            AllocationAssert.assertNoAllocation(FRAMES, new Runnable() {
+                private double mSeconds;
+
+                @Override
+                public void run() {
+                    sampler.sample(mSeconds += 1 / 60.0);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
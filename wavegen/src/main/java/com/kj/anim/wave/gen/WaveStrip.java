@@ -0,0 +1,151 @@
+package com.kj.anim.wave.gen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveStrip
+ * @description 预渲染的一条浪(Shader方式的一层)的参数,从 wavestrips.properties 里读,长度单位是设计稿上的px。
+ *              designDensity=3           设计稿是按哪个密度画的(1920*1080 的设计稿是 xxhdpi,即3),
+ *                                        每个密度的图按 密度 / designDensity 缩放 [默认值1,即单位就是dp]
+ *              strips=back,front         有哪几条,先写的在下面
+ *              名字.wavelength            波长,也是一张图的宽度,横向平铺无缝
+ *              名字.amplitude             振幅
+ *              名字.baseline              中线离View顶部多远
+ *              名字.phase                 初始相位,弧度 [默认值0]
+ *              名字.speed                 每秒移动多少弧度,负数往右走 [默认值0]
+ *              名字.color                 颜色 #AARRGGBB
+ *              phase、speed 和计算方式的 layer_phase、layer_speed 是同一个意思。
+ * @created 2017/5/8 10:10
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveStrip {
+
+    private final String name;
+    private final float wavelength;
+    private final float amplitude;
+    private final float baseline;
+    private final float phase;
+    private final float speed;
+    private final int color;
+
+    public WaveStrip(String name, float wavelength, float amplitude, float baseline, float phase, float speed, int color) {
+        if (wavelength <= 0 || amplitude < 0 || baseline < amplitude) {
+            throw new IllegalArgumentException("bad wave strip " + name + ": wavelength=" + wavelength
+                    + " amplitude=" + amplitude + " baseline=" + baseline);
+        }
+        this.name = name;
+        this.wavelength = wavelength;
+        this.amplitude = amplitude;
+        this.baseline = baseline;
+        this.phase = phase;
+        this.speed = speed;
+        this.color = color;
+    }
+
+    /**
+     * @param properties wavestrips.properties 的内容
+     * @return 所有的条,先写的在下面
+     */
+    public static List<WaveStrip> parse(Properties properties) {
+        String names = properties.getProperty("strips");
+        if (names == null) {
+            throw new IllegalArgumentException("missing 'strips'");
+        }
+        List<WaveStrip> strips = new ArrayList<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            strips.add(new WaveStrip(name,
+                    getFloat(properties, name, "wavelength", null),
+                    getFloat(properties, name, "amplitude", null),
+                    getFloat(properties, name, "baseline", null),
+                    getFloat(properties, name, "phase", "0"),
+                    getFloat(properties, name, "speed", "0"),
+                    parseColor(require(properties, name, "color", null))));
+        }
+        return strips;
+    }
+
+    /**
+     * @param properties wavestrips.properties 的内容
+     * @return 设计稿的密度,1px设计稿 = 1 / designDensity dp
+     */
+    public static float parseDesignDensity(Properties properties) {
+        float density = Float.parseFloat(properties.getProperty("designDensity", "1").trim());
+        if (density <= 0) {
+            throw new IllegalArgumentException("bad designDensity " + density);
+        }
+        return density;
+    }
+
+    private static float getFloat(Properties properties, String name, String key, String defaultValue) {
+        return Float.parseFloat(require(properties, name, key, defaultValue));
+    }
+
+    private static String require(Properties properties, String name, String key, String defaultValue) {
+        String value = properties.getProperty(name + "." + key, defaultValue);
+        if (value == null) {
+            throw new IllegalArgumentException("missing '" + name + "." + key + "'");
+        }
+        return value.trim();
+    }
+
+    /**
+     * @param value #RRGGBB 或 #AARRGGBB
+     */
+    static int parseColor(String value) {
+        if (!value.startsWith("#") || (value.length() != 7 && value.length() != 9)) {
+            throw new IllegalArgumentException("bad color " + value);
+        }
+        long color = Long.parseLong(value.substring(1), 16);
+        if (value.length() == 7) {
+            color |= 0xFF000000L;
+        }
+        return (int) color;
+    }
+
+    /**
+     * @return 一张图走过一个波长要多少毫秒,负数往左走,0表示不动;给 DoubleWavesShaderView 用
+     */
+    public int getDurationMillis() {
+        if (speed == 0) {
+            return 0;
+        }
+        return (int) Math.round(-2000 * Math.PI / speed);   //相位每秒加speed,浪往左走 speed/2π 个波长
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getWavelength() {
+        return wavelength;
+    }
+
+    public float getAmplitude() {
+        return amplitude;
+    }
+
+    public float getBaseline() {
+        return baseline;
+    }
+
+    public float getPhase() {
+        return phase;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public int getColor() {
+        return color;
+    }
+}
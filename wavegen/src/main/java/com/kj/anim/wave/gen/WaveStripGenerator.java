@@ -0,0 +1,149 @@
+package com.kj.anim.wave.gen;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Properties;
+
+import javax.imageio.ImageIO;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveStripGenerator
+ * @description 构建时按 wavestrips.properties 预渲染 Shader 方式的浪图,由 :app:generateWaveStrips 调用。
+ *              用法: WaveStripGenerator wavestrips.properties 输出的res目录
+ *              生成的东西(输出目录会先清空):
+ *                  drawable-{密度}/wave_strip_{名字}.png   每个密度每条一张,单色,只有浪尖到浪谷那一段
+ *                  values/wave_strips.xml                  wave_strips(所有图,先画的在前)、wave_strip_durations(毫秒,负数往左走)
+ *                  values-{密度}/wave_strips.xml           wave_strip_tops: 这个密度下每张图离View顶部多少px
+ *              tops和图片放在同一个密度目录里,运行时总是选到同一个密度,和图片的像素对得上。
+ *              参数是设计稿上的px,按 密度 / designDensity 缩放,设计稿的那个密度下和设计稿一样大。
+ * @created 2017/5/8 11:20
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveStripGenerator {
+
+    private static final String[] DENSITY_NAMES = {"mdpi", "hdpi", "xhdpi", "xxhdpi", "xxxhdpi"};
+    private static final float[] DENSITIES = {1f, 1.5f, 2f, 3f, 4f};
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<!--由 :app:generateWaveStrips 按 wavestrips.properties 生成,不要手改-->\n"
+            + "<resources>\n";
+
+    private WaveStripGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: WaveStripGenerator <wavestrips.properties> <res dir>");
+            System.exit(1);
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(args[0]);
+        try {
+            properties.load(new InputStreamReader(in, "UTF-8"));
+        } finally {
+            in.close();
+        }
+        List<WaveStrip> strips = WaveStrip.parse(properties);
+        float designDensity = WaveStrip.parseDesignDensity(properties);
+        File resDir = new File(args[1]);
+        delete(resDir);
+
+        long bytes = 0;
+        for (int d = 0; d < DENSITIES.length; d++) {
+            File drawableDir = mkdirs(new File(resDir, "drawable-" + DENSITY_NAMES[d]));
+            int[] tops = new int[strips.size()];
+            for (int i = 0; i < strips.size(); i++) {
+                WaveStrip strip = strips.get(i);
+                WaveStripRasterizer.Raster raster = WaveStripRasterizer.rasterize(strip, DENSITIES[d] / designDensity);
+                File png = new File(drawableDir, "wave_strip_" + strip.getName() + ".png");
+                writePng(raster, strip.getColor(), png);
+                tops[i] = raster.top;
+                bytes += png.length();
+            }
+            writeTops(new File(mkdirs(new File(resDir, "values-" + DENSITY_NAMES[d])), "wave_strips.xml"), tops);
+        }
+        writeStrips(new File(mkdirs(new File(resDir, "values")), "wave_strips.xml"), strips);
+        System.out.println("wave strips: " + strips.size() + " x " + DENSITIES.length + " densities, "
+                + bytes / 1024 + "KB png -> " + resDir.getAbsolutePath());
+    }
+
+    private static void writePng(WaveStripRasterizer.Raster raster, int color, File file) throws IOException {
+        BufferedImage image = new BufferedImage(raster.width, raster.height, BufferedImage.TYPE_INT_ARGB);
+        int rgb = color & 0xFFFFFF;
+        int alpha = color >>> 24;
+        for (int y = 0; y < raster.height; y++) {
+            for (int x = 0; x < raster.width; x++) {
+                int a = (raster.getCoverage(x, y) * alpha + 127) / 255;
+                image.setRGB(x, y, a == 0 ? 0 : (a << 24) | rgb);
+            }
+        }
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("no png writer");
+        }
+    }
+
+    private static void writeStrips(File file, List<WaveStrip> strips) throws IOException {
+        StringBuilder xml = new StringBuilder(HEADER);
+        xml.append("    <array name=\"wave_strips\">\n");
+        for (WaveStrip strip : strips) {
+            xml.append("        <item>@drawable/wave_strip_").append(strip.getName()).append("</item>\n");
+        }
+        xml.append("    </array>\n");
+        xml.append("    <integer-array name=\"wave_strip_durations\">\n");
+        for (WaveStrip strip : strips) {
+            xml.append("        <item>").append(strip.getDurationMillis()).append("</item>\n");
+        }
+        xml.append("    </integer-array>\n");
+        xml.append("</resources>\n");
+        write(file, xml);
+    }
+
+    private static void writeTops(File file, int[] tops) throws IOException {
+        StringBuilder xml = new StringBuilder(HEADER);
+        xml.append("    <integer-array name=\"wave_strip_tops\">\n");
+        for (int top : tops) {
+            xml.append("        <item>").append(top).append("</item>\n");
+        }
+        xml.append("    </integer-array>\n");
+        xml.append("</resources>\n");
+        write(file, xml);
+    }
+
+    private static void write(File file, CharSequence content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.append(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static File mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("cannot delete " + file);
+        }
+    }
+}
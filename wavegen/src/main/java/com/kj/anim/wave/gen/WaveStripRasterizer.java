@@ -0,0 +1,99 @@
+package com.kj.anim.wave.gen;
+
+import com.kj.anim.wave.core.WaveLayer;
+import com.kj.anim.wave.core.WavesSampler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author kangjian
+ * @version 1.0
+ * @title WaveStripRasterizer
+ * @description 把一条浪按某个密度画成透明度,浪线以下填满。
+ * 技术点+注意点:
+ *      1.y坐标用计算方式同一个 {@link WavesSampler} 算(Math.sin 那个实现),t=0 时的样子。
+ *      2.图的宽度取整数像素,波长正好等于图宽,REPEAT 平铺时左右无缝。
+ *      3.每个像素横向取 {@link #SUBSAMPLES} 个点,每个点纵向按覆盖的比例算,得到抗锯齿的边。
+ *      4.只留浪尖到浪谷这一段(上下各多一行): 第一行全透明,最后一行全满,
+ *        运行时 Shader 的 CLAMP 会把它们往上、往下拉满整个View,所以这几行以外的像素都不用存。
+ *      不依赖java2d,可以直接在JVM上跑单元测试。
+ * @created 2017/5/8 10:40
+ * @changeRecord [修改记录] <br/>
+ */
+
+public final class WaveStripRasterizer {
+
+    static final int SUBSAMPLES = 4;    //2的n次方,采样间隔是精确的浮点数
+
+    /**
+     * 画好的一张图
+     */
+    public static final class Raster {
+        /**
+         * 图片的宽高,px
+         */
+        public final int width;
+        public final int height;
+        /**
+         * 图片第一行离View顶部多远,px
+         */
+        public final int top;
+        /**
+         * 每个像素的覆盖比例 0~255,一行一行地存
+         */
+        public final int[] coverage;
+
+        Raster(int width, int height, int top) {
+            this.width = width;
+            this.height = height;
+            this.top = top;
+            this.coverage = new int[width * height];
+        }
+
+        public int getCoverage(int x, int y) {
+            return coverage[y * width + x];
+        }
+    }
+
+    private WaveStripRasterizer() {
+    }
+
+    /**
+     * @param strip   参数,单位是设计稿上的px
+     * @param density 设计稿上1px是目标密度下的多少px
+     * @return 画好的图
+     */
+    public static Raster rasterize(WaveStrip strip, float density) {
+        int width = Math.max(1, Math.round(strip.getWavelength() * density));
+        float amplitude = strip.getAmplitude() * density;
+        float baseline = strip.getBaseline() * density;
+        int top = Math.max(0, (int) Math.floor(baseline - amplitude) - 1);
+        int bottom = (int) Math.ceil(baseline + amplitude) + 1;
+        Raster raster = new Raster(width, bottom - top, top);
+
+        float xSpace = 1f / SUBSAMPLES;
+        double omega = 2 * Math.PI / width;
+        WaveLayer layer = new WaveLayer(amplitude, 1, strip.getSpeed(),
+                (float) (strip.getPhase() + omega * xSpace / 2), 0, 0);     //采样点放在每一小段的中间
+        WavesSampler sampler = new WavesSampler(WavesSampler.EVALUATOR_MATH);
+        sampler.setLayers(Collections.singletonList(layer));
+        sampler.resize(width - xSpace, xSpace, width, baseline - top);
+        sampler.sample(0);
+
+        float[] column = new float[raster.height];
+        for (int x = 0; x < width; x++) {
+            Arrays.fill(column, 0);
+            for (int k = 0; k < SUBSAMPLES; k++) {
+                float y = sampler.getY(0, x * SUBSAMPLES + k);
+                for (int row = 0; row < raster.height; row++) {
+                    column[row] += Math.max(0, Math.min(1, row + 1 - y));     //这一行在浪线以下的部分
+                }
+            }
+            for (int row = 0; row < raster.height; row++) {
+                raster.coverage[row * width + x] = Math.round(column[row] * 255 / SUBSAMPLES);
+            }
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,112 @@
+package com.kj.anim.wave.gen;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预渲染浪图的单元测试,在开发机(host)上执行。
+ */
+public class WaveStripRasterizerTest {
+
+    private static final WaveStrip BACK = new WaveStrip("back", 1920, 27, 171, (float) Math.PI, -0.31415927f, 0xFF7633F9);
+
+    @Test
+    public void rasterize_keepsOnlyCrestToTrough() throws Exception {
+        WaveStripRasterizer.Raster raster = WaveStripRasterizer.rasterize(BACK, 1);
+        assertEquals(1920, raster.width);
+        assertEquals(171 - 27 - 1, raster.top);
+        assertEquals(171 + 27 + 1 - raster.top, raster.height);
+        for (int x = 0; x < raster.width; x++) {
+            assertEquals(0, raster.getCoverage(x, 0));                     //第一行全透明,CLAMP往上拉
+            assertEquals(255, raster.getCoverage(x, raster.height - 1));   //最后一行全满,CLAMP往下拉
+        }
+    }
+
+    @Test
+    public void rasterize_matchesCalculateFormula() throws Exception {
+        for (float density : new float[]{1, 1.5f, 3}) {
+            WaveStripRasterizer.Raster raster = WaveStripRasterizer.rasterize(BACK, density);
+            for (int x = 0; x < raster.width; x += 37) {
+                double y = 171 * density + 27 * density * Math.sin(2 * Math.PI * (x + 0.5) / raster.width + Math.PI);
+                double filled = 0;
+                for (int row = 0; row < raster.height; row++) {
+                    filled += raster.getCoverage(x, row) / 255.0;
+                }
+                assertEquals("density " + density + " x " + x, raster.top + raster.height - y, filled, 0.1);
+            }
+        }
+    }
+
+    @Test
+    public void rasterize_tilesSeamlessly() throws Exception {
+        for (float density : new float[]{1, 1.5f, 2, 3, 4}) {
+            WaveStripRasterizer.Raster raster = WaveStripRasterizer.rasterize(BACK, density);
+            int maxStep = 0;
+            for (int x = 0; x < raster.width; x++) {
+                maxStep = Math.max(maxStep, columnDifference(raster, x, (x + 1) % raster.width));
+            }
+            int seam = columnDifference(raster, raster.width - 1, 0);
+            assertTrue("density " + density + " seam " + seam + " > " + maxStep, seam <= maxStep);
+        }
+    }
+
+    @Test
+    public void parse_readsStripsInOrder() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("strips", "back, front");
+        properties.setProperty("back.wavelength", "1920");
+        properties.setProperty("back.amplitude", "27");
+        properties.setProperty("back.baseline", "171");
+        properties.setProperty("back.speed", "-0.31415927");
+        properties.setProperty("back.color", "#7633f9");
+        properties.setProperty("front.wavelength", "960");
+        properties.setProperty("front.amplitude", "14.5");
+        properties.setProperty("front.baseline", "182");
+        properties.setProperty("front.speed", "0.15707963");
+        properties.setProperty("front.color", "#808641ff");
+
+        List<WaveStrip> strips = WaveStrip.parse(properties);
+        assertEquals(2, strips.size());
+        assertEquals("back", strips.get(0).getName());
+        assertEquals(0xFF7633F9, strips.get(0).getColor());
+        assertEquals(0, strips.get(0).getPhase(), 0);
+        assertEquals(20000, strips.get(0).getDurationMillis());       //往右走
+        assertEquals(0x808641FF, strips.get(1).getColor());
+        assertEquals(-40000, strips.get(1).getDurationMillis());      //往左走
+    }
+
+    @Test
+    public void designDensity_scalesDesignPixelsToEachBucket() throws Exception {
+        Properties properties = new Properties();
+        assertEquals(1, WaveStrip.parseDesignDensity(properties), 0);
+        properties.setProperty("designDensity", "3");
+        float designDensity = WaveStrip.parseDesignDensity(properties);
+
+        WaveStripRasterizer.Raster xxhdpi = WaveStripRasterizer.rasterize(BACK, 3 / designDensity);
+        assertEquals(1920, xxhdpi.width);                     //设计稿的密度下和设计稿一样大
+        assertEquals(171 - 27 - 1, xxhdpi.top);
+        WaveStripRasterizer.Raster mdpi = WaveStripRasterizer.rasterize(BACK, 1 / designDensity);
+        assertEquals(640, mdpi.width);
+        assertTrue(mdpi.height < xxhdpi.height / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsMissingValues() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("strips", "back");
+        properties.setProperty("back.wavelength", "1920");
+        WaveStrip.parse(properties);
+    }
+
+    private static int columnDifference(WaveStripRasterizer.Raster raster, int a, int b) {
+        int diff = 0;
+        for (int row = 0; row < raster.height; row++) {
+            diff += Math.abs(raster.getCoverage(a, row) - raster.getCoverage(b, row));
+        }
+        return diff;
+    }
+}